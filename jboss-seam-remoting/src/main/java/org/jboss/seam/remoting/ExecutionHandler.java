@@ -4,6 +4,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.StringReader;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -14,6 +15,9 @@ import javax.servlet.http.HttpServletResponse;
 import org.dom4j.Document;
 import org.dom4j.Element;
 import org.dom4j.io.SAXReader;
+import org.jboss.seam.Component;
+import org.jboss.seam.annotations.ConversationLock;
+import org.jboss.seam.annotations.ConversationLockType;
 import org.jboss.seam.contexts.RemotingLifecycle;
 import org.jboss.seam.core.ConversationPropagation;
 import org.jboss.seam.core.Manager;
@@ -101,6 +105,7 @@ public class ExecutionHandler extends BaseRequestHandler implements RequestHandl
          protected void restoreConversationId()
          {
             ConversationPropagation.instance().setConversationId( ctx.getConversationId() );
+            ConversationPropagation.instance().setConversationLockType( getConversationLockType(env) );
          }
          
          @Override
@@ -138,6 +143,57 @@ public class ExecutionHandler extends BaseRequestHandler implements RequestHandl
     return ctx;
   }
 
+  /**
+   * Determine the lock to take on the conversation. The request may 
+   * share the conversation with other requests only if every method 
+   * it calls is annotated @ConversationLock(READ).
+   *
+   * @param env Element
+   * @return ConversationLockType
+   */
+  private ConversationLockType getConversationLockType(Element env)
+  {
+    List<Element> callElements = env.element("body").elements("call");
+    if (callElements.isEmpty())
+    {
+      return ConversationLockType.WRITE;
+    }
+
+    for (Element e : callElements)
+    {
+      Component component = Component.forName(e.attributeValue("component"));
+      if (component == null ||
+          getConversationLockType(component.getBeanClass(), e.attributeValue("method")) != ConversationLockType.READ)
+      {
+        return ConversationLockType.WRITE;
+      }
+    }
+
+    return ConversationLockType.READ;
+  }
+
+  private ConversationLockType getConversationLockType(Class cls, String methodName)
+  {
+    ConversationLockType result = null;
+    for (Method m : cls.getMethods())
+    {
+      if (m.getName().equals(methodName))
+      {
+        ConversationLock lock = m.isAnnotationPresent(ConversationLock.class) ?
+              m.getAnnotation(ConversationLock.class) :
+              (ConversationLock) cls.getAnnotation(ConversationLock.class);
+
+        // All overloaded methods of that name must agree
+        if (lock == null || lock.value() != ConversationLockType.READ)
+        {
+          return ConversationLockType.WRITE;
+        }
+        result = ConversationLockType.READ;
+      }
+    }
+    return result;
+  }
+
   /**
    * Unmarshal the request into a list of Calls.
    *
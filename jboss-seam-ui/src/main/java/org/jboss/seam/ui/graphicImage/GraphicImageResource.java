@@ -10,10 +10,12 @@ import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.jboss.seam.annotations.ConversationLockType;
 import org.jboss.seam.annotations.Install;
 import org.jboss.seam.annotations.Name;
 import org.jboss.seam.annotations.Scope;
 import org.jboss.seam.annotations.intercept.BypassInterceptors;
+import org.jboss.seam.core.ConversationPropagation;
 import org.jboss.seam.servlet.ContextualHttpServletRequest;
 import org.jboss.seam.ui.graphicImage.GraphicImageStore.ImageWrapper;
 import org.jboss.seam.web.AbstractResource;
@@ -50,6 +52,15 @@ public class GraphicImageResource extends AbstractResource
          {
             doWork(request, response);
          }
+         
+         @Override
+         protected void restoreConversationId()
+         {
+            super.restoreConversationId();
+            // images are kept in the session, so there is no need to
+            // wait for other requests to the same conversation
+            ConversationPropagation.instance().setConversationLockType(ConversationLockType.READ);
+         }
       }.run();
       
    }
@@ -50,6 +50,8 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javassist.util.proxy.MethodFilter;
 import javassist.util.proxy.MethodHandler;
@@ -158,6 +160,7 @@ public class Component extends Model
    private Map<String, Method> removeMethods = new HashMap<String, Method>();
    private Set<Method> lifecycleMethods = new HashSet<Method>();
    private Set<Method> conversationManagementMethods = new HashSet<Method>();
+   private final ConcurrentMap<Method, MethodMetadata> methodMetadata = new ConcurrentHashMap<Method, MethodMetadata>();
    
    private List<BijectedAttribute<In>> inAttributes = new ArrayList<BijectedAttribute<In>>();
    private List<BijectedAttribute<Out>> outAttributes = new ArrayList<BijectedAttribute<Out>>();
@@ -165,9 +168,14 @@ public class Component extends Model
    private List<BijectedAttribute> dataModelGetters = new ArrayList<BijectedAttribute>();
    private List<BijectedAttribute> pcAttributes = new ArrayList<BijectedAttribute>();
    private Map<String, BijectedAttribute> dataModelSelectionSetters = new HashMap<String, BijectedAttribute>();
+   private volatile Injection[] injections;
+   private volatile Outjection[] outjections;
    
    private List<Interceptor> interceptors = new ArrayList<Interceptor>();
    private List<Interceptor> clientSideInterceptors = new ArrayList<Interceptor>();
+   private volatile List<Interceptor> allInterceptors;
+   private final ConcurrentMap<InterceptorType, ConcurrentMap<Method, int[]>> interceptorChains = 
+         new ConcurrentHashMap<InterceptorType, ConcurrentMap<Method, int[]>>();
 
    private Map<Method, InitialValue> initializerSetters = new HashMap<Method, InitialValue>();
    private Map<Field, InitialValue> initializerFields = new HashMap<Field, InitialValue>();
@@ -814,6 +822,8 @@ public class Component extends Model
             selectionSetters.put(method, ann);
          }
       }
+      
+      methodMetadata.put( method, createMethodMetadata(method) );
 
       if ( !method.isAccessible() )
       {
@@ -960,6 +970,7 @@ public class Component extends Model
 
       newSort(interceptors);
       newSort(clientSideInterceptors);
+      resetInterceptorChains();
       
       if ( log.isDebugEnabled() ) log.debug("interceptor stack: " + interceptors);
    }
@@ -996,8 +1007,15 @@ public class Component extends Model
          {
             clientSideInterceptors.add(interceptor);
          }
+         resetInterceptorChains();
       }
    }
+   
+   private void resetInterceptorChains()
+   {
+      allInterceptors = null;
+      interceptorChains.clear();
+   }
 
    private List<Interceptor> newSort(List<Interceptor> list)
    {
@@ -1233,13 +1251,76 @@ public class Component extends Model
          case SERVER: return interceptors;
          case CLIENT: return clientSideInterceptors;
          case ANY:
-            List<Interceptor> all = new ArrayList<Interceptor>();
-            all.addAll(clientSideInterceptors);
-            all.addAll(interceptors);
+            List<Interceptor> all = allInterceptors;
+            if (all==null)
+            {
+               all = new ArrayList<Interceptor>();
+               all.addAll(clientSideInterceptors);
+               all.addAll(interceptors);
+               allInterceptors = all;
+            }
             return all;
          default: throw new IllegalArgumentException("no interceptor type specified");
       }
    }
+   
+   /**
+    * Get the positions, in getInterceptors(type), of the interceptors 
+    * to call when the given method is invoked. The chain of a method 
+    * is computed once, and leaves out the interceptors which have
+    * nothing to do for the method, or every interceptor if the method
+    * is annotated @BypassInterceptors. 
+    * 
+    * @param method the method, or null for every interceptor
+    */
+   public int[] getInterceptorChain(InterceptorType type, Method method)
+   {
+      List<Interceptor> interceptors = getInterceptors(type);
+      if (method==null)
+      {
+         int[] chain = new int[interceptors.size()];
+         for (int i=0; i<chain.length; i++)
+         {
+            chain[i] = i;
+         }
+         return chain;
+      }
+      
+      ConcurrentMap<Method, int[]> chains = interceptorChains.get(type);
+      if (chains==null)
+      {
+         chains = new ConcurrentHashMap<Method, int[]>();
+         ConcurrentMap<Method, int[]> existing = interceptorChains.putIfAbsent(type, chains);
+         if (existing!=null) chains = existing;
+      }
+      
+      int[] chain = chains.get(method);
+      if (chain==null)
+      {
+         chain = createInterceptorChain(interceptors, method);
+         chains.putIfAbsent(method, chain);
+      }
+      return chain;
+   }
+   
+   private int[] createInterceptorChain(List<Interceptor> interceptors, Method method)
+   {
+      if ( getMethodMetadata(method).isAnnotationPresent(BypassInterceptors.class) )
+      {
+         return new int[0];
+      }
+      
+      int[] positions = new int[interceptors.size()];
+      int length = 0;
+      for (int i=0; i<positions.length; i++)
+      {
+         if ( interceptors.get(i).isInterceptorEnabled(method) )
+         {
+            positions[length++] = i;
+         }
+      }
+      return length==positions.length ? positions : Arrays.copyOf(positions, length);
+   }
 
    public List<Object> createUserInterceptors(InterceptorType type)
    {
@@ -1738,82 +1819,68 @@ public class Component extends Model
 
    private void injectAttributes(Object bean, boolean enforceRequired)
    {
-      for ( BijectedAttribute<In> att : getInAttributes() )
+      for ( Injection injection: getInjections() )
       {
-         att.set( bean, getValueToInject( att.getAnnotation(), att.getName(), bean, enforceRequired ) );
+         injection.inject(bean, enforceRequired);
       }
    }
-
-   private void disinjectAttributes(Object bean)
+   
+   /**
+    * The compiled injection plan for the @In attributes, built
+    * on first use, since EL and the namespaces of imported
+    * components are not available while the component is 
+    * being scanned.
+    */
+   private Injection[] getInjections()
    {
-      for ( BijectedAttribute att: getInAttributes() )
+      Injection[] result = injections;
+      if (result==null)
       {
-         if ( !att.getType().isPrimitive() )
+         List<BijectedAttribute<In>> attributes = getInAttributes();
+         result = new Injection[ attributes.size() ];
+         for (int i=0; i<result.length; i++)
          {
-            att.set(bean, null);
+            result[i] = new Injection( attributes.get(i) );
          }
+         injections = result;
       }
+      return result;
    }
 
-   private void outjectAttributes(Object bean, boolean enforceRequired)
+   private void disinjectAttributes(Object bean)
    {
-      for ( BijectedAttribute<Out> att: getOutAttributes() )
+      for ( Injection injection: getInjections() )
       {
-         outjectAttribute( att.getAnnotation(), att.getName(), bean, att.get(bean), enforceRequired );
+         injection.disinject(bean);
       }
    }
 
-   private void outjectAttribute(Out out, String name, Object bean, Object value, boolean enforceRequired)
+   private void outjectAttributes(Object bean, boolean enforceRequired)
    {
-      
-      if (value==null && enforceRequired && out.required())
+      for ( Outjection outjection: getOutjections() )
       {
-         throw new RequiredException(
-               "@Out attribute requires non-null value: " +
-               getAttributeMessage(name)
-            );
+         outjection.outject(bean, enforceRequired);
       }
-      else
+   }
+   
+   /**
+    * The compiled outjection plan for the @Out attributes, built
+    * on first use, once every component is installed
+    */
+   private Outjection[] getOutjections()
+   {
+      Outjection[] result = outjections;
+      if (result==null)
       {
-         Component component = null;
-         if ( out.scope()==UNSPECIFIED )
-         {
-            component = Component.forName(name);
-            if (value!=null && component!=null)
-            {
-               if ( !component.isInstance(value) )
-               {
-                  throw new IllegalArgumentException(
-                        "attempted to bind an @Out attribute of the wrong type to: " +
-                        getAttributeMessage(name)
-                     );
-               }
-            }
-         }
-         else if ( out.scope()==STATELESS )
-         {
-            throw new IllegalArgumentException(
-                  "cannot specify explicit scope=STATELESS on @Out: " +
-                  getAttributeMessage(name)
-               );
-         }
-      
-         ScopeType outScope = component==null ?
-               getOutScope( out.scope(), this ) :
-               component.getScope();
-      
-         if ( enforceRequired || outScope.isContextActive() )
+         List<BijectedAttribute<Out>> attributes = getOutAttributes();
+         result = new Outjection[ attributes.size() ];
+         for (int i=0; i<result.length; i++)
          {
-            if (value==null)
-            {
-               outScope.getContext().remove(name);
-            }
-            else
-            {
-               outScope.getContext().set(name, value);
-            }
+            result[i] = new Outjection( attributes.get(i) );
          }
+         outjections = result;
       }
+      return result;
    }
 
    public boolean isInstance(Object bean)
@@ -1898,7 +1965,9 @@ public class Component extends Model
    private Object getFieldValue(Object bean, Field field, String name)
    {
       try {
-         return Reflections.get(field, bean);
+         //bijected fields are made accessible when the component is 
+         //scanned, so don't pay for toggling the accessible flag
+         return field.isAccessible() ? field.get(bean) : Reflections.get(field, bean);
       }
       catch (Exception e)
       {
@@ -2017,7 +2086,11 @@ public class Component extends Model
    private static Object getInstance(String name, boolean create, boolean allowAutoCreation, Object result, ScopeType scope) {
       Component component = Component.forName(name);
 
-      create = create || (Init.instance().isAutocreateVariable(name) && allowAutoCreation);
+      //only look for an autocreate variable if we have to
+      if ( result==null && !create && allowAutoCreation )
+      {
+         create = Init.instance().isAutocreateVariable(name);
+      }
 
       if (result==null && create)
       {
@@ -2344,101 +2417,6 @@ public class Component extends Model
       }
    }
 
-   private Object getValueToInject(In in, String name, Object bean, boolean enforceRequired)
-   {
-      Object result;
-      if ( name.startsWith("#") )
-      {
-         if ( log.isDebugEnabled() )
-         {
-            log.debug("trying to inject with EL expression: " + name);
-         }
-         result = Expressions.instance().createValueExpression(name).getValue();
-      }
-      else if ( in.scope()==UNSPECIFIED )
-      {
-         if ( log.isDebugEnabled() )
-         {
-            log.debug("trying to inject with hierarchical context search: " + name);
-         }
-         boolean allowAutocreation = !org.jboss.seam.contexts.Lifecycle.isDestroying();
-         boolean create = in.create() && allowAutocreation;
-         result = getInstanceInAllNamespaces(name, create, allowAutocreation);
-      }
-      else
-      {
-         if ( in.create() )
-         {
-            throw new IllegalArgumentException(
-                  "cannot combine create=true with explicit scope on @In: " +
-                  getAttributeMessage(name)
-               );
-         }
-         if ( in.scope()==STATELESS )
-         {
-            throw new IllegalArgumentException(
-                  "cannot specify explicit scope=STATELESS on @In: " +
-                  getAttributeMessage(name)
-               );
-         }
-         if ( log.isDebugEnabled() )
-         {
-            log.debug("trying to inject from specified context: " + name + ", scope: " + scope);
-         }
-         if ( enforceRequired || in.scope().isContextActive() )
-         {
-            result = in.scope().getContext().get(name);
-         }
-         else
-         {
-            return null;
-         }
-      }
-
-      if ( result==null && enforceRequired && in.required() )
-      {
-         throw new RequiredException(
-               "@In attribute requires non-null value: " +
-               getAttributeMessage(name)
-            );
-      }
-      else
-      {
-         return result;
-      }
-   }
-
-   private Object getInstanceInAllNamespaces(String name, boolean create, boolean allowAutocreation)
-   {
-      Object result;
-      result = getInstance(name, create, allowAutocreation);
-      if (result==null)
-      {
-         for ( Namespace namespace: getImports() )
-         {
-            result = namespace.getComponentInstance(name, create, allowAutocreation);
-            if (result!=null) break; 
-         }
-      }
-      if (result==null)
-      {
-         for ( Namespace namespace: Init.instance().getGlobalImports() )
-         {
-            result = namespace.getComponentInstance(name, create, allowAutocreation);
-            if (result!=null) break; 
-         }
-      }
-      if (result==null)
-      {
-         Namespace namespace = getNamespace();
-         if (namespace!=null)
-         {
-            result = namespace.getComponentInstance(name, create, allowAutocreation);
-         }
-      }
-      return result;
-   }
-
    private String getAttributeMessage(String attributeName)
    {
       return getName() + '.' + attributeName;
@@ -2541,6 +2519,29 @@ public class Component extends Model
       return method!=null && 
             conversationManagementMethods.contains(method);
    }
+   
+   /**
+    * Get the annotation metadata of a method of the component. The
+    * metadata of the methods of the bean class is read at deployment,
+    * and that of any other method, such as a method of a business
+    * interface, the first time it is needed.
+    */
+   public MethodMetadata getMethodMetadata(Method method)
+   {
+      MethodMetadata metadata = methodMetadata.get(method);
+      if (metadata==null)
+      {
+         metadata = createMethodMetadata(method);
+         MethodMetadata existing = methodMetadata.putIfAbsent(method, metadata);
+         if (existing!=null) metadata = existing;
+      }
+      return metadata;
+   }
+   
+   private MethodMetadata createMethodMetadata(Method method)
+   {
+      return new MethodMetadata( method, getBeanClass(), isConversationManagementMethod(method) );
+   }
 
    static interface InitialValue
    {
@@ -2876,6 +2877,268 @@ public class Component extends Model
 
    }
    
+   /**
+    * Everything about the injection of an @In attribute that
+    * can be worked out once, instead of on every call: the
+    * parsed EL expression, the validity of the annotation, 
+    * and the qualified names of the variable in the imported
+    * namespaces of this component.
+    */
+   final class Injection
+   {
+      private final BijectedAttribute<In> attribute;
+      private final In in;
+      private final String name;
+      private final ValueExpression expression;
+      private final String[] importedNames;
+      private final String namespacedName;
+      private final String misconfiguration;
+      private final boolean disinjectable;
+      
+      Injection(BijectedAttribute<In> attribute)
+      {
+         this.attribute = attribute;
+         this.in = attribute.getAnnotation();
+         this.name = attribute.getName();
+         this.disinjectable = !attribute.getType().isPrimitive();
+         
+         if ( name.startsWith("#") )
+         {
+            expression = Expressions.instance().createValueExpression(name);
+            importedNames = null;
+            namespacedName = null;
+            misconfiguration = null;
+         }
+         else if ( in.scope()==UNSPECIFIED )
+         {
+            expression = null;
+            Collection<Namespace> namespaces = getImports();
+            importedNames = new String[ namespaces.size() ];
+            int i = 0;
+            for (Namespace namespace: namespaces)
+            {
+               importedNames[i++] = namespace.qualifyName(name);
+            }
+            Namespace namespace = getNamespace();
+            namespacedName = namespace==null ? null : namespace.qualifyName(name);
+            misconfiguration = null;
+         }
+         else
+         {
+            expression = null;
+            importedNames = null;
+            namespacedName = null;
+            if ( in.create() )
+            {
+               misconfiguration = "cannot combine create=true with explicit scope on @In: ";
+            }
+            else if ( in.scope()==STATELESS )
+            {
+               misconfiguration = "cannot specify explicit scope=STATELESS on @In: ";
+            }
+            else
+            {
+               misconfiguration = null;
+            }
+         }
+      }
+      
+      void inject(Object bean, boolean enforceRequired)
+      {
+         attribute.set( bean, getValueToInject(enforceRequired) );
+      }
+      
+      void disinject(Object bean)
+      {
+         if (disinjectable)
+         {
+            attribute.set(bean, null);
+         }
+      }
+      
+      private Object getValueToInject(boolean enforceRequired)
+      {
+         Object result;
+         if (expression!=null)
+         {
+            if ( log.isDebugEnabled() )
+            {
+               log.debug("trying to inject with EL expression: " + name);
+            }
+            result = expression.getValue();
+         }
+         else if ( in.scope()==UNSPECIFIED )
+         {
+            if ( log.isDebugEnabled() )
+            {
+               log.debug("trying to inject with hierarchical context search: " + name);
+            }
+            boolean allowAutocreation = !org.jboss.seam.contexts.Lifecycle.isDestroying();
+            boolean create = in.create() && allowAutocreation;
+            result = getInstanceInAllNamespaces(create, allowAutocreation);
+         }
+         else
+         {
+            if (misconfiguration!=null)
+            {
+               throw new IllegalArgumentException( misconfiguration + getAttributeMessage(name) );
+            }
+            if ( log.isDebugEnabled() )
+            {
+               log.debug("trying to inject from specified context: " + name + ", scope: " + scope);
+            }
+            if ( enforceRequired || in.scope().isContextActive() )
+            {
+               result = in.scope().getContext().get(name);
+            }
+            else
+            {
+               return null;
+            }
+         }
+         
+         if ( result==null && enforceRequired && in.required() )
+         {
+            throw new RequiredException(
+                  "@In attribute requires non-null value: " +
+                  getAttributeMessage(name)
+               );
+         }
+         else
+         {
+            return result;
+         }
+      }
+      
+      private Object getInstanceInAllNamespaces(boolean create, boolean allowAutocreation)
+      {
+         Object result = getInstance(name, create, allowAutocreation);
+         if (result==null)
+         {
+            for (String importedName: importedNames)
+            {
+               result = getInstance(importedName, create, allowAutocreation);
+               if (result!=null) break; 
+            }
+         }
+         if (result==null)
+         {
+            for ( Namespace namespace: Init.instance().getGlobalImports() )
+            {
+               result = namespace.getComponentInstance(name, create, allowAutocreation);
+               if (result!=null) break; 
+            }
+         }
+         if (result==null && namespacedName!=null)
+         {
+            result = getInstance(namespacedName, create, allowAutocreation);
+         }
+         return result;
+      }
+      
+      @Override
+      public String toString()
+      {
+         return "Injection(" + name + ')';
+      }
+   }
+   
+   /**
+    * Everything about the outjection of an @Out attribute that
+    * can be worked out once: the component bound to the context
+    * variable, and so the scope the value is outjected to. A
+    * hot deployable component may be replaced by a new version,
+    * so its component and scope are looked up on every call.
+    */
+   final class Outjection
+   {
+      private final BijectedAttribute<Out> attribute;
+      private final Out out;
+      private final String name;
+      private final boolean replaceable;
+      private final Component component;
+      private final ScopeType outScope;
+      
+      Outjection(BijectedAttribute<Out> attribute)
+      {
+         this.attribute = attribute;
+         this.out = attribute.getAnnotation();
+         this.name = attribute.getName();
+         
+         replaceable = out.scope()==UNSPECIFIED && 
+               Init.instance().getHotDeployableComponents().contains(name);
+         if (replaceable)
+         {
+            component = null;
+            outScope = null;
+         }
+         else
+         {
+            component = getComponent();
+            outScope = getScope(component);
+         }
+      }
+      
+      private Component getComponent()
+      {
+         return out.scope()==UNSPECIFIED ? Component.forName(name) : null;
+      }
+      
+      private ScopeType getScope(Component component)
+      {
+         return component==null ? getOutScope( out.scope(), Component.this ) : component.getScope();
+      }
+      
+      void outject(Object bean, boolean enforceRequired)
+      {
+         Object value = attribute.get(bean);
+         if (value==null && enforceRequired && out.required())
+         {
+            throw new RequiredException(
+                  "@Out attribute requires non-null value: " +
+                  getAttributeMessage(name)
+               );
+         }
+         
+         if ( out.scope()==STATELESS )
+         {
+            throw new IllegalArgumentException(
+                  "cannot specify explicit scope=STATELESS on @Out: " +
+                  getAttributeMessage(name)
+               );
+         }
+         
+         Component component = replaceable ? getComponent() : this.component;
+         ScopeType outScope = replaceable ? getScope(component) : this.outScope;
+         
+         if ( value!=null && component!=null && !component.isInstance(value) )
+         {
+            throw new IllegalArgumentException(
+                  "attempted to bind an @Out attribute of the wrong type to: " +
+                  getAttributeMessage(name)
+               );
+         }
+         
+         if ( enforceRequired || outScope.isContextActive() )
+         {
+            if (value==null)
+            {
+               outScope.getContext().remove(name);
+            }
+            else
+            {
+               outScope.getContext().set(name, value);
+            }
+         }
+      }
+      
+      @Override
+      public String toString()
+      {
+         return "Outjection(" + name + ')';
+      }
+   }
+   
    public interface BijectedAttribute<T extends Annotation>
    {
       public String getName();
@@ -1,5 +1,6 @@
 package org.jboss.seam;
 
+import java.beans.Introspector;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -119,6 +120,29 @@ public class Entity extends Model
       }
    }
 
+   /**
+    * Get the name of the entity identifier attribute, for
+    * use in queries.
+    * 
+    * @return null if the entity has no @Id attribute
+    */
+   public String getIdentifierName()
+   {
+      if (identifierGetter != null)
+      {
+         String methodName = identifierGetter.getName();
+         return Introspector.decapitalize( methodName.substring( methodName.startsWith("is") ? 2 : 3 ) );
+      }
+      else if (identifierField != null)
+      {
+         return identifierField.getName();
+      }
+      else
+      {
+         return null;
+      }
+   }
+
    public Object getVersion(Object entity)
    {
       if (versionGetter != null)
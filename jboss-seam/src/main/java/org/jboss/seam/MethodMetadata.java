@@ -0,0 +1,127 @@
+package org.jboss.seam;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.seam.annotations.ReadOnly;
+import org.jboss.seam.annotations.TransactionPropagationType;
+import org.jboss.seam.annotations.Transactional;
+
+/**
+ * The annotations of a method of a component, read once when
+ * the component is deployed, so that the interceptors need not
+ * reflect upon the method each time it is invoked.
+ *
+ * Instances are immutable, and shared by every invocation of
+ * the method.
+ *
+ * @see Component#getMethodMetadata(Method)
+ */
+public final class MethodMetadata
+{
+   private final Method method;
+   private final Map<Class<? extends Annotation>, Annotation> annotations;
+   private final boolean conversationManagement;
+   private final boolean readOnly;
+   private final boolean returnsVoid;
+   private final TransactionPropagationType transactionPropagation;
+
+   MethodMetadata(Method method, Class<?> beanClass, boolean conversationManagement)
+   {
+      this.method = method;
+      this.conversationManagement = conversationManagement;
+
+      Annotation[] methodAnnotations = method.getAnnotations();
+      if (methodAnnotations.length==0)
+      {
+         annotations = Collections.emptyMap();
+      }
+      else
+      {
+         Map<Class<? extends Annotation>, Annotation> map = new HashMap<Class<? extends Annotation>, Annotation>();
+         for (Annotation annotation: methodAnnotations)
+         {
+            map.put( annotation.annotationType(), annotation );
+         }
+         annotations = map;
+      }
+
+      readOnly = isAnnotationPresent(ReadOnly.class) || beanClass.isAnnotationPresent(ReadOnly.class);
+      returnsVoid = method.getReturnType().equals(void.class);
+
+      Transactional transactional = getAnnotation(Transactional.class);
+      if (transactional==null)
+      {
+         transactional = beanClass.getAnnotation(Transactional.class);
+      }
+      transactionPropagation = transactional==null ? null : transactional.value();
+   }
+
+   public Method getMethod()
+   {
+      return method;
+   }
+
+   public String getName()
+   {
+      return method.getName();
+   }
+
+   /**
+    * Get an annotation of the method
+    *
+    * @return the annotation, or null if the method is not annotated
+    */
+   @SuppressWarnings("unchecked")
+   public <T extends Annotation> T getAnnotation(Class<T> annotationType)
+   {
+      return (T) annotations.get(annotationType);
+   }
+
+   public boolean isAnnotationPresent(Class<? extends Annotation> annotationType)
+   {
+      return annotations.containsKey(annotationType);
+   }
+
+   /**
+    * Is this one of the @Begin, @End, @StartTask, @BeginTask or
+    * @EndTask methods of the component?
+    */
+   public boolean isConversationManagement()
+   {
+      return conversationManagement;
+   }
+
+   /**
+    * Is the method, or the component, annotated @ReadOnly?
+    */
+   public boolean isReadOnly()
+   {
+      return readOnly;
+   }
+
+   public boolean isVoid()
+   {
+      return returnsVoid;
+   }
+
+   /**
+    * The transaction propagation of the method's @Transactional
+    * annotation, or else that of the component's
+    *
+    * @return null if neither is annotated @Transactional
+    */
+   public TransactionPropagationType getTransactionPropagation()
+   {
+      return transactionPropagation;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "MethodMetadata(" + method + ")";
+   }
+}
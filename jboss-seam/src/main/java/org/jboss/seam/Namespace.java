@@ -60,7 +60,7 @@ public class Namespace
       return Component.getInstance( qualifyName(key), create, allowAutocreation );
    }
 
-   private String qualifyName(String key)
+   String qualifyName(String key)
    {
       return name==null ? key : name + key;
    }
@@ -0,0 +1,33 @@
+package org.jboss.seam.annotations;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Specifies the lock taken on the long-running 
+ * conversation by a request which calls the annotated 
+ * method (or any method of the annotated component),
+ * where the method is known before the conversation is 
+ * restored, as for Seam Remoting calls. Requests are 
+ * serialized by default. Requests which only call READ 
+ * methods may access the conversation concurrently,
+ * unless the conversation holds a Seam-managed 
+ * persistence context.
+ * 
+ * For JSF requests, use the conversation-lock attribute
+ * of the page in pages.xml.
+ * 
+ * @see ConversationLockType
+ */
+@Target({TYPE, METHOD})
+@Retention(RUNTIME)
+@Documented
+public @interface ConversationLock 
+{
+   ConversationLockType value();
+}
@@ -0,0 +1,38 @@
+package org.jboss.seam.annotations;
+
+/**
+ * The kind of lock a request takes on the long-running
+ * conversation it restores.
+ * 
+ * @see ConversationLock
+ */
+public enum ConversationLockType
+{
+   
+   /**
+    * The request may share the conversation with other 
+    * READ requests. It must not modify conversation 
+    * state.
+    * <p>
+    * Shared requests see the same instances of the
+    * conversation-scoped components, which must therefore be 
+    * safe to read from several threads. Variables set by a 
+    * READ request are written to the session when it ends, 
+    * and may overwrite those of another request. Entity 
+    * beans held in the conversation are activated and 
+    * passivated by one request at a time. 
+    * <p>
+    * A Seam-managed persistence context is never shared:
+    * once the conversation, or a conversation it is nested
+    * in, holds one, READ requests lock the conversation
+    * exclusively, as WRITE requests do.
+    */
+   READ,
+   
+   /**
+    * The request has exclusive access to the conversation.
+    * This is the default.
+    */
+   WRITE;
+   
+}
@@ -28,7 +28,7 @@ public class AsynchronousInterceptor extends AbstractInterceptor
    @AroundInvoke
    public Object aroundInvoke(InvocationContext invocation) throws Exception
    {
-      boolean scheduleAsync = invocation.getMethod().isAnnotationPresent(Asynchronous.class) && 
+      boolean scheduleAsync = getComponent().getMethodMetadata( invocation.getMethod() ).isAnnotationPresent(Asynchronous.class) && 
             (!isExecutingAsynchronousCall() || Contexts.getEventContext().isSet(REENTRANT));
       if (scheduleAsync)
       {
@@ -6,8 +6,7 @@
  */
 package org.jboss.seam.bpm;
 
-import java.lang.reflect.Method;
-
+import org.jboss.seam.MethodMetadata;
 import org.jboss.seam.annotations.bpm.BeginTask;
 import org.jboss.seam.annotations.bpm.CreateProcess;
 import org.jboss.seam.annotations.bpm.EndTask;
@@ -54,7 +53,7 @@ public class BusinessProcessInterceptor extends AbstractInterceptor
 
    private boolean beforeInvocation(InvocationContext invocationContext) 
    {
-      Method method = invocationContext.getMethod();
+      MethodMetadata method = getComponent().getMethodMetadata( invocationContext.getMethod() );
       if ( method.isAnnotationPresent(StartTask.class) ) 
       {
          log.trace( "encountered @StartTask" );
@@ -96,8 +95,8 @@ public class BusinessProcessInterceptor extends AbstractInterceptor
 
    private Object afterInvocation(InvocationContext invocation, Object result)
    {
-      Method method = invocation.getMethod();
-      if ( result!=null || method.getReturnType().equals(void.class) ) //interpreted as "redisplay"
+      MethodMetadata method = getComponent().getMethodMetadata( invocation.getMethod() );
+      if ( result!=null || method.isVoid() ) //interpreted as "redisplay"
       {
          if ( method.isAnnotationPresent(CreateProcess.class) )
          {
@@ -37,12 +37,12 @@ abstract class AbstractEntityBeanCollection implements Wrapper
       if ( PassivatedEntity.isTransactionRolledBackOrMarkedRollback() )
       {
          clearPassivatedEntities();
+         return true;
       }
       else
       {
-         passivateAll();
+         return passivateAll();
       }
-      return true;
    }
 
    private boolean isAnyVersioned()
@@ -54,8 +54,20 @@ abstract class AbstractEntityBeanCollection implements Wrapper
       return false;
    }
    
+   protected static boolean isSame(Object previous, Object current)
+   {
+      return previous==null ? current==null : previous.equals(current);
+   }
+   
    protected abstract void activateAll();
-   protected abstract void passivateAll();
+   /**
+    * Passivate the entities of the collection.
+    * 
+    * @return false if the collection holds nothing but the
+    *         same versions of the same entities as when it
+    *         was activated, and so need not be replicated
+    */
+   protected abstract boolean passivateAll();
    protected abstract Iterable<PassivatedEntity> getPassivatedEntities();
    protected abstract void clearPassivatedEntities();
    protected abstract boolean isPassivatedEntitiesInitialized();
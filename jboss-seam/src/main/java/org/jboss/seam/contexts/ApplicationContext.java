@@ -6,9 +6,14 @@
  */
 package org.jboss.seam.contexts;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.jboss.seam.ScopeType;
+import org.jboss.seam.init.Initialization;
 
 /**
  * Application context - state associated with a 
@@ -21,9 +26,140 @@ import org.jboss.seam.ScopeType;
 public class ApplicationContext extends BasicContext 
 {
    
+   private static final String COMPONENTS = ScopeType.APPLICATION.getPrefix() + "$components";
+   
+   private static final Object NONE = new Object();
+   
+   private final Map<String, Object> map;
+   private ConcurrentMap<String, Object> components;
+   
    public ApplicationContext(Map<String, Object> map)
    {
       super(ScopeType.APPLICATION, map);
+      this.map = map;
+   }
+   
+   /**
+    * Component definitions are looked up on every request, and
+    * hardly ever change, so they are served from a concurrent 
+    * index shared by all requests, instead of from the 
+    * underlying servlet context. Misses are not remembered, 
+    * since the names looked up may come from the client, so
+    * the index only ever holds the names of components that 
+    * were installed.
+    */
+   @Override
+   public Object get(String name)
+   {
+      if ( isComponentName(name) )
+      {
+         ConcurrentMap<String, Object> components = getComponents();
+         Object result = components.get(name);
+         if (result==null)
+         {
+            result = super.get(name);
+            if (result==null)
+            {
+               return null;
+            }
+            //don't overwrite a concurrent set() or remove()
+            Object previous = components.putIfAbsent(name, result);
+            return previous==null ? result : unwrap(previous);
+         }
+         else
+         {
+            return unwrap(result);
+         }
+      }
+      else
+      {
+         return super.get(name);
+      }
+   }
+   
+   @Override
+   public void set(String name, Object value)
+   {
+      super.set(name, value);
+      if ( isComponentName(name) )
+      {
+         getComponents().put( name, value==null ? NONE : value );
+      }
+   }
+   
+   @Override
+   public void remove(String name)
+   {
+      super.remove(name);
+      if ( isComponentName(name) )
+      {
+         getComponents().put(name, NONE);
+      }
+   }
+   
+   /**
+    * The index of component definitions is not a context variable
+    */
+   @Override
+   public String[] getNames()
+   {
+      String[] names = super.getNames();
+      List<String> result = new ArrayList<String>(names.length);
+      for (String name: names)
+      {
+         if ( !COMPONENTS.equals(name) )
+         {
+            result.add(name);
+         }
+      }
+      return result.toArray( new String[result.size()] );
+   }
+   
+   private static Object unwrap(Object result)
+   {
+      return result==NONE ? null : result;
+   }
+   
+   private static boolean isComponentName(String name)
+   {
+      return name!=null && name.endsWith(Initialization.COMPONENT_SUFFIX);
+   }
+   
+   /**
+    * Create the index of component definitions of an application
+    * as it starts, before any request can look up a component
+    */
+   static void createComponentIndex(Map<String, Object> map)
+   {
+      map.put( COMPONENTS, new ConcurrentHashMap<String, Object>() );
+   }
+   
+   private ConcurrentMap<String, Object> getComponents()
+   {
+      if (components==null)
+      {
+         components = (ConcurrentMap<String, Object>) map.get(COMPONENTS);
+         if (components==null)
+         {
+            //an application map that was never begun as an application
+            components = putIfAbsent( COMPONENTS, new ConcurrentHashMap<String, Object>() );
+         }
+      }
+      return components;
+   }
+   
+   private ConcurrentMap<String, Object> putIfAbsent(String name, ConcurrentMap<String, Object> value)
+   {
+      if (map instanceof ConcurrentMap)
+      {
+         Object previous = ( (ConcurrentMap<String, Object>) map ).putIfAbsent(name, value);
+         return previous==null ? value : (ConcurrentMap<String, Object>) previous;
+      }
+      else
+      {
+         map.put(name, value);
+         return value;
+      }
    }
   
 }
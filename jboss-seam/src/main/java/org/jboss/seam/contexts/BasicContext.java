@@ -69,20 +69,20 @@ public class BasicContext implements Context
 
    public void remove(String name)
    {
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.preRemoveVariable." + name);
+      Contexts.beforeVariableWrite(Contexts.PRE_REMOVE_VARIABLE, name);
       map.remove(name);
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.postRemoveVariable." + name);
+      Contexts.afterVariableWrite(Contexts.POST_REMOVE_VARIABLE, name);
    }
 
    public void set(String name, Object value)
    {
       // We can't raise a preSetVariable event for Events itself because it doesn't exist yet...
-      if ( !Seam.getComponentName(Events.class).equals(name) && Events.exists() ) 
+      if ( !Seam.getComponentName(Events.class).equals(name) ) 
       {
-         Events.instance().raiseEvent("org.jboss.seam.preSetVariable." + name);
+         Contexts.beforeVariableWrite(Contexts.PRE_SET_VARIABLE, name);
       }
       map.put(name, value);
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.postSetVariable." + name);
+      Contexts.afterVariableWrite(Contexts.POST_SET_VARIABLE, name);
    }
 
    public void flush() {}
@@ -15,7 +15,6 @@ import org.jboss.seam.Component;
 import org.jboss.seam.ScopeType;
 import org.jboss.seam.bpm.ProcessInstance;
 import org.jboss.seam.bpm.TaskInstance;
-import org.jboss.seam.core.Events;
 import org.jboss.seam.core.Init;
 import org.jboss.seam.log.LogProvider;
 import org.jboss.seam.log.Logging;
@@ -77,7 +76,7 @@ public class BusinessProcessContext implements Context
 
    public void set(String name, Object value) 
    {
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.preSetVariable." + name);
+      Contexts.beforeVariableWrite(Contexts.PRE_SET_VARIABLE, name);
       if (value==null)
       {
          //yes, we need this
@@ -88,7 +87,7 @@ public class BusinessProcessContext implements Context
          removals.remove(name);
          additions.put(name, value);
       }
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.postSetVariable." + name);
+      Contexts.afterVariableWrite(Contexts.POST_SET_VARIABLE, name);
    }
 
    public boolean isSet(String name) 
@@ -98,10 +97,10 @@ public class BusinessProcessContext implements Context
    
    public void remove(String name) 
    {
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.preRemoveVariable." + name);
+      Contexts.beforeVariableWrite(Contexts.PRE_REMOVE_VARIABLE, name);
       additions.remove(name);
       removals.add(name);
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.postRemoveVariable." + name);
+      Contexts.afterVariableWrite(Contexts.POST_REMOVE_VARIABLE, name);
    }
 
    public String[] getNames() 
@@ -41,6 +41,13 @@ public class Contexts
    static final ThreadLocal<Context> sessionContext = new ThreadLocal<Context>();
    static final ThreadLocal<Context> conversationContext = new ThreadLocal<Context>();
    static final ThreadLocal<Context> businessProcessContext = new ThreadLocal<Context>();
+   
+   static final String PRE_SET_VARIABLE = "org.jboss.seam.preSetVariable.";
+   static final String POST_SET_VARIABLE = "org.jboss.seam.postSetVariable.";
+   static final String PRE_REMOVE_VARIABLE = "org.jboss.seam.preRemoveVariable.";
+   static final String POST_REMOVE_VARIABLE = "org.jboss.seam.postRemoveVariable.";
+   
+   private static final ThreadLocal<VariableStatistics> variableStatistics = new ThreadLocal<VariableStatistics>();
 
    public static Context getEventContext() 
    {
@@ -193,78 +200,147 @@ public class Contexts
     */
    public static Object lookupInStatefulContexts(String name)
    {
-      if (isMethodContextActive())
+      Object result = lookup( methodContext.get(), name );
+      if (result!=null) return result;
+      
+      result = lookup( eventContext.get(), name );
+      if (result!=null) return result;
+      
+      //the page context may be created lazily
+      if ( isPageContextActive() )
       {
-         Object result = getMethodContext().get(name);
-         if (result!=null)
-         {
-             if ( log.isTraceEnabled() ) log.trace("found in method context: " + name);
-            return result;
-         }
+         result = lookup( pageContext.get(), name );
+         if (result!=null) return result;
       }
       
-      if (isEventContextActive())
+      result = lookup( conversationContext.get(), name );
+      if (result!=null) return result;
+      
+      result = lookup( sessionContext.get(), name );
+      if (result!=null) return result;
+      
+      result = lookup( businessProcessContext.get(), name );
+      if (result!=null) return result;
+      
+      return lookup( applicationContext.get(), name );
+      
+   }
+   
+   private static Object lookup(Context context, String name)
+   {
+      if (context==null)
       {
-         Object result = getEventContext().get(name);
-         if (result!=null)
-         {
-             if ( log.isTraceEnabled() ) log.trace("found in event context: " + name);
-            return result;
-         }
+         return null;
       }
-      
-      if ( isPageContextActive() )
+      Object result = context.get(name);
+      if ( result!=null && log.isTraceEnabled() )
       {
-         Object result = getPageContext().get(name);
-         if (result!=null)
-         {
-             if ( log.isTraceEnabled() ) log.trace("found in page context: " + name);
-            return result;
-         }
+         log.trace( "found in " + context.getType().toString().toLowerCase() + " context: " + name );
       }
-      
-      if (isConversationContextActive())
+      return result;
+   }
+   
+   /**
+    * Is the event type one of the events raised when a 
+    * context variable is set or removed?
+    */
+   public static boolean isContextVariableEventType(String eventType)
+   {
+      return eventType.startsWith(PRE_SET_VARIABLE) ||
+            eventType.startsWith(POST_SET_VARIABLE) ||
+            eventType.startsWith(PRE_REMOVE_VARIABLE) ||
+            eventType.startsWith(POST_REMOVE_VARIABLE);
+   }
+   
+   /**
+    * Raise the event that comes before a context variable is 
+    * set or removed
+    */
+   static void beforeVariableWrite(String type, String name)
+   {
+      raiseVariableEvent(type, name, true);
+   }
+   
+   /**
+    * Raise the event that comes after a context variable is 
+    * set or removed
+    */
+   static void afterVariableWrite(String type, String name)
+   {
+      raiseVariableEvent(type, name, false);
+   }
+   
+   private static void raiseVariableEvent(String type, String name, boolean write)
+   {
+      Context application = applicationContext.get();
+      Init init = application==null ? null : (Init) application.get(Init.class);
+      boolean debug = init!=null && init.isDebug();
+      if (debug && write)
       {
-         Object result = getConversationContext().get(name);
-         if (result!=null)
-         {
-             if ( log.isTraceEnabled() ) log.trace("found in conversation context: " + name);
-            return result;
-         }
+         getVariableStatistics().writes++;
       }
       
-      if (isSessionContextActive())
+      //don't even build the event type if nothing could observe it
+      if ( init!=null && !init.isContextVariableEventsObserved() )
       {
-         Object result = getSessionContext().get(name);
-         if (result!=null)
-         {
-             if ( log.isTraceEnabled() ) log.trace("found in session context: " + name);
-            return result;
-         }
+         return;
       }
       
-      if (isBusinessProcessContextActive())
+      if ( Events.exists() )
       {
-         Object result = getBusinessProcessContext().get(name);
-         if (result!=null)
+         if (debug)
          {
-             if ( log.isTraceEnabled() ) log.trace("found in business process context: " + name);
-            return result;
+            getVariableStatistics().events++;
          }
+         Events.instance().raiseEvent(type + name);
       }
-      
-      if (isApplicationContextActive())
+   }
+   
+   private static VariableStatistics getVariableStatistics()
+   {
+      VariableStatistics statistics = variableStatistics.get();
+      if (statistics==null)
       {
-         Object result = getApplicationContext().get(name);
-         if (result!=null)
-         {
-             if ( log.isTraceEnabled() ) log.trace("found in application context: " + name);
-            return result;
-         }
+         statistics = new VariableStatistics();
+         variableStatistics.set(statistics);
       }
-      
-      return null;
-      
+      return statistics;
+   }
+   
+   /**
+    * The number of context variables set or removed by the 
+    * current request. Only counted in debug mode.
+    */
+   public static int getVariableWriteCount()
+   {
+      VariableStatistics statistics = variableStatistics.get();
+      return statistics==null ? 0 : statistics.writes;
+   }
+   
+   /**
+    * The number of context variable events raised by the 
+    * current request. Only counted in debug mode.
+    */
+   public static int getVariableEventCount()
+   {
+      VariableStatistics statistics = variableStatistics.get();
+      return statistics==null ? 0 : statistics.events;
+   }
+   
+   static void clearVariableStatistics()
+   {
+      VariableStatistics statistics = variableStatistics.get();
+      if (statistics!=null)
+      {
+         log.debug("context variable writes: " + statistics.writes + ", context variable events raised: " + statistics.events);
+         variableStatistics.remove();
+      }
+   }
+   
+   private static class VariableStatistics
+   {
+      int writes;
+      int events;
    }
    
    /**
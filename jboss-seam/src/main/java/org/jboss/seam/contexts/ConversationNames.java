@@ -0,0 +1,159 @@
+package org.jboss.seam.contexts;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.seam.ScopeType;
+
+/**
+ * An index of the names of the conversation context variables
+ * held in the session, by conversation id. Kept in the session
+ * itself, so that the conversation context does not need to
+ * search every session attribute for the variables of a
+ * conversation.
+ *
+ * The index may name variables which are gone from the session,
+ * since its readers always check the session itself, but it must
+ * never miss a variable which is there.
+ *
+ * @see ServerConversationContext
+ *
+ */
+class ConversationNames implements Serializable
+{
+   private static final long serialVersionUID = -3466473478343725384L;
+
+   private static final String KEY = ScopeType.CONVERSATION.getPrefix() + "$names";
+
+   //concurrent requests of the session share the index
+   private final ConcurrentMap<String, Set<String>> namesByConversationId = new ConcurrentHashMap<String, Set<String>>();
+
+   /**
+    * Get the index for the session, indexing any conversation
+    * context variables that were put in the session before
+    * the index existed. No lock is held while indexing; if 
+    * two requests of the session both build an index, flush() 
+    * merges their names into the one which was stored.
+    */
+   static ConversationNames instance(Map<String, Object> session)
+   {
+      ConversationNames result = (ConversationNames) session.get(KEY);
+      if (result==null)
+      {
+         result = new ConversationNames();
+         String prefix = ScopeType.CONVERSATION.getPrefix() + '#';
+         boolean empty = true;
+         for ( String key: session.keySet() )
+         {
+            empty = false;
+            if ( key.startsWith(prefix) )
+            {
+               int end = key.indexOf( '$', prefix.length() );
+               if (end>0)
+               {
+                  result.add( key.substring( prefix.length(), end ), key.substring(end+1) );
+               }
+            }
+         }
+         //don't create a session just to hold an empty index
+         if (!empty)
+         {
+            ConversationNames existing = (ConversationNames) session.get(KEY);
+            if (existing!=null)
+            {
+               //another request stored its index first
+               return existing;
+            }
+            session.put(KEY, result);
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Put the index back in the session after changing it,
+    * so that the change is replicated. If another request
+    * stored a different index meanwhile, the names of this
+    * index are added to that one.
+    * 
+    * @return the index now held by the session
+    */
+   ConversationNames flush(Map<String, Object> session)
+   {
+      ConversationNames stored = (ConversationNames) session.get(KEY);
+      if (stored!=null && stored!=this)
+      {
+         for ( Map.Entry<String, Set<String>> entry: namesByConversationId.entrySet() )
+         {
+            for ( String name: entry.getValue() )
+            {
+               stored.add( entry.getKey(), name );
+            }
+         }
+         session.put(KEY, stored);
+         return stored;
+      }
+      session.put(KEY, this);
+      return this;
+   }
+
+   Set<String> getNames(String conversationId)
+   {
+      if (conversationId==null)
+      {
+         return Collections.emptySet();
+      }
+      Set<String> names = namesByConversationId.get(conversationId);
+      return names==null ? Collections.<String>emptySet() : names;
+   }
+
+   void add(String conversationId, String name)
+   {
+      if (conversationId==null) return;
+      while (true)
+      {
+         Set<String> names = namesByConversationId.get(conversationId);
+         if (names==null)
+         {
+            names = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+            Set<String> existing = namesByConversationId.putIfAbsent(conversationId, names);
+            if (existing!=null) names = existing;
+         }
+         names.add(name);
+         //remove() may have dropped the set just as it was emptied
+         if ( namesByConversationId.get(conversationId)==names ) return;
+      }
+   }
+
+   void remove(String conversationId, String name)
+   {
+      if (conversationId==null) return;
+      Set<String> names = namesByConversationId.get(conversationId);
+      if (names!=null)
+      {
+         names.remove(name);
+         //don't keep an entry for every conversation the session ever had
+         if ( names.isEmpty() )
+         {
+            namesByConversationId.remove(conversationId, names);
+         }
+      }
+   }
+
+   void removeAll(String conversationId)
+   {
+      if (conversationId==null) return;
+      namesByConversationId.remove(conversationId);
+   }
+
+   @Override
+   public String toString()
+   {
+      return "ConversationNames(" + namesByConversationId + ")";
+   }
+
+}
@@ -39,8 +39,9 @@ class EntityBean implements Wrapper
    
    public boolean passivate()
    {
-      if ( passivatedEntity==null || passivatedEntity.isVersioned() ) //and the version number changed!
+      if ( passivatedEntity==null || passivatedEntity.isVersioned() )
       {
+         PassivatedEntity previous = passivatedEntity;
          if ( PassivatedEntity.isTransactionRolledBackOrMarkedRollback() )
          {
             passivatedEntity = null;
@@ -50,7 +51,10 @@ class EntityBean implements Wrapper
             passivatedEntity = passivateEntity(instance);
             //if (passivatedEntity!=null) instance = null; //for performance of serialization
          }
-         return true;
+         //a versioned entity is reloaded when it is activated, so 
+         //unless the version number changed, the replicated state
+         //is still good
+         return previous==null || !previous.equals(passivatedEntity);
       }
       else
       {
@@ -19,6 +19,7 @@ class EntityBeanList extends AbstractEntityBeanCollection
  
    private List list;
    private List<PassivatedEntity> passivatedEntityList;
+   private transient List<PassivatedEntity> activatedEntityList;
    
    public EntityBeanList(List instance)
    {
@@ -52,6 +53,7 @@ class EntityBeanList extends AbstractEntityBeanCollection
    @Override
    protected void activateAll()
    {
+      PassivatedEntity.loadAll(passivatedEntityList);
       for (int i=0; i<passivatedEntityList.size(); i++)
       {
          PassivatedEntity passivatedEntity = passivatedEntityList.get(i);
@@ -60,15 +62,20 @@ class EntityBeanList extends AbstractEntityBeanCollection
             list.set( i, passivatedEntity.toEntityReference(true) );
          }
       }
+      activatedEntityList = passivatedEntityList;
       passivatedEntityList=null;
    }
 
    @Override
-   protected void passivateAll()
+   protected boolean passivateAll()
    {       
+       List<PassivatedEntity> previousPassivatedList = passivatedEntityList==null ? 
+             activatedEntityList : passivatedEntityList;
+       activatedEntityList = null;
        List<PassivatedEntity> newPassivatedList = new ArrayList<PassivatedEntity>(list.size());               
 
        boolean found = false;
+       boolean unmanaged = false;
        Iterator<Object> it = list.iterator();
        for (int i=0; it.hasNext(); i++) {
            PassivatedEntity passivatedEntity = null;
@@ -86,7 +93,10 @@ class EntityBeanList extends AbstractEntityBeanCollection
                    //are doing it to a copy of the original 
                    //list:
                    list.set(i, null); 
-               }                               
+               }
+               else {
+                   unmanaged = true;
+               }
            }          
            newPassivatedList.add(passivatedEntity);
        }
@@ -95,6 +105,8 @@ class EntityBeanList extends AbstractEntityBeanCollection
        if (found) {
            passivatedEntityList = newPassivatedList;
        }
+       
+       return unmanaged || !isSame(previousPassivatedList, passivatedEntityList);
    }
    
 }
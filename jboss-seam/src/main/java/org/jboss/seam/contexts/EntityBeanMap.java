@@ -19,6 +19,7 @@ class EntityBeanMap extends AbstractEntityBeanCollection
    
    private Map map;
    private Map<Object, PassivatedEntity> passivatedEntityMap;
+   private transient Map<Object, PassivatedEntity> activatedEntityMap;
    
    public EntityBeanMap(Map instance)
    {
@@ -52,19 +53,25 @@ class EntityBeanMap extends AbstractEntityBeanCollection
    @Override
    protected void activateAll()
    {
+      PassivatedEntity.loadAll( passivatedEntityMap.values() );
       for ( Map.Entry<Object, PassivatedEntity> me: passivatedEntityMap.entrySet() )
       {
          map.put( me.getKey(), me.getValue().toEntityReference(true) );
       }
+      activatedEntityMap = passivatedEntityMap;
       clearPassivatedEntities();
    }
    
    @Override
-   protected void passivateAll()
+   protected boolean passivateAll()
    {
+      Map<Object, PassivatedEntity> previousPassivatedMap = passivatedEntityMap==null ? 
+            activatedEntityMap : passivatedEntityMap;
+      activatedEntityMap = null;
       HashMap<Object, PassivatedEntity> newPassivatedMap = 
           new HashMap<Object, PassivatedEntity>(map.size());
       boolean found = false;
+      boolean unmanaged = false;
       for (Map.Entry me: (Set<Map.Entry>) map.entrySet()) {
          Object value = me.getValue();
          if (value!=null) {
@@ -81,11 +88,16 @@ class EntityBeanMap extends AbstractEntityBeanCollection
                map.remove(me.getKey()); 
                newPassivatedMap.put(me.getKey(), passivatedEntity);
             }
+            else {
+               unmanaged = true;
+            }
          }
       }
       if (found) {
           passivatedEntityMap = newPassivatedMap;
       }
+      
+      return unmanaged || !isSame(previousPassivatedMap, passivatedEntityMap);
    }
    
 }
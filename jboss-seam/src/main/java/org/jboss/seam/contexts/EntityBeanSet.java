@@ -20,6 +20,7 @@ class EntityBeanSet extends AbstractEntityBeanCollection
    
    private Set set;
    private List<PassivatedEntity> passivatedEntityList;
+   private transient List<PassivatedEntity> activatedEntityList;
    
    public EntityBeanSet(Set instance)
    {
@@ -53,18 +54,24 @@ class EntityBeanSet extends AbstractEntityBeanCollection
    @Override
    protected void activateAll()
    {
+      PassivatedEntity.loadAll(passivatedEntityList);
       for ( PassivatedEntity pe: passivatedEntityList )
       {
          set.add( pe.toEntityReference(true) );
       }
+      activatedEntityList = passivatedEntityList;
       passivatedEntityList = null;
    }
    
    @Override
-   protected void passivateAll()
+   protected boolean passivateAll()
    {
+       List<PassivatedEntity> previousPassivatedList = passivatedEntityList==null ? 
+             activatedEntityList : passivatedEntityList;
+       activatedEntityList = null;
        ArrayList<PassivatedEntity> newPassivatedList = new ArrayList<PassivatedEntity>( set.size() );
        boolean found = false;
+       boolean unmanaged = false;
        for (Object value: set){
            if (value!=null) {
                PassivatedEntity passivatedEntity = PassivatedEntity.passivateEntity(value);
@@ -79,12 +86,23 @@ class EntityBeanSet extends AbstractEntityBeanCollection
                    set.remove(value);                   
                    newPassivatedList.add(passivatedEntity);
                }
+               else {
+                   unmanaged = true;
+               }
            }
        }     
        // if the original list was nulled out, we don't want to overwrite the passivatedEntity list
        if (found) {
            passivatedEntityList = newPassivatedList;
        }
+       
+       //the iteration order of the set may differ between requests
+       return unmanaged || !isSame( toSet(previousPassivatedList), toSet(passivatedEntityList) );
+   }
+   
+   private static Set<PassivatedEntity> toSet(List<PassivatedEntity> list)
+   {
+      return list==null ? null : new HashSet<PassivatedEntity>(list);
    }
    
 }
@@ -10,6 +10,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.jboss.seam.ScopeType;
+import org.jboss.seam.Seam;
 import org.jboss.seam.core.ConversationEntries;
 import org.jboss.seam.core.Manager;
 import org.jboss.seam.log.LogProvider;
@@ -44,6 +45,7 @@ public class Lifecycle
 
    public static void beginApplication(Map<String, Object> app) 
    {
+      ApplicationContext.createComponentIndex(app);
       application = app;
    }
    
@@ -172,6 +174,7 @@ public class Lifecycle
 
    static void clearThreadlocals() 
    {
+      Contexts.clearVariableStatistics();
       Contexts.eventContext.set(null);
       Contexts.pageContext.set(null);
       Contexts.sessionContext.set(null);
@@ -185,6 +188,45 @@ public class Lifecycle
       Contexts.destroyConversationContext(session, conversationId);
    }
 
+   /**
+    * Destroy the timed out conversations of a session from 
+    * outside of a request, taking the same conversation
+    * locks as a request would. Conversations which are
+    * locked by a request in progress are left alone.
+    */
+   public static void timeoutConversations(Map<String, Object> session, Map<String, Object> app)
+   {
+      if ( Contexts.isEventContextActive() || Contexts.isApplicationContextActive() )
+      {
+         throw new IllegalStateException("Conversations may only be timed out outside of a request");
+      }
+      
+      Contexts.applicationContext.set( new ApplicationContext(app) );
+      
+      //this is used just as a place to stick the ConversationManager
+      Context tempEventContext = new BasicContext(ScopeType.EVENT);
+      Contexts.eventContext.set(tempEventContext);
+      
+      Context tempSessionContext = new SessionContext(session);
+      Contexts.sessionContext.set(tempSessionContext);
+      
+      try
+      {
+         ConversationEntries conversationEntries = ConversationEntries.getInstance();
+         if ( conversationEntries!=null && Manager.instance().conversationTimeout(session, false) )
+         {
+            //replicate the changes to the conversation entries, but not the
+            //other attributes of the session, which requests may be using
+            tempSessionContext.set( Seam.getComponentName(ConversationEntries.class), conversationEntries );
+         }
+         Contexts.destroy(tempEventContext);
+      }
+      finally
+      {
+         clearThreadlocals();
+      }
+   }
+
    @Deprecated
    public static void beginSession(Map<String, Object> session)
    {
@@ -19,7 +19,6 @@ import javax.faces.event.PhaseId;
 
 import org.jboss.seam.Component;
 import org.jboss.seam.ScopeType;
-import org.jboss.seam.core.Events;
 
 /**
  * The page context allows you to store state during a request that
@@ -94,16 +93,16 @@ public class PageContext implements Context
 
 	public void set(String name, Object value) 
    {
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.preSetVariable." + name);
+      Contexts.beforeVariableWrite(Contexts.PRE_SET_VARIABLE, name);
       getCurrentWritableMap().put( getKey(name), value );
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.postSetVariable." + name);
+      Contexts.afterVariableWrite(Contexts.POST_SET_VARIABLE, name);
 	}
 
 	public void remove(String name) 
    {
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.preRemoveVariable." + name);
+      Contexts.beforeVariableWrite(Contexts.PRE_REMOVE_VARIABLE, name);
       getCurrentWritableMap().remove( getKey(name) );
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.postRemoveVariable." + name);
+      Contexts.afterVariableWrite(Contexts.POST_REMOVE_VARIABLE, name);
 	}
 
    public String[] getNames() 
@@ -1,21 +1,46 @@
 package org.jboss.seam.contexts;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import javax.persistence.PersistenceUnitUtil;
 
+import org.hibernate.FlushMode;
+import org.hibernate.Hibernate;
 import org.hibernate.Session;
+import org.hibernate.metadata.ClassMetadata;
 import org.jboss.seam.Component;
+import org.jboss.seam.Entity;
+import org.jboss.seam.Entity.NotEntityException;
 import org.jboss.seam.Seam;
 import org.jboss.seam.persistence.HibernatePersistenceProvider;
 import org.jboss.seam.persistence.PersistenceContexts;
 import org.jboss.seam.persistence.PersistenceProvider;
 import org.jboss.seam.transaction.Transaction;
+import org.jboss.seam.util.Reflections;
 
 /**
  * A swizzled entity reference, consisting of the class,
  * id and persistence context name.
  * 
+ * Serialized in a compact form: the class is written as
+ * its name, which the stream shares between all references
+ * to entities of the same class, and ids and versions of
+ * the usual primitive wrapper types are written unboxed.
+ * References serialized by earlier versions, in the default
+ * form, are still read.
+ * 
  * @see EntityBean
  * @see org.jboss.seam.persistence.ManagedEntityInterceptor
  * 
@@ -26,16 +51,40 @@ class PassivatedEntity implements Serializable
 {
    private static final long serialVersionUID = 6565440294007267788L;
    
+   //the fields of the default form written by earlier versions; 
+   //only persistenceContext is written now, the rest follows it
+   private static final ObjectStreamField[] serialPersistentFields = {
+      new ObjectStreamField("id", Object.class),
+      new ObjectStreamField("version", Object.class),
+      new ObjectStreamField("persistenceContext", String.class),
+      new ObjectStreamField("entityClass", Class.class)
+   };
+   
+   private static final byte NULL = 0;
+   private static final byte INTEGER = 1;
+   private static final byte LONG = 2;
+   private static final byte SHORT = 3;
+   private static final byte STRING = 4;
+   private static final byte OBJECT = 5;
+   
+   //writeUTF() is limited to 65535 bytes, and a char takes up to 3
+   private static final int MAX_UTF_LENGTH = 65535 / 3;
+   
+   //keep the in list within the limits of all databases
+   private static final int BATCH_SIZE = 500;
+   
    private Object id;
    private Object version;
    private String persistenceContext;
-   private Class<?> entityClass; //TODO: make this transient, and serialize only the class name..
+   private String entityClassName;
+   private transient Class<?> entityClass;
    
-   private PassivatedEntity(Object id, Object version, Class<?> entityClass, String persistenceContext)
+   PassivatedEntity(Object id, Object version, Class<?> entityClass, String persistenceContext)
    {
       this.id = id;
       this.persistenceContext = persistenceContext;
       this.entityClass = entityClass;
+      this.entityClassName = entityClass.getName();
       this.version = version;
    }
    
@@ -51,6 +100,17 @@ class PassivatedEntity implements Serializable
    
    private Class<?> getEntityClass()
    {
+      if (entityClass==null)
+      {
+         try
+         {
+            entityClass = Reflections.classForName(entityClassName);
+         }
+         catch (ClassNotFoundException cnfe)
+         {
+            throw new IllegalStateException("could not load passivated entity class: " + entityClassName, cnfe);
+         }
+      }
       return entityClass;
    }
    
@@ -134,6 +194,135 @@ class PassivatedEntity implements Serializable
       }
    }
    
+   /**
+    * Load the entities referred to by a collection of passivated 
+    * entities into their persistence contexts, with one query per
+    * entity class and persistence context, so that the following
+    * calls to toEntityReference() need not hit the database one 
+    * entity at a time. Entities that are already loaded into their
+    * persistence context are not queried again.
+    */
+   static void loadAll(Iterable<PassivatedEntity> passivatedEntities)
+   {
+      Map<String, List<PassivatedEntity>> batches = new HashMap<String, List<PassivatedEntity>>();
+      for (PassivatedEntity passivatedEntity: passivatedEntities)
+      {
+         //only simple ids can be used in an in list
+         if ( passivatedEntity!=null && passivatedEntity.isSimpleId() )
+         {
+            String key = passivatedEntity.persistenceContext + '#' + passivatedEntity.entityClassName;
+            List<PassivatedEntity> batch = batches.get(key);
+            if (batch==null)
+            {
+               batch = new ArrayList<PassivatedEntity>();
+               batches.put(key, batch);
+            }
+            batch.add(passivatedEntity);
+         }
+      }
+      
+      for ( List<PassivatedEntity> batch: batches.values() )
+      {
+         if ( batch.size()>1 )
+         {
+            PassivatedEntity first = batch.get(0);
+            Object persistenceContext = Component.getInstance( first.getPersistenceContext() );
+            for (int i=0; i<batch.size(); i+=BATCH_SIZE)
+            {
+               List<Object> ids = new ArrayList<Object>(BATCH_SIZE);
+               for ( PassivatedEntity passivatedEntity: batch.subList( i, Math.min( i+BATCH_SIZE, batch.size() ) ) )
+               {
+                  ids.add( passivatedEntity.getId() );
+               }
+               if (persistenceContext instanceof EntityManager)
+               {
+                  loadAllFromEntityManager( (EntityManager) persistenceContext, first.getEntityClass(), ids );
+               }
+               else if (persistenceContext instanceof Session)
+               {
+                  loadAllFromHibernate( (Session) persistenceContext, first.getEntityClass(), ids );
+               }
+            }
+         }
+      }
+   }
+   
+   private boolean isSimpleId()
+   {
+      return id instanceof Number || id instanceof String;
+   }
+
+   private static void loadAllFromHibernate(Session session, Class<?> entityClass, List<Object> ids)
+   {
+      //TODO: split this out to somewhere to isolate the Hibernate dependency!!
+      if ( session.isOpen() )
+      {
+         ClassMetadata classMetadata = session.getSessionFactory().getClassMetadata(entityClass);
+         if ( classMetadata!=null && classMetadata.getIdentifierPropertyName()!=null )
+         {
+            List<Object> missingIds = new ArrayList<Object>( ids.size() );
+            for (Object id: ids)
+            {
+               //the same proxy that toEntityReference() will get
+               if ( !Hibernate.isInitialized( session.load( classMetadata.getEntityName(), (Serializable) id ) ) )
+               {
+                  missingIds.add(id);
+               }
+            }
+            if ( missingIds.isEmpty() )
+            {
+               return;
+            }
+            //only reads entities, so there is nothing to flush before it
+            session.createQuery( "from " + classMetadata.getEntityName() + " e where e." + 
+                     classMetadata.getIdentifierPropertyName() + " in (:ids)" )
+                  .setFlushMode(FlushMode.MANUAL)
+                  .setParameterList("ids", missingIds)
+                  .list();
+         }
+      }
+   }
+
+   private static void loadAllFromEntityManager(EntityManager em, Class<?> entityClass, List<Object> ids)
+   {
+      if ( em.isOpen() )
+      {
+         Entity entity;
+         try
+         {
+            entity = Entity.forClass(entityClass);
+         }
+         catch (NotEntityException nee)
+         {
+            //not mapped using annotations
+            return;
+         }
+         if ( entity.getIdentifierName()!=null )
+         {
+            PersistenceUnitUtil persistenceUnitUtil = em.getEntityManagerFactory().getPersistenceUnitUtil();
+            List<Object> missingIds = new ArrayList<Object>( ids.size() );
+            for (Object id: ids)
+            {
+               //the same reference that toEntityReference() will get
+               if ( !persistenceUnitUtil.isLoaded( em.getReference(entityClass, id) ) )
+               {
+                  missingIds.add(id);
+               }
+            }
+            if ( missingIds.isEmpty() )
+            {
+               return;
+            }
+            //only reads entities, so there is nothing to flush before it
+            em.createQuery( "select e from " + entity.getName() + " e where e." + 
+                     entity.getIdentifierName() + " in (:ids)" )
+                  .setFlushMode(FlushModeType.COMMIT)
+                  .setParameter("ids", missingIds)
+                  .getResultList();
+         }
+      }
+   }
+   
    /*public static Object unpassivateEntityAndCheckVersion(String key)
    {
       return unpassivateEntity(key, true);
@@ -281,10 +470,114 @@ class PassivatedEntity implements Serializable
       }
    }
    
+   /**
+    * Two passivated entities are equal if they refer to the same
+    * version of the same entity in the same persistence context,
+    * in which case there is no need to replicate the reference
+    * again.
+    */
+   @Override
+   public boolean equals(Object other)
+   {
+      if (this==other) return true;
+      if ( !(other instanceof PassivatedEntity) ) return false;
+      PassivatedEntity that = (PassivatedEntity) other;
+      return entityClassName.equals(that.entityClassName) &&
+            id.equals(that.id) &&
+            ( version==null ? that.version==null : version.equals(that.version) ) &&
+            ( persistenceContext==null ? that.persistenceContext==null : persistenceContext.equals(that.persistenceContext) );
+   }
+   
+   @Override
+   public int hashCode()
+   {
+      return entityClassName.hashCode() * 37 + id.hashCode();
+   }
+   
+   private void writeObject(ObjectOutputStream out) throws IOException
+   {
+      ObjectOutputStream.PutField fields = out.putFields();
+      fields.put("persistenceContext", persistenceContext);
+      out.writeFields();
+      //the stream writes each distinct name only once
+      out.writeObject(entityClassName);
+      writeValue(out, id);
+      writeValue(out, version);
+   }
+   
+   private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+   {
+      ObjectInputStream.GetField fields = in.readFields();
+      persistenceContext = (String) fields.get("persistenceContext", null);
+      Class<?> defaultFormEntityClass = (Class<?>) fields.get("entityClass", null);
+      if (defaultFormEntityClass!=null)
+      {
+         //written by an earlier version
+         entityClass = defaultFormEntityClass;
+         entityClassName = defaultFormEntityClass.getName();
+         id = fields.get("id", null);
+         version = fields.get("version", null);
+      }
+      else
+      {
+         entityClassName = (String) in.readObject();
+         id = readValue(in);
+         version = readValue(in);
+      }
+   }
+   
+   private static void writeValue(ObjectOutput out, Object value) throws IOException
+   {
+      if (value==null)
+      {
+         out.writeByte(NULL);
+      }
+      else if (value instanceof Integer)
+      {
+         out.writeByte(INTEGER);
+         out.writeInt( (Integer) value );
+      }
+      else if (value instanceof Long)
+      {
+         out.writeByte(LONG);
+         out.writeLong( (Long) value );
+      }
+      else if (value instanceof Short)
+      {
+         out.writeByte(SHORT);
+         out.writeShort( (Short) value );
+      }
+      else if ( value instanceof String && ( (String) value ).length()<=MAX_UTF_LENGTH )
+      {
+         out.writeByte(STRING);
+         out.writeUTF( (String) value );
+      }
+      else
+      {
+         out.writeByte(OBJECT);
+         out.writeObject(value);
+      }
+   }
+   
+   private static Object readValue(ObjectInput in) throws IOException, ClassNotFoundException
+   {
+      byte type = in.readByte();
+      switch (type)
+      {
+         case NULL: return null;
+         case INTEGER: return in.readInt();
+         case LONG: return in.readLong();
+         case SHORT: return in.readShort();
+         case STRING: return in.readUTF();
+         case OBJECT: return in.readObject();
+         default: throw new IOException("unknown passivated value type: " + type);
+      }
+   }
+   
    @Override
    public String toString()
    {
-      return entityClass + "#" + id;
+      return entityClassName + "#" + id;
    }
    
 }
\ No newline at end of file
@@ -6,6 +6,7 @@
  */
 package org.jboss.seam.contexts;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -16,7 +17,8 @@ import java.util.Set;
 import org.jboss.seam.Component;
 import org.jboss.seam.ScopeType;
 import org.jboss.seam.Seam;
-import org.jboss.seam.core.Events;
+import org.jboss.seam.core.ConversationEntries;
+import org.jboss.seam.core.ConversationEntry;
 import org.jboss.seam.core.Manager;
 import org.jboss.seam.persistence.PersistenceContexts;
 
@@ -34,8 +36,22 @@ public class ServerConversationContext implements Context
    private final Map<String, Object> session;
    private final Map<String, Object> additions = new HashMap<String, Object>();
    private final Set<String> removals = new HashSet<String>();
+   private final Set<String> misses = new HashSet<String>();
+   private List<String> missesIdStack;
    private final String id;
    private final List<String> idStack;
+   //the index of the session, looked up once per request, even if the
+   //session holds no conversation variables and so no index
+   private ConversationNames names;
+   
+   private ConversationNames getConversationNames()
+   {
+      if (names==null)
+      {
+         names = ConversationNames.instance(session);
+      }
+      return names;
+   }
    
    private List<String> getIdStack()
    {
@@ -98,33 +114,65 @@ public class ServerConversationContext implements Context
          else
          {
             List<String> stack = getIdStack();
-            if (stack==null)
+            if ( isMiss(name, stack) )
             {
-               return unwrapEntityBean( session.get( getKey(name) ) );
+               return null;
             }
-            else
+            result = getFromSession(name, stack);
+            if (result==null)
             {
-               for ( int i=0; i<stack.size(); i++ )
-               {
-                  String id = stack.get(i);
-                  result = session.get( getKey(name, id) );
-
-                  if (result != null) 
-                  {
-                      return unwrapEntityBean(result);
-                  }
-
-                  // only continue checking if it is not pernestedconversation
-                  if ( i==0 && isPerNestedConversation(name) ) 
-                  {
-                      return null;
-                  }
-               }
-               return null;
+               misses.add(name);
             }
+            return unwrapEntityBean(result);
          }
       }
     }
+    
+    private Object getFromSession(String name, List<String> stack)
+    {
+       if (stack==null)
+       {
+          return session.get( getKey(name) );
+       }
+       else
+       {
+          for ( int i=0; i<stack.size(); i++ )
+          {
+             String id = stack.get(i);
+             Object result = session.get( getKey(name, id) );
+
+             if (result != null) 
+             {
+                 return result;
+             }
+
+             // only continue checking if it is not pernestedconversation
+             if ( i==0 && isPerNestedConversation(name) ) 
+             {
+                 return null;
+             }
+          }
+          return null;
+       }
+    }
+    
+    /**
+     * Was the name already looked up in the session, and not
+     * found, for the current conversation id stack? Names that
+     * are not in the conversation are looked up over and over
+     * during a request, since the conversation context is 
+     * searched before the session and application contexts.
+     */
+    private boolean isMiss(String name, List<String> stack)
+    {
+       if ( stack==null ? missesIdStack!=null : !stack.equals(missesIdStack) )
+       {
+          //the current conversation changed
+          misses.clear();
+          missesIdStack = stack==null ? null : new ArrayList<String>(stack);
+       }
+       return misses.contains(name);
+    }
 
     private boolean isPerNestedConversation(String name) 
     {
@@ -147,7 +195,7 @@ public class ServerConversationContext implements Context
 
    public void set(String name, Object value) 
    {
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.preSetVariable." + name);
+      Contexts.beforeVariableWrite(Contexts.PRE_SET_VARIABLE, name);
       if (value==null)
       {
          //yes, we need this
@@ -156,6 +204,7 @@ public class ServerConversationContext implements Context
       else
       {
          removals.remove(name);
+         misses.remove(name);
          if ( Seam.isEntityClass( value.getClass() ) )
          {
             value = new EntityBean(value);
@@ -174,7 +223,7 @@ public class ServerConversationContext implements Context
          }
          additions.put(name, value);
       }
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.postSetVariable." + name);
+      Contexts.afterVariableWrite(Contexts.POST_SET_VARIABLE, name);
 	}
 
 	public boolean isSet(String name) 
@@ -184,10 +233,10 @@ public class ServerConversationContext implements Context
    
 	public void remove(String name) 
    {
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.preRemoveVariable." + name);
+      Contexts.beforeVariableWrite(Contexts.PRE_REMOVE_VARIABLE, name);
       additions.remove(name);
       removals.add(name);
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.postRemoveVariable." + name);
+      Contexts.afterVariableWrite(Contexts.POST_REMOVE_VARIABLE, name);
 	}
 
    public String[] getNames() 
@@ -201,13 +250,10 @@ public class ServerConversationContext implements Context
    {       
        HashSet<String> results = new HashSet<String>();
        
-       String prefix = getPrefix(getId());
-       for (String name: session.keySet()) {
-           if (name.startsWith(prefix)) {
-               name = name.substring(prefix.length());
-               if (!removals.contains(name)) {
-                   results.add(name);
-               }
+       String id = getId();
+       for ( String name: getConversationNames().getNames(id) ) {
+           if ( !removals.contains(name) && session.containsKey( getKey(name, id) ) ) {
+               results.add(name);
            }
        }
 
@@ -221,14 +267,12 @@ public class ServerConversationContext implements Context
        List<String> ids = Manager.instance().getCurrentConversationIdStack();
        
        if (ids != null) {
+           ConversationNames names = getConversationNames();
            for (String conversationId: ids) {
                String prefix = getPrefix(conversationId);
-               for (String name: session.keySet()) {
-                   if (name.startsWith(prefix)) {
-                       String shortName = name.substring(prefix.length());
-                       if (!removals.contains(shortName)) {
-                           results.add(name);
-                       }
+               for ( String shortName: names.getNames(conversationId) ) {
+                   if (!removals.contains(shortName)) {
+                       results.add(prefix + shortName);
                    }
                }
            }
@@ -250,6 +294,22 @@ public class ServerConversationContext implements Context
    }
    
    public void unflush()
+   {
+      Object monitor = getSharedMonitor();
+      if (monitor==null)
+      {
+         activate();
+      }
+      else
+      {
+         synchronized (monitor)
+         {
+            activate();
+         }
+      }
+   }
+   
+   private void activate()
    {
       for ( String key: getNamesForAllConversationsFromSession() )
       {
@@ -269,8 +329,31 @@ public class ServerConversationContext implements Context
     * don't know for sure the conversation id until then.
     */
    public void flush()
+   {
+      Object monitor = getSharedMonitor();
+      if (monitor==null)
+      {
+         flushToSession();
+      }
+      else
+      {
+         synchronized (monitor)
+         {
+            flushToSession();
+         }
+      }
+   }
+   
+   private void flushToSession()
    {      
       boolean longRunning = !isCurrent() || Manager.instance().isLongRunningConversation();  
+      
+      if ( longRunning && isCurrent() )
+      {
+         rememberPersistenceContexts();
+      }
+      
+      misses.clear();
           
       if ( longRunning )
       {
@@ -285,9 +368,14 @@ public class ServerConversationContext implements Context
               }
           }
     
+          String id = getId();
+          ConversationNames names = getConversationNames();
+          boolean namesChanged = !removals.isEmpty() || !additions.isEmpty();
+          
           //remove removed objects
           for (String name: removals) {
-              session.remove(getKey(name));
+              session.remove(getKey(name, id));
+              names.remove(id, name);
           }
           removals.clear();
 
@@ -303,10 +391,16 @@ public class ServerConversationContext implements Context
                  Object attribute = entry.getValue();
                  
                  passivate(attribute); 
-                 session.put(getKey(entry.getKey()), attribute);
+                 session.put(getKey(entry.getKey(), id), attribute);
+                 names.add( id, entry.getKey() );
              }
              additions.clear();
           }
+          
+          if (namesChanged)
+          {
+             this.names = names.flush(session);
+          }
       }
       else
       {
@@ -320,6 +414,13 @@ public class ServerConversationContext implements Context
              session.remove(getKey(name));
          }
          removals.clear();
+         
+         ConversationNames names = getConversationNames();
+         if ( !names.getNames( getId() ).isEmpty() )
+         {
+            names.removeAll( getId() );
+            this.names = names.flush(session);
+         }
       }
    }
 
@@ -335,6 +436,45 @@ public class ServerConversationContext implements Context
         return Contexts.isAttributeDirty(attribute);
     }
     
+   /**
+    * Requests holding the READ lock share the wrappers and the 
+    * index of the conversation, so they activate and passivate 
+    * them one at a time
+    */
+   private Object getSharedMonitor()
+   {
+      if ( isCurrent() && Contexts.isSessionContextActive() && Manager.instance().isLongRunningConversation() )
+      {
+         ConversationEntry entry = Manager.instance().getCurrentConversationEntry();
+         if ( entry!=null && entry.isReadLockedByCurrentThread() )
+         {
+            return entry.getContextMonitor();
+         }
+      }
+      return null;
+   }
+   
+   /**
+    * Later READ requests must not share a Seam-managed
+    * persistence context held by the conversation, or by
+    * any conversation in its stack, so remember it on the
+    * root conversation, whose lock the stack shares
+    */
+   private void rememberPersistenceContexts()
+   {
+      PersistenceContexts persistenceContexts = (PersistenceContexts) get( Seam.getComponentName(PersistenceContexts.class) );
+      List<String> stack = getIdStack();
+      if ( persistenceContexts!=null && !persistenceContexts.getTouchedContexts().isEmpty() && 
+            stack!=null && !stack.isEmpty() && Contexts.isSessionContextActive() )
+      {
+         ConversationEntry entry = ConversationEntries.instance().getConversationEntry( stack.get( stack.size()-1 ) );
+         if (entry!=null)
+         {
+            entry.setPersistenceContextHeld(true);
+         }
+      }
+   }
+   
    private boolean isCurrent()
    {
       return id==null || id.equals( Manager.instance().getCurrentConversationId() );
@@ -20,6 +20,7 @@ import org.jboss.seam.servlet.ServletApplicationMap;
 import org.jboss.seam.servlet.ServletRequestMap;
 import org.jboss.seam.servlet.ServletRequestSessionMap;
 import org.jboss.seam.servlet.ServletSessionMap;
+import org.jboss.seam.web.ConversationTimeoutReaper;
 import org.jboss.seam.web.Session;
 
 /**
@@ -180,10 +181,14 @@ public class ServletLifecycle
    public static void beginSession(HttpSession session)
    {
       Lifecycle.beginSession( new ServletSessionMap(session), new ServletApplicationMap(session.getServletContext()) );
+      ConversationTimeoutReaper reaper = ConversationTimeoutReaper.getInstance( session.getServletContext() );
+      if (reaper!=null) reaper.register(session);
    }
    
    public static void endSession(HttpSession session)
    {
+      ConversationTimeoutReaper reaper = ConversationTimeoutReaper.getInstance( session.getServletContext() );
+      if (reaper!=null) reaper.unregister(session);
       Lifecycle.endSession( new ServletSessionMap(session) , new ServletApplicationMap(session.getServletContext()));
    }
    
@@ -21,24 +21,29 @@ import org.jboss.seam.Seam;
 public class SessionContext extends BasicContext 
 {
    
+   private final Map<String, Object> map;
+   
    public SessionContext(Map<String, Object> map)
    {
       super(ScopeType.SESSION, map);
+      this.map = map;
    }
 
    @Override
 	public String[] getNames() 
    {
+      //filter the keys of the session in one pass, instead of
+      //copying them into an array first
 		ArrayList<String> results = new ArrayList<String>();
       String prefix = ScopeType.CONVERSATION.getPrefix();
-      for ( String name: super.getNames() ) 
+      for ( String name: map.keySet() ) 
       {
          if ( !name.contains(prefix) )
          {
             results.add(name);
          }
       }
-		return results.toArray(new String[]{});
+		return results.toArray( new String[results.size()] );
 	}
    
    @Override
@@ -1,7 +1,7 @@
 //$Id: BijectionInterceptor.java 9561 2008-11-14 03:26:13Z dan.j.allen $
 package org.jboss.seam.core;
 
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.seam.Component;
 import org.jboss.seam.CyclicDependencyException;
@@ -16,6 +16,14 @@ import org.jboss.seam.util.Exceptions;
  * Before invoking the component, inject all dependencies. After
  * invoking, outject dependencies back into their context.
  * 
+ * Concurrent and reentrant calls share the injected state. Only
+ * the first client to arrive injects, and only the last client
+ * to leave outjects and disinjects. Clients join in and leave 
+ * with a compare-and-set, and the first and last clients claim 
+ * the component the same way before injecting or disinjecting 
+ * it, so no lock is taken. Only a client that arrives while 
+ * another is injecting or disinjecting waits for it.
+ * 
  * @author Gavin King
  * @author Shane Bryzak
  */
@@ -24,13 +32,28 @@ public class BijectionInterceptor extends AbstractInterceptor
 {
    private static final long serialVersionUID = 4686458105931528659L;
    
-   private boolean injected;
+   /**
+    * The count of clients while a client injects or disinjects 
+    * the component
+    */
+   private static final int TRANSITION = -1;
    
-   private boolean injecting;
+   /**
+    * The number of clients currently using the injected state.
+    * Positive only while the component is fully injected.
+    */
+   private final AtomicInteger clients = new AtomicInteger();
    
-   private int clients = 0;
+   /**
+    * The client injecting or disinjecting the component
+    */
+   private transient volatile Thread transitioning;
    
-   private ReentrantLock lock = new ReentrantLock();
+   /**
+    * The number of clients waiting for a transition to end, 
+    * only changed while holding the monitor of the count
+    */
+   private volatile int waiting;
    
    @Override
    public void setComponent(Component component)
@@ -45,64 +68,16 @@ public class BijectionInterceptor extends AbstractInterceptor
       Component component = getComponent();
       boolean enforceRequired = !component.isLifecycleMethod( invocation.getMethod() );      
       
+      boolean entered = false;
       try
-      {    
-         lock.lock();
-         try
-         {
-            if (!injected)
-            {              
-               if (injecting)
-               {
-                  throw new CyclicDependencyException();
-               }
-
-               injecting = true;
-               try
-               {
-                  component.inject(invocation.getTarget(), enforceRequired);
-               }
-               finally
-               {
-                  injecting = false;
-               }
-               injected = true;
-            }
-            
-            clients++;
-         }
-         finally
-         {
-            lock.unlock();
-         }
-                           
+      {
+         enter(component, invocation.getTarget(), enforceRequired);
+         entered = true;
+         
          Object result = invocation.proceed();
-            
-         lock.lock();
-         try
-         {
-            if (clients == 1)
-            {
-               try
-               {                     
-                  component.outject( invocation.getTarget(), enforceRequired );
-               }
-               finally
-               {
-                  // Avoid an extra lock by disinjecting here instead of the finally block
-                  if (injected)
-                  {
-                     injected = false;
-                     clients--;
-                     component.disinject( invocation.getTarget() );
-                  }
-               }   
-            }
-         }
-         finally
-         {
-            lock.unlock();
-         }
+         
+         entered = false;
+         leave(component, invocation.getTarget(), enforceRequired, true);
          
          return result;
       }
@@ -121,24 +96,135 @@ public class BijectionInterceptor extends AbstractInterceptor
          throw e;
       }
       finally
-      {            
-         if (injected)
+      {
+         if (entered)
+         {
+            leave(component, invocation.getTarget(), enforceRequired, false);
+         }
+      }
+   }
+   
+   private void enter(Component component, Object target, boolean enforceRequired) throws Exception
+   {
+      for (;;)
+      {
+         int count = clients.get();
+         if (count>0)
+         {
+            //the component is already injected, so just join in
+            if ( clients.compareAndSet(count, count+1) ) return;
+         }
+         else if (count==0)
+         {
+            if ( clients.compareAndSet(0, TRANSITION) )
+            {
+               inject(component, target, enforceRequired);
+               return;
+            }
+         }
+         else if ( transitioning==Thread.currentThread() )
+         {
+            //called again while injecting the component
+            throw new CyclicDependencyException();
+         }
+         else
+         {
+            awaitTransition();
+         }
+      }
+   }
+   
+   private void inject(Component component, Object target, boolean enforceRequired)
+   {
+      transitioning = Thread.currentThread();
+      boolean injected = false;
+      try
+      {
+         component.inject(target, enforceRequired);
+         injected = true;
+      }
+      finally
+      {
+         transitioning = null;
+         endTransition( injected ? 1 : 0 );
+      }
+   }
+   
+   private void leave(Component component, Object target, boolean enforceRequired, boolean outject)
+   {
+      //if other clients are still using the injected state, just leave
+      for ( int count = clients.get(); count>1; count = clients.get() )
+      {
+         if ( clients.compareAndSet(count, count-1) ) return;
+      }
+      
+      //outject while we still count as a client, so that a
+      //reentrant call made during outjection just joins in
+      try
+      {
+         if (outject)
          {
-            lock.lock();
+            component.outject(target, enforceRequired);
+         }
+      }
+      finally
+      {
+         release(component, target);
+      }
+   }
+   
+   private void release(Component component, Object target)
+   {
+      for (;;)
+      {
+         if ( clients.compareAndSet(1, TRANSITION) )
+         {
+            transitioning = Thread.currentThread();
             try
             {
-               clients--;
-               
-               if (clients == 0)
-               {
-                  injected = false;
-                  component.disinject( invocation.getTarget() );     
-               }
+               component.disinject(target);
             }
             finally
             {
-               lock.unlock();
+               transitioning = null;
+               endTransition(0);
             }
+            return;
+         }
+         //another client joined in while we outjected
+         int count = clients.get();
+         if ( count>1 && clients.compareAndSet(count, count-1) ) return;
+      }
+   }
+   
+   private void endTransition(int count)
+   {
+      clients.set(count);
+      //a waiting client counts itself before it checks the count
+      if (waiting>0)
+      {
+         synchronized (clients)
+         {
+            clients.notifyAll();
+         }
+      }
+   }
+   
+   private void awaitTransition() throws InterruptedException
+   {
+      synchronized (clients)
+      {
+         waiting++;
+         try
+         {
+            while ( clients.get()==TRANSITION )
+            {
+               clients.wait();
+            }
+         }
+         finally
+         {
+            waiting--;
          }
       }
    }
@@ -2,13 +2,21 @@ package org.jboss.seam.core;
 
 import static org.jboss.seam.annotations.Install.BUILT_IN;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import javax.servlet.http.HttpSessionActivationListener;
+import javax.servlet.http.HttpSessionEvent;
 
 import org.jboss.seam.Component;
 import org.jboss.seam.ScopeType;
@@ -17,58 +25,80 @@ import org.jboss.seam.annotations.Name;
 import org.jboss.seam.annotations.Scope;
 import org.jboss.seam.annotations.intercept.BypassInterceptors;
 import org.jboss.seam.contexts.Contexts;
+import org.jboss.seam.web.ConversationTimeoutReaper;
 
 /**
  * Manages a map of conversation id to ConversationEntry 
  * in the session context.
  * 
+ * Entries are also indexed by last request time, so 
+ * that the timeout sweep only needs to visit the 
+ * conversations which have actually expired.
+ * 
  * @author Gavin King
  */
 @Name("org.jboss.seam.core.conversationEntries")
 @Install(precedence=BUILT_IN)
 @Scope(ScopeType.SESSION)
 @BypassInterceptors
-public class ConversationEntries extends AbstractMutable implements Serializable 
+public class ConversationEntries extends AbstractMutable implements Serializable, HttpSessionActivationListener
 {
    private static final long serialVersionUID = 7996835952419813634L;
-   private Map<String, ConversationEntry> conversationIdEntryMap = new HashMap<String, ConversationEntry>();
    
-   public synchronized Collection<ConversationEntry> getConversationEntries()
+   //declared as a Map, as it always was, so that sessions serialized 
+   //by earlier versions can still be read
+   private Map<String, ConversationEntry> conversationIdEntryMap = new ConcurrentHashMap<String, ConversationEntry>();
+   
+   //entries using the default timeout, ordered by last request time
+   private transient ConcurrentSkipListSet<ConversationEntry> defaultTimeoutIndex = createDefaultTimeoutIndex();
+   //entries with an explicit timeout, ordered by last request time plus timeout
+   private transient ConcurrentSkipListSet<ConversationEntry> explicitTimeoutIndex = createExplicitTimeoutIndex();
+   
+   public Collection<ConversationEntry> getConversationEntries()
    {
       return Collections.unmodifiableCollection( conversationIdEntryMap.values() );
    }
    
-   public synchronized int size()
+   public int size()
    {
       return conversationIdEntryMap.size();
    }
    
-   public synchronized Set<String> getConversationIds()
+   public Set<String> getConversationIds()
    {
       return Collections.unmodifiableSet( conversationIdEntryMap.keySet() );
    }
    
-   public synchronized ConversationEntry createConversationEntry(String id, List<String> stack)
+   public ConversationEntry createConversationEntry(String id, List<String> stack)
    {
       ConversationEntry entry = new ConversationEntry(id, stack, this);
-      conversationIdEntryMap.put(id, entry);
+      ConversationEntry previous = conversationIdEntryMap.put(id, entry);
+      if (previous!=null) unindex(previous);
+      synchronized (entry)
+      {
+         index(entry);
+      }
       setDirty();
       return entry;
    }
    
-   public synchronized ConversationEntry getConversationEntry(String id)
+   public ConversationEntry getConversationEntry(String id)
    {
       return conversationIdEntryMap.get(id);
    }
    
-   public synchronized ConversationEntry removeConversationEntry(String id)
+   public ConversationEntry removeConversationEntry(String id)
    {
       ConversationEntry entry = conversationIdEntryMap.remove(id);
-      if ( entry!=null ) setDirty();
+      if ( entry!=null ) 
+      {
+         unindex(entry);
+         setDirty();
+      }
       return entry;
    }
    
-   public synchronized ConversationEntry updateConversationId(String oldId, String newId)
+   public ConversationEntry updateConversationId(String oldId, String newId)
    {
       ConversationEntry entry = conversationIdEntryMap.remove(oldId);
       if (entry==null)
@@ -77,14 +107,143 @@ public class ConversationEntries extends AbstractMutable implements Serializable
       }
       else
       {
-         entry.setId(newId);
-         entry.getConversationIdStack().set(0, newId);
+         synchronized (entry)
+         {
+            boolean indexed = unindex(entry);
+            entry.setId(newId);
+            entry.getConversationIdStack().set(0, newId);
+            if (indexed) index(entry);
+         }
          conversationIdEntryMap.put(newId, entry);
          setDirty();
          return entry;
       }
    }
    
+   /**
+    * Get the conversations which have timed out at the 
+    * given time, least recently used first. Only the 
+    * expired head of each index is visited, so the cost
+    * does not depend upon the number of live conversations.
+    * 
+    * @param currentTime the time in milliseconds
+    * @param defaultTimeout the timeout of conversations which 
+    *        do not specify their own timeout
+    */
+   public List<ConversationEntry> getExpiredConversationEntries(long currentTime, int defaultTimeout)
+   {
+      List<ConversationEntry> result = new ArrayList<ConversationEntry>();
+      for (ConversationEntry entry: defaultTimeoutIndex)
+      {
+         if ( currentTime - entry.getLastRequestTimeUnsynchronized() <= defaultTimeout ) break;
+         result.add(entry);
+      }
+      for (ConversationEntry entry: explicitTimeoutIndex)
+      {
+         if ( currentTime - entry.getLastRequestTimeUnsynchronized() <= entry.getExplicitTimeout() ) break;
+         result.add(entry);
+      }
+      return result;
+   }
+   
+   /**
+    * Remove an entry from the timeout index before one 
+    * of its ordering keys is changed. Must be called 
+    * while holding the entry monitor.
+    * 
+    * @return true if the entry was indexed
+    */
+   boolean unindex(ConversationEntry entry)
+   {
+      return entry.getExplicitTimeout()==null ?
+            defaultTimeoutIndex.remove(entry) :
+            explicitTimeoutIndex.remove(entry);
+   }
+   
+   /**
+    * Add an entry to the timeout index after its ordering
+    * keys have changed. Must be called while holding the 
+    * entry monitor.
+    */
+   void index(ConversationEntry entry)
+   {
+      if ( entry.getExplicitTimeout()==null )
+      {
+         defaultTimeoutIndex.add(entry);
+      }
+      else
+      {
+         explicitTimeoutIndex.add(entry);
+      }
+   }
+   
+   private static ConcurrentSkipListSet<ConversationEntry> createDefaultTimeoutIndex()
+   {
+      return new ConcurrentSkipListSet<ConversationEntry>( new Comparator<ConversationEntry>()
+      {
+         public int compare(ConversationEntry x, ConversationEntry y)
+         {
+            return compareTimes( x.getLastRequestTimeUnsynchronized(), y.getLastRequestTimeUnsynchronized(), x, y );
+         }
+      } );
+   }
+   
+   private static ConcurrentSkipListSet<ConversationEntry> createExplicitTimeoutIndex()
+   {
+      return new ConcurrentSkipListSet<ConversationEntry>( new Comparator<ConversationEntry>()
+      {
+         public int compare(ConversationEntry x, ConversationEntry y)
+         {
+            return compareTimes( 
+                  x.getLastRequestTimeUnsynchronized() + x.getExplicitTimeout(), 
+                  y.getLastRequestTimeUnsynchronized() + y.getExplicitTimeout(), 
+                  x, y 
+               );
+         }
+      } );
+   }
+   
+   private static int compareTimes(long xt, long yt, ConversationEntry x, ConversationEntry y)
+   {
+      if (xt!=yt) return xt<yt ? -1 : 1;
+      return x.getId().compareTo( y.getId() );
+   }
+   
+   private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException
+   {
+      ois.defaultReadObject();
+      if ( !(conversationIdEntryMap instanceof ConcurrentHashMap) )
+      {
+         conversationIdEntryMap = new ConcurrentHashMap<String, ConversationEntry>(conversationIdEntryMap);
+      }
+      defaultTimeoutIndex = createDefaultTimeoutIndex();
+      explicitTimeoutIndex = createExplicitTimeoutIndex();
+      for ( ConversationEntry entry: conversationIdEntryMap.values() )
+      {
+         if ( entry.isNested() )
+         {
+            //nested conversations share the lock of the root conversation
+            List<String> stack = entry.getConversationIdStack();
+            ConversationEntry root = conversationIdEntryMap.get( stack.get( stack.size()-1 ) );
+            if (root!=null) entry.shareLock(root);
+         }
+         index(entry);
+      }
+   }
+   
+   public void sessionWillPassivate(HttpSessionEvent event) {}
+   
+   /**
+    * A session which arrived by failover or was restored 
+    * from disk did not pass through sessionCreated(), so
+    * register it with the reaper here.
+    */
+   public void sessionDidActivate(HttpSessionEvent event)
+   {
+      ConversationTimeoutReaper reaper = ConversationTimeoutReaper.getInstance( event.getSession().getServletContext() );
+      if (reaper!=null) reaper.register( event.getSession() );
+   }
+   
    public static ConversationEntries instance()
    {
       if ( !Contexts.isSessionContextActive() )
@@ -1,13 +1,17 @@
 package org.jboss.seam.core;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.jboss.seam.Component;
 import org.jboss.seam.ScopeType;
+import org.jboss.seam.annotations.ConversationLockType;
 import org.jboss.seam.contexts.Context;
 import org.jboss.seam.contexts.Contexts;
 
@@ -22,21 +26,25 @@ public final class ConversationEntry implements Serializable, Comparable<Convers
 {
    private static final long serialVersionUID = 3624635335271963568L;
    
-   private long lastRequestTime;
+   private volatile long lastRequestTime;
    private String description;
    private String id;
    private Date startDatetime;
    private Date lastDatetime;
    private String viewId;
    private List<String> conversationIdStack;
-   private Integer timeout;
+   private volatile Integer timeout;
    private Integer concurrentRequestTimeout;
    private boolean removeAfterRedirect;
    private boolean ended;
   
    private ConversationEntries entries;
    
-   private ReentrantLock lock;
+   //not named "lock", since that field of earlier versions held a 
+   //ReentrantLock, and their serialized sessions must still be read
+   private ReentrantReadWriteLock readWriteLock;
+   
+   private volatile boolean persistenceContextHeld;
    
    public ConversationEntry(String id, List<String> stack, ConversationEntries entries)
    {
@@ -54,11 +62,11 @@ public final class ConversationEntry implements Serializable, Comparable<Convers
       {
          // get the root conversation entry lock (we want to share the same lock  
          // among all nested conversations in the same conversation stack)
-         lock = entries.getConversationEntry( conversationIdStack.get( conversationIdStack.size()-1 ) ).lock;
+         readWriteLock = entries.getConversationEntry( conversationIdStack.get( conversationIdStack.size()-1 ) ).readWriteLock;
       }
       else
       {
-         lock = new ReentrantLock(true);
+         readWriteLock = new ReentrantReadWriteLock(true);
       }
       touch();
    }
@@ -79,11 +87,22 @@ public final class ConversationEntry implements Serializable, Comparable<Convers
       return lastRequestTime;
    }
    
+   /**
+    * Read by the ConversationEntries timeout index, which 
+    * must never need to acquire the monitor of an entry
+    */
+   long getLastRequestTimeUnsynchronized()
+   {
+      return lastRequestTime;
+   }
+   
    synchronized void touch() 
    {
       entries.setDirty();
+      boolean indexed = entries.unindex(this);
       lastRequestTime = System.currentTimeMillis();
       lastDatetime = new Date();
+      if (indexed) entries.index(this);
    }
    
    public String getId() 
@@ -176,10 +195,24 @@ public final class ConversationEntry implements Serializable, Comparable<Convers
             Manager.instance().getConversationTimeout() : timeout;
    }
    
-   void setTimeout(int conversationTimeout) 
+   /**
+    * The timeout set for this conversation, or null if
+    * the default conversation timeout applies
+    */
+   Integer getExplicitTimeout()
+   {
+      return timeout;
+   }
+   
+   synchronized void setTimeout(int conversationTimeout) 
    {
       entries.setDirty(this.timeout, timeout);
-      this.timeout = conversationTimeout;
+      if ( timeout==null || timeout!=conversationTimeout )
+      {
+         boolean indexed = entries.unindex(this);
+         this.timeout = conversationTimeout;
+         if (indexed) entries.index(this);
+      }
    }
    
    public Integer getConcurrentRequestTimeout()
@@ -211,14 +244,38 @@ public final class ConversationEntry implements Serializable, Comparable<Convers
    
    public boolean lockNoWait() //not synchronized!
    {
-      return lock.tryLock();
+      return readWriteLock.writeLock().tryLock();
    }
    
    public boolean lock() //not synchronized!
    {
+      return lock(ConversationLockType.WRITE);
+   }
+   
+   /**
+    * Lock the conversation, waiting at most the concurrent
+    * request timeout. A READ lock may be shared with other 
+    * READ requests, a WRITE lock is exclusive. A READ lock on
+    * a conversation that holds a Seam-managed persistence 
+    * context, or is nested in one that does, is exclusive too.
+    */
+   public boolean lock(ConversationLockType lockType) //not synchronized!
+   {
+      if ( lockType==ConversationLockType.READ && !isReadLockedByCurrentThread() && isPersistenceContextHeldByStack() )
+      {
+         //an EntityManager or Session may never be used by two requests at once
+         lockType = ConversationLockType.WRITE;
+      }
+      if ( lockType==ConversationLockType.WRITE && isReadLockedByCurrentThread() )
+      {
+         //waiting would only time out, since a read lock can't be upgraded
+         throw new IllegalStateException("conversation is read locked by the current thread, and can't be write locked: " + id);
+      }
+      Lock requestLock = lockType==ConversationLockType.READ ? 
+            (Lock) readWriteLock.readLock() : (Lock) readWriteLock.writeLock();
       try
       {
-         return lock.tryLock( getConcurrentRequestTimeout(), TimeUnit.MILLISECONDS );
+         return requestLock.tryLock( getConcurrentRequestTimeout(), TimeUnit.MILLISECONDS );
       }
       catch (InterruptedException ie)
       {
@@ -228,12 +285,88 @@ public final class ConversationEntry implements Serializable, Comparable<Convers
    
    public void unlock() //not synchronized!
    {
-      lock.unlock();
+      if ( readWriteLock.isWriteLockedByCurrentThread() )
+      {
+         readWriteLock.writeLock().unlock();
+      }
+      else
+      {
+         readWriteLock.readLock().unlock();
+      }
    }
    
    public boolean isLockedByCurrentThread()
    {
-      return lock.isHeldByCurrentThread();
+      return readWriteLock.isWriteLockedByCurrentThread() || readWriteLock.getReadHoldCount()>0;
+   }
+   
+   /**
+    * Does the current thread hold only the shared READ lock?
+    */
+   public boolean isReadLockedByCurrentThread()
+   {
+      return readWriteLock.getReadHoldCount()>0 && !readWriteLock.isWriteLockedByCurrentThread();
+   }
+   
+   /**
+    * The monitor held while a request that shares the conversation
+    * activates or passivates the conversation context. It is shared 
+    * by all nested conversations in the same conversation stack, 
+    * like the lock.
+    */
+   public Object getContextMonitor()
+   {
+      return readWriteLock;
+   }
+   
+   /**
+    * Does this conversation hold a Seam-managed persistence context?
+    */
+   public boolean isPersistenceContextHeld()
+   {
+      return persistenceContextHeld;
+   }
+   
+   /**
+    * Remember that this conversation holds a Seam-managed persistence
+    * context, so that its READ requests are no longer shared
+    */
+   public void setPersistenceContextHeld(boolean persistenceContextHeld)
+   {
+      if ( this.persistenceContextHeld!=persistenceContextHeld )
+      {
+         this.persistenceContextHeld = persistenceContextHeld;
+         entries.setDirty();
+      }
+   }
+   
+   private boolean isPersistenceContextHeldByStack()
+   {
+      for (String conversationId: conversationIdStack)
+      {
+         ConversationEntry entry = conversationId.equals(id) ? this : entries.getConversationEntry(conversationId);
+         if ( entry!=null && entry.isPersistenceContextHeld() ) return true;
+      }
+      return false;
+   }
+   
+   /**
+    * Use the lock of the root conversation, after reading
+    * a nested entry from a stream
+    */
+   void shareLock(ConversationEntry root)
+   {
+      readWriteLock = root.readWriteLock;
+   }
+   
+   private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException
+   {
+      ois.defaultReadObject();
+      if (readWriteLock==null)
+      {
+         //written by an earlier version
+         readWriteLock = new ReentrantReadWriteLock(true);
+      }
    }
    
    public void end()
@@ -4,6 +4,7 @@ package org.jboss.seam.core;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 
+import org.jboss.seam.MethodMetadata;
 import org.jboss.seam.annotations.ApplicationException;
 import org.jboss.seam.annotations.Begin;
 import org.jboss.seam.annotations.End;
@@ -38,8 +39,8 @@ public class ConversationInterceptor extends AbstractInterceptor
    {
       try
       {
-         Method method = invocation.getMethod();
-         if ( getComponent().isConversationManagementMethod(method) ) //performance optimization 
+         MethodMetadata method = getComponent().getMethodMetadata( invocation.getMethod() );
+         if ( method.isConversationManagement() ) //performance optimization 
          {
       
             if ( isMissingJoin(method) )
@@ -82,8 +83,13 @@ public class ConversationInterceptor extends AbstractInterceptor
             && clazz.getAnnotation(ApplicationException.class).end();
    }
    
-   @SuppressWarnings("deprecation")
    public boolean redirectToExistingConversation(Method method)
+   {
+      return redirectToExistingConversation( getComponent().getMethodMetadata(method) );
+   }
+   
+   @SuppressWarnings("deprecation")
+   private boolean redirectToExistingConversation(MethodMetadata method)
    {
       if ( !Manager.instance().isLongRunningConversation() )
       {
@@ -134,7 +140,7 @@ public class ConversationInterceptor extends AbstractInterceptor
       return false;
    }
 
-   private boolean isMissingJoin(Method method) {
+   private boolean isMissingJoin(MethodMetadata method) {
       return Manager.instance().isLongRunningOrNestedConversation() && ( 
             ( 
                   method.isAnnotationPresent(Begin.class) && 
@@ -147,7 +153,7 @@ public class ConversationInterceptor extends AbstractInterceptor
    }
 
    @SuppressWarnings("deprecation")
-   private void beginConversationIfNecessary(Method method, Object result)
+   private void beginConversationIfNecessary(MethodMetadata method, Object result)
    {
       
       boolean simpleBegin = 
@@ -156,7 +162,7 @@ public class ConversationInterceptor extends AbstractInterceptor
             ( method.isAnnotationPresent(Begin.class) && method.getAnnotation(Begin.class).ifOutcome().length==0 );
       if ( simpleBegin )
       {
-         if ( result!=null || method.getReturnType().equals(void.class) )
+         if ( result!=null || method.isVoid() )
          {
             boolean nested = false;
             if ( method.isAnnotationPresent(Begin.class) )
@@ -182,7 +188,7 @@ public class ConversationInterceptor extends AbstractInterceptor
       
    }
    
-   private void setFlushMode(Method method)
+   private void setFlushMode(MethodMetadata method)
    {
       FlushModeType flushMode;
       if (method.isAnnotationPresent(Begin.class))
@@ -205,7 +211,7 @@ public class ConversationInterceptor extends AbstractInterceptor
       PersistenceContexts.instance().changeFlushMode(flushMode);
    }
 
-   private String getProcessDefinitionName(Method method) {
+   private String getProcessDefinitionName(MethodMetadata method) {
       if ( method.isAnnotationPresent(Begin.class) )
       {
          return method.getAnnotation(Begin.class).pageflow();
@@ -248,7 +254,7 @@ public class ConversationInterceptor extends AbstractInterceptor
    }
 
    @SuppressWarnings("deprecation")
-   private void endConversationIfNecessary(Method method, Object result)
+   private void endConversationIfNecessary(MethodMetadata method, Object result)
    {
       boolean isEndAnnotation = method.isAnnotationPresent(End.class);
       boolean isEndTaskAnnotation = method.isAnnotationPresent(EndTask.class);
@@ -263,7 +269,7 @@ public class ConversationInterceptor extends AbstractInterceptor
             ( isEndTaskAnnotation && method.getAnnotation(EndTask.class).ifOutcome().length==0 );
       if ( simpleEnd )
       {
-         if ( result!=null || method.getReturnType().equals(void.class) ) //null outcome interpreted as redisplay
+         if ( result!=null || method.isVoid() ) //null outcome interpreted as redisplay
          {
             endConversation(beforeRedirect, endRoot);
          }
@@ -4,6 +4,7 @@ import java.util.Map;
 
 import org.jboss.seam.Component;
 import org.jboss.seam.ScopeType;
+import org.jboss.seam.annotations.ConversationLockType;
 import org.jboss.seam.annotations.Install;
 import org.jboss.seam.annotations.Name;
 import org.jboss.seam.annotations.Scope;
@@ -41,6 +42,7 @@ public class ConversationPropagation
    private boolean validateLongRunningConversation;
    private PropagationType propagationType;   
    private String pageflow;
+   private ConversationLockType conversationLockType;
 
    /**
     * Initialize the request conversation id, taking
@@ -57,6 +59,19 @@ public class ConversationPropagation
       restorePageContextConversationId();
       getPropagationFromRequestParameter(parameters);
       handlePropagationType(parameters);
+      restoreConversationLockType();
+   }
+   
+   private void restoreConversationLockType()
+   {
+      if (conversationLockType==null)
+      {
+         String viewId = Pages.getCurrentViewId();
+         if ( viewId!=null )
+         {
+            conversationLockType = Pages.instance().getConversationLockType(viewId);
+         }
+      }
    }
 
    private void handlePropagationType(Map parameters)
@@ -297,4 +312,18 @@ public class ConversationPropagation
    {
       return this.conversationName;
    }
+   
+   /**
+    * @return the lock to take on the restored conversation,
+    *         or null for the default WRITE lock
+    */
+   public ConversationLockType getConversationLockType()
+   {
+      return conversationLockType;
+   }
+   
+   public void setConversationLockType(ConversationLockType conversationLockType)
+   {
+      this.conversationLockType = conversationLockType;
+   }
 }
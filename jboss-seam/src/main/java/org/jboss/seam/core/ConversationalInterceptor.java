@@ -1,8 +1,7 @@
 //$Id: ConversationalInterceptor.java 8626 2008-08-07 19:50:09Z pete.muir@jboss.org $
 package org.jboss.seam.core;
 
-import java.lang.reflect.Method;
-
+import org.jboss.seam.MethodMetadata;
 import org.jboss.seam.NoConversationException;
 import org.jboss.seam.annotations.Begin;
 import org.jboss.seam.annotations.Conversational;
@@ -32,7 +31,7 @@ public class ConversationalInterceptor extends AbstractInterceptor
    @AroundInvoke
    public Object aroundInvoke(InvocationContext invocation) throws Exception
    {
-      Method method = invocation.getMethod();
+      MethodMetadata method = getComponent().getMethodMetadata( invocation.getMethod() );
 
       if ( isNoConversationForConversationalBean(method) )
       {
@@ -44,7 +43,7 @@ public class ConversationalInterceptor extends AbstractInterceptor
    
    }
    
-   private boolean isNoConversationForConversationalBean(Method method)
+   private boolean isNoConversationForConversationalBean(MethodMetadata method)
    {
       boolean classlevelViolation = componentIsConversational() && 
             !Manager.instance().isLongRunningOrNestedConversation()  &&
@@ -63,7 +62,7 @@ public class ConversationalInterceptor extends AbstractInterceptor
       
    }
 
-   private boolean methodIsConversational(Method method) 
+   private boolean methodIsConversational(MethodMetadata method) 
    {
       return method.isAnnotationPresent(Conversational.class);
    }
@@ -2,6 +2,7 @@ package org.jboss.seam.core;
 
 import java.lang.reflect.Method;
 
+import org.jboss.seam.MethodMetadata;
 import org.jboss.seam.annotations.RaiseEvent;
 import org.jboss.seam.annotations.intercept.AroundInvoke;
 import org.jboss.seam.annotations.intercept.Interceptor;
@@ -50,12 +51,13 @@ public class EventInterceptor extends AbstractInterceptor
    public Object aroundInvoke(InvocationContext ctx) throws Exception
    {
       Object result = ctx.proceed();
-      Method method = ctx.getMethod();
-      if ( result!=null || method.getReturnType().equals(void.class) )
+      MethodMetadata method = getComponent().getMethodMetadata( ctx.getMethod() );
+      if ( result!=null || method.isVoid() )
       {
-         if ( method.isAnnotationPresent(RaiseEvent.class) )
+         RaiseEvent raiseEvent = method.getAnnotation(RaiseEvent.class);
+         if ( raiseEvent!=null )
          {
-            String[] types = method.getAnnotation(RaiseEvent.class).value();
+            String[] types = raiseEvent.value();
             if ( types.length==0 )
             {
                Events.instance().raiseEvent( method.getName() );
@@ -77,4 +79,10 @@ public class EventInterceptor extends AbstractInterceptor
       return getComponent().beanClassHasAnnotation(RaiseEvent.class); 
    }
    
+   @Override
+   public boolean isInterceptorEnabled(Method method)
+   {
+      return getComponent().getMethodMetadata(method).isAnnotationPresent(RaiseEvent.class);
+   }
+   
 }
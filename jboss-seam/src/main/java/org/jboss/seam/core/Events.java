@@ -59,8 +59,13 @@ public class Events
    public void raiseEvent(String type, Object... parameters)
    {
       //TODO: find a way to map event parameters to params in an EL-defined listener
-      log.trace("Processing event:" + type);
-      List<Init.ObserverMethodExpression> list = Init.instance().getObserverMethodExpressions(type);
+      if ( log.isTraceEnabled() ) log.trace("Processing event:" + type);
+      Init init = Init.instance();
+      if ( !init.isObserved(type) )
+      {
+         return;
+      }
+      List<Init.ObserverMethodExpression> list = init.getObserverMethodExpressions(type);
       if (list!=null)
       {
          for (ObserverMethodExpression listener: list )
@@ -68,7 +73,7 @@ public class Events
             listener.getMethodBinding().invoke(parameters);
          }
       }
-      List<Init.ObserverMethod> observers = Init.instance().getObserverMethods(type);
+      List<Init.ObserverMethod> observers = init.getObserverMethods(type);
       if (observers!=null)
       {
          for (ObserverMethod observer: observers)
@@ -19,10 +19,12 @@ import org.jboss.seam.Component;
 import org.jboss.seam.ScopeType;
 import org.jboss.seam.annotations.Install;
 import org.jboss.seam.annotations.Name;
+import org.jboss.seam.annotations.Observer;
 import org.jboss.seam.annotations.Scope;
 import org.jboss.seam.annotations.intercept.BypassInterceptors;
 import org.jboss.seam.contexts.Contexts;
 import org.jboss.seam.el.EL;
+import org.jboss.seam.el.ExpressionCache;
 import org.jboss.seam.el.SeamExpressionFactory;
 import org.jboss.seam.log.LogProvider;
 import org.jboss.seam.log.Logging;
@@ -43,6 +45,9 @@ public class Expressions implements Serializable
    private static final LogProvider log = Logging.getLogProvider(Expressions.class);
    private static List<String> blacklist = new ArrayList<String>();
    
+   private int cacheSize = 1024;
+   private transient volatile ExpressionCache expressionCache;
+   
    // loading blacklisted patterns of non-valid EL expressions
    static 
    {
@@ -149,7 +154,7 @@ public class Expressions implements Serializable
          
          private javax.el.ValueExpression createExpression()
          {
-            return getExpressionFactory().createValueExpression( getELContext(), expression, type );
+            return getExpressionCache().getValueExpression( getExpressionFactory(), getELContext(), expression, type );
          }
          
          public T getValue()
@@ -214,7 +219,7 @@ public class Expressions implements Serializable
          
          private javax.el.MethodExpression createExpression()
          {
-            return getExpressionFactory().createMethodExpression( getELContext(), expression, type, argTypes );
+            return getExpressionCache().getMethodExpression( getExpressionFactory(), getELContext(), expression, type, argTypes );
          }
          
          public T invoke(Object... args)
@@ -275,6 +280,57 @@ public class Expressions implements Serializable
    {
       return false;
    }
+   
+   /**
+    * Forget the parsed expressions, since they may refer to
+    * classes which have been redeployed
+    */
+   @Observer("org.jboss.seam.postReInitialization")
+   public void clearExpressionCache()
+   {
+      getExpressionCache().clear();
+   }
+   
+   /**
+    * The cache of parsed expressions of this application, with
+    * its statistics
+    */
+   public ExpressionCache getExpressionCache()
+   {
+      ExpressionCache cache = expressionCache;
+      if (cache==null)
+      {
+         synchronized (this)
+         {
+            cache = expressionCache;
+            if (cache==null)
+            {
+               cache = new ExpressionCache(cacheSize);
+               expressionCache = cache;
+            }
+         }
+      }
+      return cache;
+   }
+   
+   /**
+    * The maximum number of parsed expressions remembered,
+    * 1024 by default
+    */
+   public int getCacheSize()
+   {
+      return cacheSize;
+   }
+   
+   public void setCacheSize(int cacheSize)
+   {
+      if (cacheSize<1)
+      {
+         throw new IllegalArgumentException("cacheSize must be at least 1");
+      }
+      this.cacheSize = cacheSize;
+      expressionCache = null;
+   }
 
    /*
     * Gets the validator from the Component object (if this is a Seam
@@ -9,6 +9,7 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -84,11 +85,15 @@ public class Init
    private boolean myFacesLifecycleBug;
    private boolean transactionManagementEnabled = true;
    private boolean distributable = false;
+   private boolean contextVariableEvents = true;
    
    private List<String> interceptors = new ArrayList<String>(DEFAULT_INTERCEPTORS);
    
-   private Map<String, List<ObserverMethod>> observerMethods = new HashMap<String, List<ObserverMethod>>();
-   private Map<String, List<ObserverMethodExpression>> observerMethodBindings = new HashMap<String, List<ObserverMethodExpression>>();
+   //copy-on-write, since events are raised far more often than observers are registered
+   private volatile Map<String, List<ObserverMethod>> observerMethods = Collections.emptyMap();
+   private volatile Map<String, List<ObserverMethodExpression>> observerMethodBindings = Collections.emptyMap();
+   private volatile Set<String> observedEventTypes = Collections.emptySet();
+   private volatile boolean contextVariableEventsObserved;
    private Map<String, FactoryMethod> factories = new HashMap<String, FactoryMethod>();
    private Map<String, FactoryExpression> factoryMethodExpressions = new HashMap<String, FactoryExpression>();
    private Map<String, FactoryExpression> factoryValueExpressions = new HashMap<String, FactoryExpression>();
@@ -363,31 +368,30 @@ public class Init
       return observerMethodBindings.get(eventType);
    }
    
-   public void addObserverMethod(String eventType, Method method, Component component, boolean create)
+   /**
+    * Is there any observer method or observer method expression
+    * for the given event type?
+    */
+   public boolean isObserved(String eventType)
+   {
+      return observedEventTypes.contains(eventType);
+   }
+   
+   public synchronized void addObserverMethod(String eventType, Method method, Component component, boolean create)
    {
-      List<ObserverMethod> observerList = observerMethods.get(eventType);
-      if (observerList==null)
-      {
-         observerList = new ArrayList<ObserverMethod>();
-         observerMethods.put(eventType, observerList);
-      }
-      
       ObserverMethod observerMethod = new ObserverMethod(method, component, create); 
-      if (!observerList.contains(observerMethod))
+      List<ObserverMethod> observerList = observerMethods.get(eventType);
+      if ( observerList==null || !observerList.contains(observerMethod) )
       {
-         observerList.add( observerMethod );
+         observerMethods = addObserver(observerMethods, eventType, observerMethod);
+         updateObservedEventTypes();
       }
    }
    
-   public void addObserverMethodExpression(String eventType, MethodExpression methodBinding)
+   public synchronized void addObserverMethodExpression(String eventType, MethodExpression methodBinding)
    {
-      List<ObserverMethodExpression> observerList = observerMethodBindings.get(eventType);
-      if (observerList==null)
-      {
-         observerList = new ArrayList<ObserverMethodExpression>();
-         observerMethodBindings.put(eventType, observerList);
-      }
-      observerList.add( new ObserverMethodExpression(methodBinding) );
+      observerMethodBindings = addObserver( observerMethodBindings, eventType, new ObserverMethodExpression(methodBinding) );
+      updateObservedEventTypes();
    }
    
    /**
@@ -395,21 +399,54 @@ public class Init
     * out old observer methods on hot deploy
     * @param component
     */
-   public void removeObserverMethods(Component component)
+   public synchronized void removeObserverMethods(Component component)
    {
-      // TODO Better implementation ;-)
-      for (String eventType : observerMethods.keySet())
+      Map<String, List<ObserverMethod>> result = new HashMap<String, List<ObserverMethod>>();
+      for ( Map.Entry<String, List<ObserverMethod>> entry: observerMethods.entrySet() )
       {
-         List<ObserverMethod> observerMethodsToRemove = new ArrayList<ObserverMethod>();
-         for (ObserverMethod observerMethod : observerMethods.get(eventType))
+         List<ObserverMethod> observerList = new ArrayList<ObserverMethod>();
+         for ( ObserverMethod observerMethod: entry.getValue() )
          {
-            if (observerMethod.getComponent().equals(component))
+            if ( !observerMethod.getComponent().equals(component) )
             {
-               observerMethodsToRemove.add(observerMethod);
+               observerList.add(observerMethod);
             }
          }
-         observerMethods.get(eventType).removeAll(observerMethodsToRemove);
+         if ( !observerList.isEmpty() )
+         {
+            result.put( entry.getKey(), Collections.unmodifiableList(observerList) );
+         }
       }
+      observerMethods = Collections.unmodifiableMap(result);
+      updateObservedEventTypes();
+   }
+   
+   private static <T> Map<String, List<T>> addObserver(Map<String, List<T>> observers, String eventType, T observer)
+   {
+      Map<String, List<T>> result = new HashMap<String, List<T>>(observers);
+      List<T> observerList = result.get(eventType);
+      observerList = observerList==null ? new ArrayList<T>(1) : new ArrayList<T>(observerList);
+      observerList.add(observer);
+      result.put( eventType, Collections.unmodifiableList(observerList) );
+      return Collections.unmodifiableMap(result);
+   }
+   
+   private void updateObservedEventTypes()
+   {
+      Set<String> result = new HashSet<String>( observerMethods.keySet() );
+      result.addAll( observerMethodBindings.keySet() );
+      observedEventTypes = Collections.unmodifiableSet(result);
+      
+      boolean variableEventsObserved = false;
+      for (String eventType: result)
+      {
+         if ( Contexts.isContextVariableEventType(eventType) )
+         {
+            variableEventsObserved = true;
+            break;
+         }
+      }
+      contextVariableEventsObserved = variableEventsObserved;
    }
    
    public boolean isJbpmInstalled()
@@ -435,6 +472,30 @@ public class Init
       this.debug = debug;
    }
    
+   /**
+    * Should the org.jboss.seam.preSetVariable, postSetVariable,
+    * preRemoveVariable and postRemoveVariable events be raised
+    * when a context variable is written? Even when enabled, they
+    * are only raised if something observes them.
+    */
+   public boolean isContextVariableEvents()
+   {
+      return contextVariableEvents;
+   }
+   public void setContextVariableEvents(boolean contextVariableEvents)
+   {
+      this.contextVariableEvents = contextVariableEvents;
+   }
+   
+   /**
+    * Are context variable events enabled, and is there any 
+    * observer for a context variable event?
+    */
+   public boolean isContextVariableEventsObserved()
+   {
+      return contextVariableEvents && contextVariableEventsObserved;
+   }
+   
    /**
     * The debug page is considered available if debug JAR is on the classpath
     * and Seam is running in debug mode (to prevent it from being enabling in
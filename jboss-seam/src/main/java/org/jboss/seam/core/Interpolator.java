@@ -4,6 +4,8 @@ import static org.jboss.seam.ScopeType.STATELESS;
 import static org.jboss.seam.annotations.Install.BUILT_IN;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.StringTokenizer;
 
 import org.jboss.seam.Component;
@@ -15,6 +17,7 @@ import org.jboss.seam.annotations.intercept.BypassInterceptors;
 import org.jboss.seam.contexts.Contexts;
 import org.jboss.seam.log.LogProvider;
 import org.jboss.seam.log.Logging;
+import org.jboss.seam.util.LruCache;
 
 /**
  * Interpolates EL expressions in Strings
@@ -30,6 +33,12 @@ public class Interpolator
    
    private static final LogProvider log = Logging.getLogProvider(Interpolator.class);
    
+   private static final int MAX_TEMPLATES = 1000;
+   
+   //templates come from a small set of message keys, so they are
+   //compiled once and shared by every Interpolator
+   private static final LruCache<String, Template> templates = new LruCache<String, Template>(MAX_TEMPLATES);
+   
    public static Interpolator instance()
    {
       if (Contexts.isApplicationContextActive())
@@ -75,9 +84,26 @@ public class Interpolator
    }
    
    private String interpolateExpressions(String string, Object... params)
+   {
+      Template template = templates.get(string);
+      if (template==null)
+      {
+         template = compile(string);
+         templates.put(string, template);
+      }
+      return template.render(params);
+   }
+   
+   /**
+    * Split a template into literal text, EL expressions, positional
+    * parameters and MessageFormat patterns, once, so that rendering
+    * it again need not tokenize it again
+    */
+   static Template compile(String string)
    {
       StringTokenizer tokens = new StringTokenizer(string, "#{}", true);
-      StringBuilder builder = new StringBuilder(string.length());
+      Template template = new Template(string);
+      StringBuilder literal = new StringBuilder();
       
       while (tokens.hasMoreTokens())
       {
@@ -89,52 +115,33 @@ public class Interpolator
             
             while (nextTok.equals("#") && tokens.hasMoreTokens())
             {
-               builder.append(tok);
+               literal.append(tok);
                nextTok = tokens.nextToken();
             }
             
             if ("{".equals(nextTok))
             {
                String expression = "#{" + tokens.nextToken() + "}";
-               try
-               {
-                  Object value = Expressions.instance().createValueExpression(expression).getValue();
-                  if (value != null)
-                     builder.append(value);
-               }
-               catch (Exception e)
-               {
-                  log.debug("exception interpolating string: " + string, e);
-               }
+               template.add( literal, new ExpressionSegment(expression) );
                tokens.nextToken(); // the trailing "}"
                
             }
             else if (nextTok.equals("#"))
             {
                // could be trailing #
-               builder.append("#");
+               literal.append("#");
                
             }
             else
             {
-               int index;
                try
                {
-                  index = Integer.parseInt(nextTok.substring(0, 1));
-                  if (index >= params.length)
-                  {
-                     // log.warn("parameter index out of bounds: " + index +
-                     // " in: " + string);
-                     builder.append("#").append(nextTok);
-                  }
-                  else
-                  {
-                     builder.append(params[index]).append(nextTok.substring(1));
-                  }
+                  int index = Integer.parseInt(nextTok.substring(0, 1));
+                  template.add( literal, new ParameterSegment(index, nextTok) );
                }
                catch (NumberFormatException nfe)
                {
-                  builder.append("#").append(nextTok);
+                  literal.append("#").append(nextTok);
                }
             }
          }
@@ -158,23 +165,7 @@ public class Interpolator
                {
                   if (--level == 0)
                   {
-                     try
-                     {
-                        if (params.length == 0)
-                        {
-                           builder.append(expr.toString());
-                        }
-                        else
-                        {
-                           String value = new MessageFormat(expr.toString(), Locale.instance()).format(params);
-                           builder.append(value);
-                        }
-                     }
-                     catch (Exception e)
-                     {
-                        // if it is a bad message, use the expression itself
-                        builder.append(expr);
-                     }
+                     template.add( literal, new MessageFormatSegment( expr.toString() ) );
                      expr = null;
                      break;
                   }
@@ -183,16 +174,166 @@ public class Interpolator
             
             if (expr != null)
             {
-               builder.append(expr);
+               literal.append(expr);
             }
          }
          else
          {
-            builder.append(tok);
+            literal.append(tok);
+         }
+      }
+      
+      template.add(literal, null);
+      return template;
+   }
+   
+   /**
+    * A compiled template
+    */
+   static class Template
+   {
+      private final String string;
+      private final List<Segment> segments = new ArrayList<Segment>();
+      
+      Template(String string)
+      {
+         this.string = string;
+      }
+      
+      void add(StringBuilder literal, Segment segment)
+      {
+         if ( literal.length()>0 )
+         {
+            segments.add( new LiteralSegment( literal.toString() ) );
+            literal.setLength(0);
+         }
+         if (segment!=null)
+         {
+            segments.add(segment);
          }
       }
       
-      return builder.toString();
+      String render(Object[] params)
+      {
+         StringBuilder builder = new StringBuilder( string.length() );
+         for (Segment segment: segments)
+         {
+            segment.render(builder, params, string);
+         }
+         return builder.toString();
+      }
+   }
+   
+   static abstract class Segment
+   {
+      abstract void render(StringBuilder builder, Object[] params, String template);
+   }
+   
+   static class LiteralSegment extends Segment
+   {
+      private final String text;
+      
+      LiteralSegment(String text)
+      {
+         this.text = text;
+      }
+      
+      @Override
+      void render(StringBuilder builder, Object[] params, String template)
+      {
+         builder.append(text);
+      }
+   }
+   
+   static class ExpressionSegment extends Segment
+   {
+      private final String expression;
+      
+      ExpressionSegment(String expression)
+      {
+         this.expression = expression;
+      }
+      
+      @Override
+      void render(StringBuilder builder, Object[] params, String template)
+      {
+         try
+         {
+            Object value = Expressions.instance().createValueExpression(expression).getValue();
+            if (value != null)
+               builder.append(value);
+         }
+         catch (Exception e)
+         {
+            log.debug("exception interpolating string: " + template, e);
+         }
+      }
+   }
+   
+   /**
+    * A #0 to #9 parameter, followed by the rest of its token
+    */
+   static class ParameterSegment extends Segment
+   {
+      private final int index;
+      private final String token;
+      
+      ParameterSegment(int index, String token)
+      {
+         this.index = index;
+         this.token = token;
+      }
+      
+      @Override
+      void render(StringBuilder builder, Object[] params, String template)
+      {
+         if (index >= params.length)
+         {
+            // log.warn("parameter index out of bounds: " + index +
+            // " in: " + string);
+            builder.append("#").append(token);
+         }
+         else
+         {
+            builder.append(params[index]).append(token.substring(1));
+         }
+      }
+   }
+   
+   /**
+    * A {...} pattern, which is formatted by MessageFormat if there are
+    * any parameters
+    */
+   static class MessageFormatSegment extends Segment
+   {
+      private final String pattern;
+      
+      MessageFormatSegment(String pattern)
+      {
+         this.pattern = pattern;
+      }
+      
+      @Override
+      void render(StringBuilder builder, Object[] params, String template)
+      {
+         try
+         {
+            if (params.length == 0)
+            {
+               builder.append(pattern);
+            }
+            else
+            {
+               String value = new MessageFormat(pattern, Locale.instance()).format(params);
+               builder.append(value);
+            }
+         }
+         catch (Exception e)
+         {
+            // if it is a bad message, use the expression itself
+            builder.append(pattern);
+         }
+      }
    }
    
 }
@@ -19,6 +19,7 @@ import java.util.Map;
 import org.jboss.seam.Component;
 import org.jboss.seam.ConcurrentRequestTimeoutException;
 import org.jboss.seam.ScopeType;
+import org.jboss.seam.annotations.ConversationLockType;
 import org.jboss.seam.annotations.FlushModeType;
 import org.jboss.seam.annotations.Install;
 import org.jboss.seam.annotations.Name;
@@ -32,6 +33,7 @@ import org.jboss.seam.navigation.ConversationIdParameter;
 import org.jboss.seam.navigation.Pages;
 import org.jboss.seam.pageflow.Pageflow;
 import org.jboss.seam.util.Id;
+import org.jboss.seam.web.ConversationTimeoutReaper;
 import org.jboss.seam.web.Session;
 
 /**
@@ -380,14 +382,33 @@ public class Manager
     */
    public void conversationTimeout(Map<String, Object> session)
    {
+      conversationTimeout(session, true);
+   }
+   
+   /**
+    * Clean up timed-out conversations
+    * 
+    * @param destroyLockedConversations should conversations which are 
+    *        still locked by some other request be destroyed, on the 
+    *        assumption that the lock is garbage?
+    * @return true if any conversation was destroyed
+    */
+   public boolean conversationTimeout(Map<String, Object> session, boolean destroyLockedConversations)
+   {
+      boolean destroyed = false;
       long currentTime = System.currentTimeMillis();
       ConversationEntries conversationEntries = ConversationEntries.getInstance();
       if (conversationEntries!=null)
       {
-         List<ConversationEntry> entries = new ArrayList<ConversationEntry>( conversationEntries.getConversationEntries() );
+         List<ConversationEntry> entries = conversationEntries.getExpiredConversationEntries( currentTime, getConversationTimeout() );
          for (ConversationEntry conversationEntry: entries)
          {
             boolean locked = conversationEntry.lockNoWait(); //we had better not wait for it, or we would be waiting for ALL other requests
+            if ( !locked && !destroyLockedConversations )
+            {
+               //a request is still using the conversation, try again next time
+               continue;
+            }
             try
             {
                long delta = currentTime - conversationEntry.getLastRequestTime();
@@ -419,6 +440,7 @@ public class Manager
                      Events.instance().raiseEvent(EVENT_CONVERSATION_TIMEOUT, conversationEntry.getId());
                   }
                   destroyConversation( conversationEntry.getId(), session );
+                  destroyed = true;
                }
             }
             finally
@@ -427,6 +449,7 @@ public class Manager
             }
          }
       }
+      return destroyed;
    }
 
    /**
@@ -440,7 +463,9 @@ public class Manager
 
    /**
     * Touch the conversation stack, destroy ended conversations, 
-    * and timeout inactive conversations.
+    * and timeout inactive conversations, unless conversations 
+    * are timed out in the background by the 
+    * ConversationTimeoutReaper.
     */
    public void endRequest(Map<String, Object> session)
    {
@@ -468,7 +493,10 @@ public class Manager
          // right now we do have to do it after committing the Seam
          // transaction because we can't close EMs inside a txn
          // (this might be a bug in HEM)
-         Manager.instance().conversationTimeout(session);
+         if ( ConversationTimeoutReaper.getInstance()==null )
+         {
+            Manager.instance().conversationTimeout(session);
+         }
       //}
    }
    
@@ -603,10 +631,10 @@ public class Manager
          }
       }
       
-      return restoreAndLockConversation(ce) || !cp.isValidateLongRunningConversation();
+      return restoreAndLockConversation( ce, cp.getConversationLockType() ) || !cp.isValidateLongRunningConversation();
    }
 
-   private boolean restoreAndLockConversation(ConversationEntry ce)
+   private boolean restoreAndLockConversation(ConversationEntry ce, ConversationLockType lockType)
    {
       if (ce == null)
       {
@@ -616,14 +644,18 @@ public class Manager
          initializeTemporaryConversation();
          return false;
       }
-      else if ( ce.lock() )
+      else if ( lockType==null ? ce.lock() : ce.lock(lockType) )
       {
          // do this ASAP, since there is a window where conversationTimeout() might  
          // try to destroy the conversation, even if he cannot obtain the lock!
          touchConversationStack( ce.getConversationIdStack() );
 
          //we found an id and obtained the lock, so restore the long-running conversation
-         log.debug("Restoring conversation with id: " + ce.getId());
+         if ( log.isDebugEnabled() )
+         {
+            log.debug("Restoring conversation with id: " + ce.getId() + 
+                  (ce.isReadLockedByCurrentThread() ? " (shared)" : ""));
+         }
          setLongRunningConversation(true);
          setCurrentConversationId( ce.getId() );
          setCurrentConversationIdStack( ce.getConversationIdStack() );
@@ -792,7 +824,11 @@ public class Manager
       ConversationEntry ce = ConversationEntries.instance().getConversationEntry(id);
       if (ce!=null)
       {
-         if ( ce.lock() )
+         //a request which shares the lock of the conversation stack 
+         //can't upgrade it, so it stays a reader of the other conversation
+         boolean locked = ce.isReadLockedByCurrentThread() ? 
+               ce.lock(ConversationLockType.READ) : ce.lock();
+         if (locked)
          {
             unlockConversation();
             setCurrentConversationId(id);
@@ -0,0 +1,174 @@
+package org.jboss.seam.el;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.el.ELContext;
+import javax.el.ExpressionFactory;
+import javax.el.MethodExpression;
+import javax.el.ValueExpression;
+
+import org.jboss.seam.util.LruCache;
+
+/**
+ * Remembers parsed value and method expressions by expression
+ * factory, expression string and expected type, so that the
+ * same expression string is parsed just once, no matter how
+ * many times it is wrapped by the Expressions component.
+ *
+ * Parsed expressions hold no reference to the ELContext they
+ * were parsed with, so the same parsed expression is used with
+ * both the JSF and the Seam ELContext.
+ *
+ * The cache holds at most a fixed number of expressions. When it
+ * is full, the least recently used expressions are forgotten to
+ * make room. Each application has its own cache, held by its
+ * Expressions component.
+ *
+ * @see org.jboss.seam.core.Expressions
+ */
+public final class ExpressionCache
+{
+   private static final Class[] NO_CLASSES = {};
+
+   private final LruCache<Key, Object> expressions;
+
+   private final AtomicLong hits = new AtomicLong();
+   private final AtomicLong misses = new AtomicLong();
+
+   public ExpressionCache(int maxSize)
+   {
+      expressions = new LruCache<Key, Object>(maxSize);
+   }
+
+   public ValueExpression getValueExpression(ExpressionFactory factory, ELContext context, String expression, Class expectedType)
+   {
+      Key key = new Key(factory, false, expression, expectedType, NO_CLASSES);
+      ValueExpression result = (ValueExpression) get(key);
+      if (result==null)
+      {
+         result = factory.createValueExpression(context, expression, expectedType);
+         put(key, result);
+      }
+      return result;
+   }
+
+   public MethodExpression getMethodExpression(ExpressionFactory factory, ELContext context, String expression, Class expectedType, Class[] paramTypes)
+   {
+      Key key = new Key(factory, true, expression, expectedType, paramTypes);
+      MethodExpression result = (MethodExpression) get(key);
+      if (result==null)
+      {
+         result = factory.createMethodExpression(context, expression, expectedType, paramTypes);
+         put(key, result);
+      }
+      return result;
+   }
+
+   private Object get(Key key)
+   {
+      Object result = expressions.get(key);
+      if (result==null)
+      {
+         misses.incrementAndGet();
+      }
+      else
+      {
+         hits.incrementAndGet();
+      }
+      return result;
+   }
+
+   private void put(Key key, Object expression)
+   {
+      expressions.put(key, expression);
+   }
+
+   /**
+    * Forget every parsed expression, for example because the
+    * classes they refer to have been redeployed
+    */
+   public void clear()
+   {
+      expressions.clear();
+   }
+
+   public int getSize()
+   {
+      return expressions.size();
+   }
+
+   public int getMaxSize()
+   {
+      return expressions.getMaxSize();
+   }
+
+   public long getHits()
+   {
+      return hits.get();
+   }
+
+   public long getMisses()
+   {
+      return misses.get();
+   }
+
+   /**
+    * The fraction of lookups, since startup or the last reset,
+    * that found a parsed expression
+    */
+   public double getHitRate()
+   {
+      long hits = this.hits.get();
+      long total = hits + misses.get();
+      return total==0 ? 0 : (double) hits / total;
+   }
+
+   public void resetStatistics()
+   {
+      hits.set(0);
+      misses.set(0);
+   }
+
+   static final class Key
+   {
+      private final ExpressionFactory factory;
+      private final boolean method;
+      private final String expression;
+      private final Class expectedType;
+      private final Class[] paramTypes;
+      private final int hashCode;
+
+      Key(ExpressionFactory factory, boolean method, String expression, Class expectedType, Class[] paramTypes)
+      {
+         this.factory = factory;
+         this.method = method;
+         this.expression = expression;
+         this.expectedType = expectedType;
+         this.paramTypes = paramTypes==null ? NO_CLASSES : paramTypes;
+         int result = expression==null ? 0 : expression.hashCode();
+         result = result * 31 + (expectedType==null ? 0 : expectedType.hashCode());
+         result = result * 31 + Arrays.hashCode(this.paramTypes);
+         this.hashCode = method ? ~result : result;
+      }
+
+      @Override
+      public boolean equals(Object other)
+      {
+         if ( !(other instanceof Key) ) return false;
+         Key that = (Key) other;
+         return hashCode==that.hashCode &&
+               factory==that.factory &&
+               method==that.method &&
+               ( expression==null ? that.expression==null : expression.equals(that.expression) ) &&
+               expectedType==that.expectedType &&
+               Arrays.equals(paramTypes, that.paramTypes);
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return hashCode;
+      }
+   }
+}
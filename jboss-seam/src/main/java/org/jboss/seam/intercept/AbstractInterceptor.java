@@ -2,6 +2,7 @@
 package org.jboss.seam.intercept;
 
 import java.io.Serializable;
+import java.lang.reflect.Method;
 
 import org.jboss.seam.Component;
 
@@ -30,5 +31,15 @@ public abstract class AbstractInterceptor implements Serializable, OptimizedInte
       }
       return component;
    }
+   
+   /**
+    * Returns true if this interceptor has work to do when the given
+    * method is invoked. The interceptor is left out of the interceptor
+    * chain of methods for which this returns false.
+    */
+   public boolean isInterceptorEnabled(Method method)
+   {
+      return true;
+   }
 
 }
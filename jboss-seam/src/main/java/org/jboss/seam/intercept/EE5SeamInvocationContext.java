@@ -17,11 +17,28 @@ class EE5SeamInvocationContext extends SeamInvocationContext implements javax.in
    {
       super(context, type, userInterceptors, interceptors);
    }
+   
+   public EE5SeamInvocationContext(InvocationContext context, EventType type, List<Object> userInterceptors, List<Interceptor> interceptors, int[] chain)
+   {
+      super(context, type, userInterceptors, interceptors, chain);
+   }
 
    public Object getTimer()
    {
       // not supported method
       return null;
    }
+   
+   /**
+    * Only loaded when the EE5 InvocationContext API is available
+    */
+   static class Factory extends SeamInvocationContext.Factory
+   {
+      @Override
+      SeamInvocationContext create(InvocationContext context, EventType type, List<Object> userInterceptors, List<Interceptor> interceptors, int[] chain)
+      {
+         return new EE5SeamInvocationContext(context, type, userInterceptors, interceptors, chain);
+      }
+   }
 
 }
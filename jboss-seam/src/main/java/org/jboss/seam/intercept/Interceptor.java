@@ -264,4 +264,16 @@ public final class Interceptor extends Reflections
       }
    }
    
+   /**
+    * Return true if the interceptor has work to do when the given method
+    * of the component is invoked
+    * 
+    * Called once for each method, to build the interceptor chain of the method
+    */
+   public boolean isInterceptorEnabled(Method method)
+   {
+      return !(statelessUserInterceptorInstance instanceof AbstractInterceptor) || 
+            ( (AbstractInterceptor) statelessUserInterceptorInstance ).isInterceptorEnabled(method);
+   }
+   
 }
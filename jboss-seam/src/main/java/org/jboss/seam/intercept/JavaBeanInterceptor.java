@@ -11,7 +11,6 @@ import javax.servlet.http.HttpSessionEvent;
 
 import org.jboss.seam.Component;
 import org.jboss.seam.ComponentType;
-import org.jboss.seam.annotations.ReadOnly;
 import org.jboss.seam.annotations.intercept.InterceptorType;
 import org.jboss.seam.core.Mutable;
 
@@ -118,8 +117,7 @@ public class JavaBeanInterceptor extends RootInterceptor
 
    private boolean markDirty(Method method)
    {
-      return !getComponent().getBeanClass().isAnnotationPresent(ReadOnly.class) && 
-            !method.isAnnotationPresent(ReadOnly.class);
+      return !getComponent().getMethodMetadata(method).isReadOnly();
    }
    
    public void postConstruct()
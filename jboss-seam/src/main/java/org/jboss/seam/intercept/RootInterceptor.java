@@ -7,7 +7,6 @@
 package org.jboss.seam.intercept;
 
 import java.io.Serializable;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.util.List;
 
@@ -126,13 +125,14 @@ public class RootInterceptor implements Serializable
 
    private InvocationContext createInvocationContext(InvocationContext invocation, EventType eventType) throws Exception
    {
-      if ( isProcessInterceptors( invocation.getMethod(), invocation.getTarget() ) )
+      int[] chain = getInterceptorChain(invocation, eventType);
+      if ( chain.length>0 )
       {
          if ( log.isTraceEnabled() ) 
          {
             log.trace( "intercepted: " + getInterceptionMessage(invocation, eventType) );
          }
-         return createSeamInvocationContext(invocation, eventType);
+         return FACTORY.create( invocation, eventType, userInterceptors, getComponent().getInterceptors(type), chain );
       }
       else 
       {
@@ -144,27 +144,43 @@ public class RootInterceptor implements Serializable
       }
    }
 
-   private SeamInvocationContext createSeamInvocationContext(InvocationContext invocation, EventType eventType) throws Exception
+   /**
+    * The interceptors to call for this invocation. For a business 
+    * method, the chain is computed once, by the Component, and leaves
+    * out @BypassInterceptors methods and interceptors which have 
+    * nothing to do for the method.
+    */
+   private int[] getInterceptorChain(InvocationContext invocation, EventType eventType)
    {
-      return EJB.INVOCATION_CONTEXT_AVAILABLE ?
-            createEE5SeamInvocationContext(invocation, eventType) :
-            createNonEE5SeamInvocationContext(invocation, eventType);
-   }
-
-   private SeamInvocationContext createNonEE5SeamInvocationContext(InvocationContext invocation, EventType eventType)
-   {
-      return new SeamInvocationContext( invocation, eventType, userInterceptors, getComponent().getInterceptors(type) );
+      Method method = invocation.getMethod();
+      if ( !isSeamComponent || 
+            !getComponent().isInterceptionEnabled() || 
+            isClearDirtyMethod( method, invocation.getTarget() ) )
+      {
+         return NO_INTERCEPTORS;
+      }
+      else if ( eventType==EventType.AROUND_INVOKE && method!=null )
+      {
+         return getComponent().getInterceptorChain(type, method);
+      }
+      else
+      {
+         return isBypassed(method) ? NO_INTERCEPTORS : getComponent().getInterceptorChain(type, null);
+      }
    }
    
-   private static final Constructor CONSTRUCTOR;
+   private static final int[] NO_INTERCEPTORS = new int[0];
+   
+   //the EE5 context is created through a factory, which is only loaded 
+   //when the EE5 API is available, and is created reflectively just once
+   private static final SeamInvocationContext.Factory FACTORY;
    static
    {
       if ( EJB.INVOCATION_CONTEXT_AVAILABLE )
       {
          try
          {
-            Class[] paramTypes = {InvocationContext.class, EventType.class, List.class, List.class};
-            CONSTRUCTOR = Class.forName("org.jboss.seam.intercept.EE5SeamInvocationContext").getConstructor(paramTypes);
+            FACTORY = (SeamInvocationContext.Factory) Class.forName("org.jboss.seam.intercept.EE5SeamInvocationContext$Factory").newInstance();
          }
          catch (Exception e)
          {
@@ -173,39 +189,17 @@ public class RootInterceptor implements Serializable
       }
       else
       {
-         CONSTRUCTOR = null;
+         FACTORY = new SeamInvocationContext.Factory();
       }
       
    }
 
-   private SeamInvocationContext createEE5SeamInvocationContext(InvocationContext invocation, EventType eventType)
-   {
-      try
-      {
-         return (SeamInvocationContext) CONSTRUCTOR.newInstance( invocation, eventType, userInterceptors, getComponent().getInterceptors(type) );
-      }
-      catch (Exception e)
-      {
-         throw new RuntimeException(e);
-      }
-   }
-
    private String getInterceptionMessage(InvocationContext invocation, EventType eventType)
    {
       return getComponent().getName() + '.' + 
             ( eventType==EventType.AROUND_INVOKE ? invocation.getMethod().getName() : eventType );
    }
 
-   private boolean isProcessInterceptors(Method method, Object bean)
-   {
-      boolean res = isSeamComponent && 
-            getComponent().isInterceptionEnabled() &&
-            !isBypassed(method) &&
-            !isClearDirtyMethod(method, bean);
-
-      return res;
-   }
-
    private boolean isBypassed(Method method)
    {
       return method!=null && method.isAnnotationPresent(BypassInterceptors.class);
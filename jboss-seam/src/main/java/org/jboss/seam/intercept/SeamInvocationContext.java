@@ -19,14 +19,35 @@ class SeamInvocationContext implements InvocationContext
    private final InvocationContext context;
    private final List<Interceptor> interceptors;
    private final List<Object> userInterceptors;
+   private final int[] chain;
    int location = 0;
 
    public SeamInvocationContext(InvocationContext context, EventType type, List<Object> userInterceptors, List<Interceptor> interceptors)
+   {
+      this( context, type, userInterceptors, interceptors, allPositions( interceptors.size() ) );
+   }
+   
+   /**
+    * @param chain the positions, in the lists of interceptors, of the 
+    *        interceptors to call, in order
+    */
+   public SeamInvocationContext(InvocationContext context, EventType type, List<Object> userInterceptors, List<Interceptor> interceptors, int[] chain)
    {
       this.context = context;
       this.interceptors = interceptors;
       this.userInterceptors = userInterceptors;
       this.eventType = type;
+      this.chain = chain;
+   }
+   
+   static int[] allPositions(int size)
+   {
+      int[] positions = new int[size];
+      for (int i=0; i<size; i++)
+      {
+         positions[i] = i;
+      }
+      return positions;
    }
    
    public Object getTarget()
@@ -51,15 +72,15 @@ class SeamInvocationContext implements InvocationContext
 
    public Object proceed() throws Exception
    {
-      if ( location==interceptors.size() )
+      if ( location==chain.length )
       {
          return context.proceed();
       }
       else
       {
-         Object userInterceptor = userInterceptors.get(location);
-         Interceptor interceptor = interceptors.get(location);
-         location++;
+         int position = chain[location++];
+         Object userInterceptor = userInterceptors.get(position);
+         Interceptor interceptor = interceptors.get(position);
          switch (eventType)
          {
             case AROUND_INVOKE:
@@ -85,5 +106,16 @@ class SeamInvocationContext implements InvocationContext
    {
       context.setParameters(params);
    }
+   
+   /**
+    * Creates invocation contexts without reflection
+    */
+   static class Factory
+   {
+      SeamInvocationContext create(InvocationContext context, EventType type, List<Object> userInterceptors, List<Interceptor> interceptors, int[] chain)
+      {
+         return new SeamInvocationContext(context, type, userInterceptors, interceptors, chain);
+      }
+   }
 
 }
@@ -11,6 +11,7 @@ import javax.faces.component.UIViewRoot;
 import javax.faces.context.FacesContext;
 import javax.servlet.http.HttpServletResponse;
 
+import org.jboss.seam.annotations.ConversationLockType;
 import org.jboss.seam.core.Events;
 import org.jboss.seam.core.Interpolator;
 import org.jboss.seam.core.ResourceLoader;
@@ -31,6 +32,7 @@ public final class Page
    private String description;
    private Integer timeout;
    private Integer concurrentRequestTimeout;
+   private ConversationLockType conversationLockType;
    private ValueExpression<String> noConversationViewId;
    private String resourceBundleName;
    private boolean switchEnabled = true;
@@ -147,6 +149,16 @@ public final class Page
       return concurrentRequestTimeout;
    }
    
+   public void setConversationLockType(ConversationLockType conversationLockType)
+   {
+      this.conversationLockType = conversationLockType;
+   }
+   
+   public ConversationLockType getConversationLockType()
+   {
+      return conversationLockType;
+   }
+   
    public void setNoConversationViewId(ValueExpression<String> noConversationViewId)
    {
       this.noConversationViewId = noConversationViewId;
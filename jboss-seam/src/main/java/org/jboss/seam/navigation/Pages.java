@@ -18,6 +18,8 @@ import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.faces.application.FacesMessage;
 import javax.faces.application.FacesMessage.Severity;
@@ -33,6 +35,7 @@ import org.dom4j.DocumentException;
 import org.dom4j.Element;
 import org.jboss.seam.Component;
 import org.jboss.seam.ScopeType;
+import org.jboss.seam.annotations.ConversationLockType;
 import org.jboss.seam.annotations.Create;
 import org.jboss.seam.annotations.FlushModeType;
 import org.jboss.seam.annotations.Install;
@@ -85,12 +88,20 @@ public class Pages
    private Integer httpPort;
    private Integer httpsPort;
    
-   private Map<String, Page> pagesByViewId;  
-   private Map<String, List<Page>> pageStacksByViewId;   
-   private Map<String, ConversationIdParameter> conversations;    
+   private ConcurrentMap<String, Page> pagesByViewId;  
+   private ConcurrentMap<String, List<Page>> pageStacksByViewId;   
+   private ConcurrentMap<String, ConversationIdParameter> conversations;    
+   private ConcurrentMap<String, Param[]> parametersByViewId;
    
    private String[] resources = { "/WEB-INF/pages.xml" };
  
+   //the wildcard view ids, from least specific to most specific, 
+   //copied to an array once pages.xml has been parsed
+   private volatile String[] wildcardViewIdIndex = {};
+   
+   //incremented each time pages.xml has been parsed
+   private volatile int generation;
+   
    private SortedSet<String> wildcardViewIds = new TreeSet<String>( 
          new Comparator<String>() 
          {
@@ -125,9 +136,11 @@ public class Pages
    
    public void initialize(Set<FileDescriptor> fileNames)
    {
-      pagesByViewId = Collections.synchronizedMap(new HashMap<String, Page>());   
-      pageStacksByViewId = Collections.synchronizedMap(new HashMap<String, List<Page>>());   
-      conversations = Collections.synchronizedMap(new HashMap<String, ConversationIdParameter>());
+      pagesByViewId = new ConcurrentHashMap<String, Page>();   
+      pageStacksByViewId = new ConcurrentHashMap<String, List<Page>>();   
+      conversations = new ConcurrentHashMap<String, ConversationIdParameter>();
+      parametersByViewId = new ConcurrentHashMap<String, Param[]>();
+      wildcardViewIds.clear();
 
       for (String resource: resources) 
       {
@@ -149,6 +162,9 @@ public class Pages
       {
           parsePages(fileNames);
       }
+      
+      wildcardViewIdIndex = wildcardViewIds.toArray( new String[ wildcardViewIds.size() ] );
+      generation++;
    }
    
    private void parsePages(Set<FileDescriptor> files)
@@ -239,8 +255,8 @@ public class Pages
    private Page createPage(String viewId)
    {
       Page result = new Page(viewId);
-      pagesByViewId.put(viewId, result);
-      return result;
+      Page previous = pagesByViewId.putIfAbsent(viewId, result);
+      return previous==null ? result : previous;
    }
    
    private Page getCachedPage(String viewId)
@@ -256,14 +272,45 @@ public class Pages
     */
    protected List<Page> getPageStack(String viewId)
    {
+      if (viewId==null)
+      {
+         //for tests
+         return createPageStack(viewId);
+      }
       List<Page> stack = pageStacksByViewId.get(viewId);
       if (stack==null)
       {
-         stack = createPageStack(viewId);
+         //harmless if two threads both create the same stack
+         stack = Collections.unmodifiableList( createPageStack(viewId) );
          pageStacksByViewId.put(viewId, stack);
       }
       return stack;
    }
+   /**
+    * Get the page parameters of every Page in the stack for the
+    * given view id, from least specific to most specific.
+    * 
+    * @param viewId a JSF view id
+    */
+   protected Param[] getPageParameters(String viewId)
+   {
+      Param[] parameters = viewId==null ? null : parametersByViewId.get(viewId);
+      if (parameters==null)
+      {
+         List<Param> list = new ArrayList<Param>();
+         for ( Page page: getPageStack(viewId) )
+         {
+            list.addAll( page.getParameters() );
+         }
+         parameters = list.toArray( new Param[ list.size() ] );
+         if (viewId!=null)
+         {
+            parametersByViewId.put(viewId, parameters);
+         }
+      }
+      return parameters;
+   }
+   
    /**
     * Create the stack of pages that match a JSF view id
     */
@@ -272,9 +319,10 @@ public class Pages
       List<Page> stack = new ArrayList<Page>(1);
       if ( viewId!=null && !isDebugPage(viewId) )
       {
-         for (String wildcard: wildcardViewIds)
+         for (String wildcard: wildcardViewIdIndex)
          {
-            if ( viewId.startsWith( wildcard.substring(0, wildcard.length()-1) ) )
+            //compare everything but the trailing *
+            if ( viewId.regionMatches( 0, wildcard, 0, wildcard.length()-1 ) )
             {
                stack.add( getPage(wildcard) );
             }
@@ -746,28 +794,25 @@ public class Pages
    public Map<String, Object> getStringValuesFromModel(FacesContext facesContext, String viewId, Set<String> overridden)
    {
       Map<String, Object> parameters = new HashMap<String, Object>();
-      for ( Page page: getPageStack(viewId) )
+      for ( Param pageParameter: getPageParameters(viewId) )
       {
-         for ( Param pageParameter: page.getParameters() )
+         if ( !overridden.contains( pageParameter.getName() ) )
          {
-            if ( !overridden.contains( pageParameter.getName() ) )
-            {
-               String value = null;
-               if ( pageParameter.getValueExpression()==null )
-               {                  
-                  if (Contexts.isPageContextActive()) {
-                      value = (String) Contexts.getPageContext().get(pageParameter.getName());
-                  }
-               }
-               else
-               {
-                  value = pageParameter.getStringValueFromModel(facesContext);
-               }
-               if (value!=null) 
-               {
-                  parameters.put( pageParameter.getName(), value );
+            String value = null;
+            if ( pageParameter.getValueExpression()==null )
+            {                  
+               if (Contexts.isPageContextActive()) {
+                   value = (String) Contexts.getPageContext().get(pageParameter.getName());
                }
             }
+            else
+            {
+               value = pageParameter.getStringValueFromModel(facesContext);
+            }
+            if (value!=null) 
+            {
+               parameters.put( pageParameter.getName(), value );
+            }
          }
       }
       return parameters;
@@ -779,24 +824,21 @@ public class Pages
       if (parameters!=null) //for unit tests
       {
          Map<String, String[]> requestParameters = parameters.getRequestParameters();
-         for ( Page page: getPageStack( getViewId(facesContext) ) )
+         for ( Param pageParameter: getPageParameters( getViewId(facesContext) ) )
          {
-            for ( Param pageParameter: page.getParameters() )
+            String value = pageParameter.getStringValueFromRequest(facesContext, requestParameters);
+            if (value==null)
             {
-               String value = pageParameter.getStringValueFromRequest(facesContext, requestParameters);
-               if (value==null)
-               {
-                  //this should not be necessary, were it not for a MyFaces bug
-                  if ( facesContext.getRenderResponse() ) //ie. for a non-faces request
-                  {
-                     Contexts.getPageContext().remove( pageParameter.getName() );
-                  }
-               }
-               else
+               //this should not be necessary, were it not for a MyFaces bug
+               if ( facesContext.getRenderResponse() ) //ie. for a non-faces request
                {
-                  Contexts.getPageContext().set( pageParameter.getName(), value );
+                  Contexts.getPageContext().remove( pageParameter.getName() );
                }
             }
+            else
+            {
+               Contexts.getPageContext().set( pageParameter.getName(), value );
+            }
          }
       }
    }
@@ -807,37 +849,34 @@ public class Pages
    private boolean convertAndValidateStringValuesInPageContext(FacesContext facesContext)
    {
       boolean validationFailed = false;
-      for ( Page page: getPageStack( getViewId(facesContext) ) )
-      {
-         for ( Param pageParameter: page.getParameters() )
-         {  
-            try
+      for ( Param pageParameter: getPageParameters( getViewId(facesContext) ) )
+      {  
+         try
+         {
+            String value = (String) Contexts.getPageContext().get( pageParameter.getName() );
+            if (value!=null)
             {
-               String value = (String) Contexts.getPageContext().get( pageParameter.getName() );
-               if (value!=null)
-               {
-                  Object convertedValue = pageParameter.convertValueFromString(facesContext, value);
-                  pageParameter.validateConvertedValue(facesContext, convertedValue);
-                  Contexts.getEventContext().set( pageParameter.getName(), convertedValue );
-               }
+               Object convertedValue = pageParameter.convertValueFromString(facesContext, value);
+               pageParameter.validateConvertedValue(facesContext, convertedValue);
+               Contexts.getEventContext().set( pageParameter.getName(), convertedValue );
             }
-            catch (ValidatorException ve)
+         }
+         catch (ValidatorException ve)
+         {
+            if (ve.getFacesMessage() != null)
             {
-               if (ve.getFacesMessage() != null)
-               {
-                  facesContext.addMessage(null, ve.getFacesMessage());
-               }
-               
-               validationFailed = true;
+               facesContext.addMessage(null, ve.getFacesMessage());
             }
-            catch (ConverterException ce)
+            
+            validationFailed = true;
+         }
+         catch (ConverterException ce)
+         {
+            if (ce.getFacesMessage() != null)
             {
-               if (ce.getFacesMessage() != null)
-               {
-                  facesContext.addMessage( null, ce.getFacesMessage() );
-               }
-               validationFailed = true;
+               facesContext.addMessage( null, ce.getFacesMessage() );
             }
+            validationFailed = true;
          }
       }
       return validationFailed;
@@ -849,18 +888,15 @@ public class Pages
    private void applyConvertedValidatedValuesToModel(FacesContext facesContext)
    {
       String viewId = getViewId(facesContext);
-      for ( Page page: getPageStack(viewId) )
-      {
-         for ( Param pageParameter: page.getParameters() )
-         {         
-            ValueExpression valueExpression = pageParameter.getValueExpression();
-            if (valueExpression!=null)
+      for ( Param pageParameter: getPageParameters(viewId) )
+      {         
+         ValueExpression valueExpression = pageParameter.getValueExpression();
+         if (valueExpression!=null)
+         {
+            Object object = Contexts.getEventContext().get( pageParameter.getName() );
+            if (object!=null)
             {
-               Object object = Contexts.getEventContext().get( pageParameter.getName() );
-               if (object!=null)
-               {
-                  valueExpression.setValue(object);
-               }
+               valueExpression.setValue(object);
             }
          }
       }
@@ -874,15 +910,12 @@ public class Pages
    {
       Map<String, Object> parameters = new HashMap<String, Object>();
       String viewId = getViewId(facesContext);
-      for ( Page page: getPageStack(viewId) )
+      for ( Param pageParameter: getPageParameters(viewId) )
       {
-         for ( Param pageParameter: page.getParameters() )
+         Object object = Contexts.getPageContext().get( pageParameter.getName() );
+         if (object!=null)
          {
-            Object object = Contexts.getPageContext().get( pageParameter.getName() );
-            if (object!=null)
-            {
-               parameters.put( pageParameter.getName(), object );
-            }
+            parameters.put( pageParameter.getName(), object );
          }
       }
       return parameters;
@@ -894,21 +927,18 @@ public class Pages
     */
    public void updateStringValuesInPageContextUsingModel(FacesContext facesContext)
    {
-      for ( Page page: getPageStack( getViewId(facesContext) ) )
+      for ( Param pageParameter: getPageParameters( getViewId(facesContext) ) )
       {
-         for ( Param pageParameter: page.getParameters() )
+         if ( pageParameter.getValueExpression()!=null )
          {
-            if ( pageParameter.getValueExpression()!=null )
+            String value = pageParameter.getStringValueFromModel(facesContext);
+            if (value==null)
             {
-               String value = pageParameter.getStringValueFromModel(facesContext);
-               if (value==null)
-               {
-                  Contexts.getPageContext().remove( pageParameter.getName() );
-               }
-               else
-               {
-                  Contexts.getPageContext().set( pageParameter.getName(), value );
-               }
+               Contexts.getPageContext().remove( pageParameter.getName() );
+            }
+            else
+            {
+               Contexts.getPageContext().set( pageParameter.getName(), value );
             }
          }
       }
@@ -1003,6 +1033,26 @@ public class Pages
       return Manager.instance().getConcurrentRequestTimeout();
    }
    
+   /**
+    * Search for a defined conversation lock type, beginning with
+    * the most specific view id, then wildcarded view ids, and 
+    * finally the default WRITE lock
+    */
+   public ConversationLockType getConversationLockType(String viewId)
+   {
+      List<Page> stack = getPageStack(viewId);
+      for (int i=stack.size()-1; i>=0; i--)
+      {
+         Page page = stack.get(i);
+         ConversationLockType conversationLockType = page.getConversationLockType();
+         if (conversationLockType!=null)
+         {
+            return conversationLockType;
+         }
+      }
+      return ConversationLockType.WRITE;
+   }
+   
    public static String getSuffix()
    {
       String defaultSuffix = FacesContext.getCurrentInstance().getExternalContext()
@@ -1165,7 +1215,7 @@ public class Pages
    
    public ConversationIdParameter getConversationIdParameter(String conversationName)
    {
-      return conversations.get(conversationName);
+      return conversationName==null ? null : conversations.get(conversationName);
    }
    
    /**
@@ -1196,6 +1246,12 @@ public class Pages
          page.setConcurrentRequestTimeout(Integer.parseInt(concurrentRequestTimeoutString));
       }
       
+      String conversationLockString = element.attributeValue("conversation-lock");
+      if (conversationLockString!=null)
+      {
+         page.setConversationLockType( ConversationLockType.valueOf( conversationLockString.toUpperCase() ) );
+      }
+      
       String noConversationViewIdString = element.attributeValue("no-conversation-view-id");
       if (noConversationViewIdString != null)
       {
@@ -1210,7 +1266,7 @@ public class Pages
            page.setExpires(Integer.parseInt(expiresValue));
       }
       
-      ConversationIdParameter param = conversations.get( element.attributeValue("conversation") );
+      ConversationIdParameter param = getConversationIdParameter( element.attributeValue("conversation") );
       if (param != null) page.setConversationIdParameter(param);
       
 
@@ -1744,4 +1800,13 @@ public class Pages
        return pagesByViewId.keySet();
    }
    
+   /**
+    * Changes each time the page descriptors are parsed, including
+    * when they are hot redeployed, so that anything built from the
+    * known pages can tell when to build it again
+    */
+   public int getGeneration() {
+       return generation;
+   }
+   
 }
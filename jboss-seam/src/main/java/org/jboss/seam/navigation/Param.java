@@ -43,6 +43,9 @@ public final class Param
    private String converterId;
    
    private ValueExpression validatorValueExpression;
+   
+   //a type of the model attribute that the application has no converter for
+   private volatile Class<?> unconvertedType;
    private String validatorId;
    
    public Param(String name)
@@ -82,9 +85,19 @@ public final class Param
          {
             return org.jboss.seam.faces.DateConverter.getInstance();
          }
+         else if ( type.equals(unconvertedType) )
+         {
+            //don't make JSF search the type hierarchy again
+            return null;
+         }
          else
          {
-            return FacesContext.getCurrentInstance().getApplication().createConverter(type);
+            Converter converter = FacesContext.getCurrentInstance().getApplication().createConverter(type);
+            if (converter==null)
+            {
+               unconvertedType = type;
+            }
+            return converter;
          }
       }
    }
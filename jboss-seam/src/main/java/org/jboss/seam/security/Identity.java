@@ -29,6 +29,7 @@ import org.jboss.seam.core.Expressions;
 import org.jboss.seam.core.Expressions.MethodExpression;
 import org.jboss.seam.log.LogProvider;
 import org.jboss.seam.log.Logging;
+import org.jboss.seam.security.permission.PermissionDecisionCache;
 import org.jboss.seam.security.permission.PermissionMapper;
 import org.jboss.seam.web.Session;
 
@@ -359,7 +360,8 @@ public class Identity implements Serializable
     */
    protected void preAuthenticate()
    {     
-      preAuthenticationRoles.clear();      
+      preAuthenticationRoles.clear();
+      PermissionDecisionCache.invalidate();      
       if (Events.exists()) Events.instance().raiseEvent(EVENT_PRE_AUTHENTICATE);
    }   
    
@@ -393,6 +395,7 @@ public class Identity implements Serializable
       }
 
       credentials.setPassword(null);
+      PermissionDecisionCache.invalidate();
       
       if (Events.exists()) Events.instance().raiseEvent(EVENT_POST_AUTHENTICATE, this);      
    }
@@ -406,6 +409,7 @@ public class Identity implements Serializable
       subject = new Subject();
       
       credentials.clear();
+      PermissionDecisionCache.invalidate();
    }
 
    protected LoginContext getLoginContext() throws LoginException
@@ -465,6 +469,8 @@ public class Identity implements Serializable
    {
       if (role == null || "".equals(role)) return false;
       
+      PermissionDecisionCache.invalidate();
+      
       if (!isLoggedIn())
       {
          preAuthenticationRoles.add(role);
@@ -494,6 +500,8 @@ public class Identity implements Serializable
     */
    public void removeRole(String role)
    {     
+      PermissionDecisionCache.invalidate();
+      
       for ( Group sg : getSubject().getPrincipals(Group.class) )      
       {
          if ( ROLES_GROUP.equals( sg.getName() ) )
@@ -609,11 +617,11 @@ public class Identity implements Serializable
          
       if (arg != null)
       {
-         return permissionMapper.resolvePermission(arg[0], action);
+         return resolvePermission(arg[0], action);
       }
       else
       {
-         return permissionMapper.resolvePermission(name, action);
+         return resolvePermission(name, action);
       }
    }   
    
@@ -629,7 +637,24 @@ public class Identity implements Serializable
       if (permissionMapper == null) return false;
       if (target == null) return false;
       
-      return permissionMapper.resolvePermission(target, action);
+      return resolvePermission(target, action);
+   }
+   
+   private boolean resolvePermission(Object target, String action)
+   {
+      PermissionDecisionCache cache = PermissionDecisionCache.instance();
+      if (cache == null)
+      {
+         return permissionMapper.resolvePermission(target, action);
+      }
+      
+      Boolean granted = cache.get(getPrincipal(), target, action);
+      if (granted == null)
+      {
+         granted = permissionMapper.resolvePermission(target, action);
+         cache.put(getPrincipal(), target, action, granted);
+      }
+      return granted;
    }
    
    /**
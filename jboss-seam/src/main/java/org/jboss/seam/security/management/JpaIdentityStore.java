@@ -8,11 +8,22 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.security.GeneralSecurityException;
 import java.security.Principal;
+import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -70,6 +81,12 @@ public class JpaIdentityStore implements IdentityStore, Serializable
    
    private static final LogProvider log = Logging.getLogProvider(JpaIdentityStore.class);    
    
+   // About the most usernames whose login attempts or verified passwords are tracked
+   private static final int MAX_TRACKED_USERS = 10000;
+   
+   // The most tracked usernames forgotten by a single login attempt
+   private static final int MAX_EVICTIONS_PER_ATTEMPT = 2;
+   
    protected FeatureSet featureSet;
    
    private ValueExpression<EntityManager> entityManager;  
@@ -91,6 +108,28 @@ public class JpaIdentityStore implements IdentityStore, Serializable
    private AnnotatedBeanProperty<RoleGroups> roleGroupsProperty;
    private AnnotatedBeanProperty<RoleConditional> roleConditionalProperty;
    
+   /**
+    * Maximum number of authentication attempts for a username within the
+    * login attempt period. Zero means no limit.
+    */
+   private int loginAttemptLimit = 0;
+   
+   /**
+    * Length of the login attempt period, in milliseconds
+    */
+   private int loginAttemptPeriod = 60000;
+   
+   /**
+    * Time for which a verified password is remembered, so that logging in 
+    * again with it does not hash it again, in milliseconds. Zero disables
+    * remembering passwords.
+    */
+   private int verifiedPasswordExpiry = 0;
+   
+   private transient LoginAttemptTable loginAttempts;
+   private transient ConcurrentMap<String,VerifiedPassword> verifiedPasswords;
+   private transient byte[] verifiedPasswordKey;
+   
    public Set<Feature> getFeatures()
    {
       return featureSet.getFeatures();
@@ -753,6 +792,13 @@ public class JpaIdentityStore implements IdentityStore, Serializable
       {
          try
          {
+            PasswordHashExecutor executor = PasswordHashExecutor.instance();
+            if (executor != null)
+            {
+               return executor.createPasswordKey(PasswordHash.instance(), password.toCharArray(), salt, 
+                     userPasswordProperty.getAnnotation().iterations());
+            }
+            
             return PasswordHash.instance().createPasswordKey(password.toCharArray(), salt, 
                   userPasswordProperty.getAnnotation().iterations());
          }
@@ -806,32 +852,53 @@ public class JpaIdentityStore implements IdentityStore, Serializable
    
    public boolean authenticate(String username, String password)
    {
+      if (!allowLoginAttempt(username))
+      {
+         log.warn("Too many login attempts for user " + username);
+         return false;
+      }
+      
       Object user = lookupUser(username);          
       if (user == null || (userEnabledProperty.isSet() && ((Boolean) userEnabledProperty.getValue(user) == false)))
       {
          return false;
       }
       
-      String passwordHash = null;
+      Object storedHash = userPasswordProperty.getValue(user);
       
-      if (passwordSaltProperty.isSet())
+      boolean success;
+      
+      if (isVerifiedPassword(username, password, storedHash))
       {
-         String encodedSalt = (String) passwordSaltProperty.getValue(user);
-         if (encodedSalt == null)
-         {
-            throw new IdentityManagementException("A @PasswordSalt property was found on entity " + user + 
-                  ", but it contains no value");
-         }
-         
-         passwordHash = generatePasswordHash(password, BinTools.hex2bin(encodedSalt));
+         success = true;
       }
       else
       {
-         passwordHash = generatePasswordHash(password, getUserAccountSalt(user));   
+         String passwordHash = null;
+         
+         if (passwordSaltProperty.isSet())
+         {
+            String encodedSalt = (String) passwordSaltProperty.getValue(user);
+            if (encodedSalt == null)
+            {
+               throw new IdentityManagementException("A @PasswordSalt property was found on entity " + user + 
+                     ", but it contains no value");
+            }
+            
+            passwordHash = generatePasswordHash(password, BinTools.hex2bin(encodedSalt));
+         }
+         else
+         {
+            passwordHash = generatePasswordHash(password, getUserAccountSalt(user));   
+         }
+         
+         success = passwordHash.equals(storedHash);
+         
+         if (success) 
+         {
+            rememberVerifiedPassword(username, password, storedHash);
+         }
       }
-      
-       
-      boolean success = passwordHash.equals(userPasswordProperty.getValue(user));
             
       if (success && Events.exists())
       {
@@ -846,6 +913,203 @@ public class JpaIdentityStore implements IdentityStore, Serializable
       return success;
    }
    
+   /**
+    * Counts an authentication attempt for the specified username, and 
+    * returns false if there have been too many in the current period.
+    * 
+    * About 10000 usernames are tracked at once. Past that, the usernames
+    * whose periods started first are forgotten, so trying many usernames 
+    * never locks out anyone else, and only buys an attacker another few 
+    * attempts at a username for every 10000 other usernames tried.
+    */
+   protected boolean allowLoginAttempt(String username)
+   {
+      if (loginAttemptLimit <= 0) return true;
+      
+      long now = System.currentTimeMillis();
+      LoginAttemptTable table = getLoginAttempts();
+      ConcurrentMap<String,LoginAttempts> attempts = table.attempts;
+      
+      while (true)
+      {
+         LoginAttempts userAttempts = attempts.get(username);
+         if (userAttempts != null && userAttempts.start + loginAttemptPeriod > now)
+         {
+            return userAttempts.count.incrementAndGet() <= loginAttemptLimit;
+         }
+         
+         // Start a new period, unless another request just did
+         LoginAttempts newAttempts = new LoginAttempts(username, now);
+         boolean started;
+         if (userAttempts != null)
+         {
+            started = attempts.replace(username, userAttempts, newAttempts);
+         }
+         else
+         {
+            started = attempts.putIfAbsent(username, newAttempts) == null;
+         }
+         
+         if (started)
+         {
+            table.order.offer(newAttempts);
+            evictLoginAttempts(table, now);
+            return newAttempts.count.incrementAndGet() <= loginAttemptLimit;
+         }
+      }
+   }
+   
+   /**
+    * Forgets the usernames whose periods started first, if their periods 
+    * are over or too many usernames are tracked. Since every period is as 
+    * long, the order in which they started is the order in which they end. 
+    * Each call forgets at most a couple of usernames, which is enough to 
+    * keep up with the one it may have added.
+    */
+   private void evictLoginAttempts(LoginAttemptTable table, long now)
+   {
+      // held only for those few evictions, and only by attempts that started a period
+      table.evicting.lock();
+      try
+      {
+         for (int i = 0; i < MAX_EVICTIONS_PER_ATTEMPT; i++)
+         {
+            LoginAttempts oldest = table.order.peek();
+            if (oldest == null || (oldest.start + loginAttemptPeriod > now && 
+                  table.attempts.size() <= MAX_TRACKED_USERS))
+            {
+               return;
+            }
+            table.order.poll();
+            // does nothing if a new period was started for the username since
+            table.attempts.remove(oldest.username, oldest);
+         }
+      }
+      finally
+      {
+         table.evicting.unlock();
+      }
+   }
+   
+   private boolean isVerifiedPassword(String username, String password, Object storedHash)
+   {
+      if (verifiedPasswordExpiry <= 0 || storedHash == null) return false;
+      
+      VerifiedPassword verified = getVerifiedPasswords().get(username);
+      
+      // Changing the password changes the stored hash, and so forgets the verified password
+      return verified != null && 
+            verified.expiry > System.currentTimeMillis() &&
+            storedHash.equals(verified.storedHash) &&
+            Arrays.equals(verified.digest, digestPassword(username, password));
+   }
+   
+   private void rememberVerifiedPassword(String username, String password, Object storedHash)
+   {
+      if (verifiedPasswordExpiry <= 0 || storedHash == null) return;
+      
+      long now = System.currentTimeMillis();
+      ConcurrentMap<String,VerifiedPassword> verified = getVerifiedPasswords();
+      
+      if (verified.size() >= MAX_TRACKED_USERS)
+      {
+         for (Map.Entry<String,VerifiedPassword> entry : verified.entrySet())
+         {
+            if (entry.getValue().expiry <= now) verified.remove(entry.getKey(), entry.getValue());
+         }
+         if (verified.size() >= MAX_TRACKED_USERS) return;
+      }
+      
+      verified.put(username, new VerifiedPassword(digestPassword(username, password), storedHash, 
+            now + verifiedPasswordExpiry));
+   }
+   
+   /**
+    * A fast keyed digest of the password. The key is random and never leaves
+    * memory, so the digests are of no use to anyone who obtains them.
+    */
+   private byte[] digestPassword(String username, String password)
+   {
+      try
+      {
+         Mac mac = Mac.getInstance("HmacSHA256");
+         mac.init(new SecretKeySpec(getVerifiedPasswordKey(), "HmacSHA256"));
+         mac.update(username.getBytes("UTF-8"));
+         mac.update((byte) 0);
+         return mac.doFinal(password.getBytes("UTF-8"));
+      }
+      catch (Exception ex)
+      {
+         throw new IdentityManagementException("Exception digesting password", ex);
+      }
+   }
+   
+   private synchronized LoginAttemptTable getLoginAttempts()
+   {
+      if (loginAttempts == null)
+      {
+         loginAttempts = new LoginAttemptTable();
+      }
+      return loginAttempts;
+   }
+   
+   private synchronized ConcurrentMap<String,VerifiedPassword> getVerifiedPasswords()
+   {
+      if (verifiedPasswords == null)
+      {
+         verifiedPasswords = new ConcurrentHashMap<String,VerifiedPassword>();
+      }
+      return verifiedPasswords;
+   }
+   
+   private synchronized byte[] getVerifiedPasswordKey()
+   {
+      if (verifiedPasswordKey == null)
+      {
+         verifiedPasswordKey = new byte[32];
+         new SecureRandom().nextBytes(verifiedPasswordKey);
+      }
+      return verifiedPasswordKey;
+   }
+   
+   private static class LoginAttempts
+   {
+      private final String username;
+      private final long start;
+      private final AtomicInteger count = new AtomicInteger();
+      
+      LoginAttempts(String username, long start)
+      {
+         this.username = username;
+         this.start = start;
+      }
+   }
+   
+   /**
+    * The attempts of each username, and the order in which their periods 
+    * started
+    */
+   private static class LoginAttemptTable
+   {
+      private final ConcurrentMap<String,LoginAttempts> attempts = new ConcurrentHashMap<String,LoginAttempts>();
+      private final ConcurrentLinkedQueue<LoginAttempts> order = new ConcurrentLinkedQueue<LoginAttempts>();
+      private final ReentrantLock evicting = new ReentrantLock();
+   }
+   
+   private static class VerifiedPassword
+   {
+      private final byte[] digest;
+      private final Object storedHash;
+      private final long expiry;
+      
+      VerifiedPassword(byte[] digest, Object storedHash, long expiry)
+      {
+         this.digest = digest;
+         this.storedHash = storedHash;
+         this.expiry = expiry;
+      }
+   }
+   
    @Observer(Identity.EVENT_POST_AUTHENTICATE)
    public void setUserAccountForSession()
    {
@@ -1050,6 +1314,36 @@ public class JpaIdentityStore implements IdentityStore, Serializable
       this.roleClass = roleClass;
    }
    
+   public int getLoginAttemptLimit()
+   {
+      return loginAttemptLimit;
+   }
+   
+   public void setLoginAttemptLimit(int loginAttemptLimit)
+   {
+      this.loginAttemptLimit = loginAttemptLimit;
+   }
+   
+   public int getLoginAttemptPeriod()
+   {
+      return loginAttemptPeriod;
+   }
+   
+   public void setLoginAttemptPeriod(int loginAttemptPeriod)
+   {
+      this.loginAttemptPeriod = loginAttemptPeriod;
+   }
+   
+   public int getVerifiedPasswordExpiry()
+   {
+      return verifiedPasswordExpiry;
+   }
+   
+   public void setVerifiedPasswordExpiry(int verifiedPasswordExpiry)
+   {
+      this.verifiedPasswordExpiry = verifiedPasswordExpiry;
+   }
+   
    private EntityManager lookupEntityManager()
    {
       return entityManager.getValue();
@@ -8,12 +8,20 @@ import java.security.Principal;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.naming.Context;
+import javax.naming.InterruptedNamingException;
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
 import javax.naming.directory.Attribute;
 import javax.naming.directory.Attributes;
 import javax.naming.directory.BasicAttribute;
@@ -102,6 +110,35 @@ public class LdapIdentityStore implements IdentityStore, Serializable
     * Time limit for LDAP searches, in milliseconds
     */
    private int searchTimeLimit = 10000;
+   
+   /**
+    * Whether connections bound with the service account are pooled by the
+    * JNDI LDAP provider
+    */
+   private boolean connectionPooling = false;
+   
+   /**
+    * Maximum number of pooled connections in use at once. The JNDI LDAP 
+    * provider only opens a new pooled connection when none is idle, so 
+    * this also bounds the size of the pool. When every connection is in 
+    * use, a request waits up to the search time limit for one.
+    */
+   private int connectionPoolSize = 10;
+   
+   private transient Semaphore connectionPermits;
+   
+   /**
+    * Time for which the roles granted to a user are cached, in milliseconds.
+    * Zero disables the cache.
+    */
+   private int roleCacheExpiry = 0;
+   
+   /**
+    * Maximum number of users whose roles are cached
+    */
+   private int roleCacheSize = 1000;
+   
+   private final ConcurrentMap<String,CachedRoles> roleCache = new ConcurrentHashMap<String,CachedRoles>();
       
    public String getServerAddress()
    {
@@ -333,6 +370,55 @@ public class LdapIdentityStore implements IdentityStore, Serializable
       this.searchTimeLimit = searchTimeLimit;
    }
    
+   public boolean isConnectionPooling()
+   {
+      return connectionPooling;
+   }
+   
+   public void setConnectionPooling(boolean connectionPooling)
+   {
+      this.connectionPooling = connectionPooling;
+   }
+   
+   public int getConnectionPoolSize()
+   {
+      return connectionPoolSize;
+   }
+   
+   public void setConnectionPoolSize(int connectionPoolSize)
+   {
+      this.connectionPoolSize = connectionPoolSize;
+   }
+   
+   private synchronized Semaphore getConnectionPermits()
+   {
+      if (connectionPermits == null)
+      {
+         connectionPermits = new Semaphore(connectionPoolSize);
+      }
+      return connectionPermits;
+   }
+   
+   public int getRoleCacheExpiry()
+   {
+      return roleCacheExpiry;
+   }
+   
+   public void setRoleCacheExpiry(int roleCacheExpiry)
+   {
+      this.roleCacheExpiry = roleCacheExpiry;
+   }
+   
+   public int getRoleCacheSize()
+   {
+      return roleCacheSize;
+   }
+   
+   public void setRoleCacheSize(int roleCacheSize)
+   {
+      this.roleCacheSize = roleCacheSize;
+   }
+   
    public String getSecurityAuthenticationType()
    {
       return securityAuthenticationType;
@@ -392,13 +478,26 @@ public class LdapIdentityStore implements IdentityStore, Serializable
    protected final InitialLdapContext initialiseContext()
       throws NamingException
    {
-      return initialiseContext(getBindDN(), getBindCredentials());
+      return initialiseContext(getBindDN(), getBindCredentials(), connectionPooling);
    }
    
    protected final InitialLdapContext initialiseContext(String principal, String credentials)
       throws NamingException
+   {
+      // Connections are pooled by credentials, so never pool the connections of users
+      return initialiseContext(principal, credentials, false);
+   }
+   
+   private InitialLdapContext initialiseContext(String principal, String credentials, boolean pooled)
+      throws NamingException
    {
       Properties env = new Properties();
+      
+      if (pooled)
+      {
+         // Closing a pooled context returns its connection to the pool
+         env.setProperty("com.sun.jndi.ldap.connect.pool", "true");
+      }
 
       env.setProperty(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.ldap.LdapCtxFactory");
       env.setProperty(Context.SECURITY_AUTHENTICATION, securityAuthenticationType);
@@ -409,10 +508,46 @@ public class LdapIdentityStore implements IdentityStore, Serializable
       env.setProperty(Context.SECURITY_PRINCIPAL, principal);
       env.setProperty(Context.SECURITY_CREDENTIALS, credentials);      
       
+      if (pooled)
+      {
+         Semaphore permits = acquireConnectionPermit();
+         boolean connected = false;
+         try
+         {
+            InitialLdapContext ctx = new PooledLdapContext(env, permits);
+            connected = true;
+            return ctx;
+         }
+         finally
+         {
+            if (!connected) permits.release();
+         }
+      }
+      
       InitialLdapContext ctx = new InitialLdapContext(env, null);
       return ctx;
    } 
    
+   private Semaphore acquireConnectionPermit()
+      throws NamingException
+   {
+      Semaphore permits = getConnectionPermits();
+      try
+      {
+         if (!permits.tryAcquire(searchTimeLimit, TimeUnit.MILLISECONDS))
+         {
+            throw new ServiceUnavailableException("All " + connectionPoolSize + 
+                  " pooled LDAP connections are in use");
+         }
+      }
+      catch (InterruptedException ex)
+      {
+         Thread.currentThread().interrupt();
+         throw new InterruptedNamingException("Interrupted waiting for a pooled LDAP connection");
+      }
+      return permits;
+   }
+   
    protected String getUserDN(String username)
    {
       return String.format("%s%s%s", getUserDNPrefix(), username, getUserDNSuffix());
@@ -664,6 +799,9 @@ public class LdapIdentityStore implements IdentityStore, Serializable
       }
       finally
       {
+         // Any user may have been granted the role
+         roleCache.clear();
+         
          if (ctx != null) 
          {
             try
@@ -746,6 +884,8 @@ public class LdapIdentityStore implements IdentityStore, Serializable
       }
       finally
       {
+         invalidateRoles(name);
+         
          if (ctx != null) 
          {
             try
@@ -864,6 +1004,63 @@ public class LdapIdentityStore implements IdentityStore, Serializable
    }
 
    public List<String> getGrantedRoles(String name) 
+   {
+      if (roleCacheExpiry <= 0) return queryGrantedRoles(name);
+      
+      long now = System.currentTimeMillis();
+      CachedRoles cached = roleCache.get(name);
+      if (cached != null && cached.roles != null && cached.expiry > now)
+      {
+         return new ArrayList<String>(cached.roles);
+      }
+      
+      // Claim the entry before the query, so that the roles are only cached
+      // if they have not been invalidated while the query was running
+      CachedRoles pending = new CachedRoles(null, now);
+      boolean claimed;
+      if (cached != null)
+      {
+         claimed = roleCache.replace(name, cached, pending);
+      }
+      else
+      {
+         if (roleCache.size() >= roleCacheSize)
+         {
+            evictExpiredRoles(now);
+         }
+         claimed = roleCache.size() < roleCacheSize && roleCache.putIfAbsent(name, pending) == null;
+      }
+      
+      List<String> roles = queryGrantedRoles(name);
+      
+      if (claimed)
+      {
+         roleCache.replace(name, pending, new CachedRoles(new ArrayList<String>(roles), now + roleCacheExpiry));
+      }
+      
+      return roles;
+   }
+   
+   private void evictExpiredRoles(long now)
+   {
+      for (Map.Entry<String,CachedRoles> entry : roleCache.entrySet())
+      {
+         if (entry.getValue().expiry <= now)
+         {
+            roleCache.remove(entry.getKey(), entry.getValue());
+         }
+      }
+   }
+   
+   /**
+    * Discards the cached roles of the specified user
+    */
+   public void invalidateRoles(String name)
+   {
+      roleCache.remove(name);
+   }
+   
+   protected List<String> queryGrantedRoles(String name)
    {
       Set<String> userRoles = new HashSet<String>();
       
@@ -972,6 +1169,8 @@ public class LdapIdentityStore implements IdentityStore, Serializable
       }      
       finally
       {
+         invalidateRoles(name);
+         
          if (ctx != null) 
          {
             try
@@ -1032,6 +1231,8 @@ public class LdapIdentityStore implements IdentityStore, Serializable
       }      
       finally
       {
+         invalidateRoles(name);
+         
          if (ctx != null) 
          {
             try
@@ -1282,4 +1483,48 @@ public class LdapIdentityStore implements IdentityStore, Serializable
       // TODO Auto-generated method stub
       return false;
    }
+   
+   /**
+    * A context that returns its permit once its connection has been 
+    * returned to the pool
+    */
+   private static class PooledLdapContext extends InitialLdapContext
+   {
+      private final Semaphore permits;
+      private final AtomicBoolean released = new AtomicBoolean();
+      
+      PooledLdapContext(Properties env, Semaphore permits) throws NamingException
+      {
+         super(env, null);
+         this.permits = permits;
+      }
+      
+      @Override
+      public void close() throws NamingException
+      {
+         try
+         {
+            super.close();
+         }
+         finally
+         {
+            if (released.compareAndSet(false, true))
+            {
+               permits.release();
+            }
+         }
+      }
+   }
+   
+   private static class CachedRoles implements Serializable
+   {
+      private final List<String> roles;
+      private final long expiry;
+      
+      CachedRoles(List<String> roles, long expiry)
+      {
+         this.roles = roles;
+         this.expiry = expiry;
+      }
+   }
 }
@@ -0,0 +1,213 @@
+package org.jboss.seam.security.management;
+
+import static org.jboss.seam.ScopeType.APPLICATION;
+import static org.jboss.seam.annotations.Install.BUILT_IN;
+
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.seam.Component;
+import org.jboss.seam.annotations.Create;
+import org.jboss.seam.annotations.Destroy;
+import org.jboss.seam.annotations.Install;
+import org.jboss.seam.annotations.Name;
+import org.jboss.seam.annotations.Scope;
+import org.jboss.seam.annotations.intercept.BypassInterceptors;
+import org.jboss.seam.contexts.Contexts;
+
+/**
+ * Derives password keys on a small, dedicated pool of threads, so that
+ * a burst of logins can only keep a bounded number of cores busy with
+ * key derivation. When the queue of waiting hashes is full, further
+ * hashes are rejected at once, instead of piling up request threads.
+ *
+ * When installed, JpaIdentityStore hashes passwords using this executor.
+ */
+@Name("org.jboss.seam.security.passwordHashExecutor")
+@Scope(APPLICATION)
+@Install(value = false, precedence = BUILT_IN)
+@BypassInterceptors
+public class PasswordHashExecutor
+{
+   private int threads = Runtime.getRuntime().availableProcessors();
+
+   private int queueSize = 100;
+
+   /**
+    * Time to wait for a hash, in milliseconds
+    */
+   private int timeout = 10000;
+
+   private ThreadPoolExecutor executor;
+
+   private final AtomicLong hashCount = new AtomicLong();
+   private final AtomicLong hashTime = new AtomicLong();
+   private final AtomicLong rejectedCount = new AtomicLong();
+
+   @Create
+   public void startup()
+   {
+      executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory()
+      {
+         public Thread newThread(Runnable runnable)
+         {
+            Thread thread = new Thread(runnable, "Seam password hash");
+            thread.setDaemon(true);
+            return thread;
+         }
+      } );
+   }
+
+   @Destroy
+   public void destroy()
+   {
+      executor.shutdownNow();
+   }
+
+   /**
+    * Derive a password key with the given PasswordHash, on one of the
+    * hashing threads
+    *
+    * @throws IdentityManagementException if there are too many hashes
+    *         waiting already, or the hash takes too long
+    */
+   public String createPasswordKey(final PasswordHash passwordHash, final char[] password,
+         final byte[] salt, final int iterations)
+      throws GeneralSecurityException
+   {
+      final long queued = System.currentTimeMillis();
+      Future<String> result;
+      try
+      {
+         result = executor.submit( new Callable<String>()
+         {
+            public String call() throws Exception
+            {
+               try
+               {
+                  return passwordHash.createPasswordKey(password, salt, iterations);
+               }
+               finally
+               {
+                  hashCount.incrementAndGet();
+                  hashTime.addAndGet( System.currentTimeMillis() - queued );
+               }
+            }
+         } );
+      }
+      catch (RejectedExecutionException ree)
+      {
+         rejectedCount.incrementAndGet();
+         throw new IdentityManagementException("Too many passwords waiting to be hashed", ree);
+      }
+
+      try
+      {
+         return result.get(timeout, TimeUnit.MILLISECONDS);
+      }
+      catch (ExecutionException ee)
+      {
+         if (ee.getCause() instanceof GeneralSecurityException)
+         {
+            throw (GeneralSecurityException) ee.getCause();
+         }
+         throw new IdentityManagementException("Exception generating password hash", ee.getCause());
+      }
+      catch (TimeoutException te)
+      {
+         result.cancel(true);
+         throw new IdentityManagementException("Timed out waiting for password hash", te);
+      }
+      catch (InterruptedException ie)
+      {
+         result.cancel(true);
+         Thread.currentThread().interrupt();
+         throw new IdentityManagementException("Interrupted waiting for password hash", ie);
+      }
+   }
+
+   /**
+    * The number of hashes waiting for a thread
+    */
+   public int getQueueDepth()
+   {
+      return executor.getQueue().size();
+   }
+
+   public int getActiveCount()
+   {
+      return executor.getActiveCount();
+   }
+
+   public long getHashCount()
+   {
+      return hashCount.get();
+   }
+
+   public long getRejectedCount()
+   {
+      return rejectedCount.get();
+   }
+
+   /**
+    * The average time from submitting a hash until it was done,
+    * including the time spent in the queue, in milliseconds
+    */
+   public long getAverageLatency()
+   {
+      long count = hashCount.get();
+      return count == 0 ? 0 : hashTime.get() / count;
+   }
+
+   public int getThreads()
+   {
+      return threads;
+   }
+
+   public void setThreads(int threads)
+   {
+      this.threads = threads;
+   }
+
+   public int getQueueSize()
+   {
+      return queueSize;
+   }
+
+   public void setQueueSize(int queueSize)
+   {
+      this.queueSize = queueSize;
+   }
+
+   public int getTimeout()
+   {
+      return timeout;
+   }
+
+   public void setTimeout(int timeout)
+   {
+      this.timeout = timeout;
+   }
+
+   /**
+    * @return the executor, or null if it is not installed
+    */
+   public static PasswordHashExecutor instance()
+   {
+      if ( !Contexts.isApplicationContextActive() )
+      {
+         return null;
+      }
+      return (PasswordHashExecutor) Component.getInstance(PasswordHashExecutor.class, APPLICATION);
+   }
+}
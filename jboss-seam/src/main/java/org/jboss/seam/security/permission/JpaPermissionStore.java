@@ -30,6 +30,7 @@ import org.jboss.seam.core.Expressions;
 import org.jboss.seam.core.Expressions.ValueExpression;
 import org.jboss.seam.log.LogProvider;
 import org.jboss.seam.log.Logging;
+import org.jboss.seam.security.Identity;
 import org.jboss.seam.security.Role;
 import org.jboss.seam.security.SimplePrincipal;
 import org.jboss.seam.security.management.IdentityManager;
@@ -53,6 +54,9 @@ public class JpaPermissionStore implements PermissionStore, Serializable
    
    private enum Discrimination { user, role, either }
    
+   // The maximum number of targets in the in list of a single query
+   private static final int TARGET_BATCH_SIZE = 500;
+   
    private ValueExpression<EntityManager> entityManager;
    
    private Class userPermissionClass;
@@ -591,12 +595,43 @@ public class JpaPermissionStore implements PermissionStore, Serializable
    }
 
    /**
-    * Returns a list of all user and role permissions for the specified action for all specified target objects
+    * Returns a list of the current user's permissions, and of all role permissions, for the 
+    * specified action for all specified target objects. The permissions of other users are 
+    * not read, and no user permissions are returned if there is no authenticated user.
     */
    public List<Permission> listPermissions(Set<Object> targets, String action)
    {
-      // TODO limit the number of targets passed at a single time to 25
-      return listPermissions(null, targets, action);
+      Principal principal = Identity.instance().getPrincipal();
+      if (principal == null)
+      {
+         return new ArrayList<Permission>();
+      }
+      
+      if (targets.size() <= TARGET_BATCH_SIZE)
+      {
+         return listPermissions(null, targets, principal, action);
+      }
+      
+      // Split large sets of targets into batches, to stay within the
+      // limits that databases place on the size of an in list
+      List<Permission> permissions = new ArrayList<Permission>();
+      Set<Object> batch = new HashSet<Object>();
+      for (Object target : targets)
+      {
+         batch.add(target);
+         if (batch.size() == TARGET_BATCH_SIZE)
+         {
+            permissions.addAll(listPermissions(null, batch, principal, action));
+            batch = new HashSet<Object>();
+         }
+      }
+      
+      if (!batch.isEmpty())
+      {
+         permissions.addAll(listPermissions(null, batch, principal, action));
+      }
+      
+      return permissions;
    }
    
    /**
@@ -608,6 +643,22 @@ public class JpaPermissionStore implements PermissionStore, Serializable
    }
    
    protected List<Permission> listPermissions(Object target, Set<Object> targets, String action)
+   {
+      return listPermissions(target, targets, null, action);
+   }
+   
+   /**
+    * Returns the permissions for a target, or a set of targets, and an action. 
+    * 
+    * @param target The target of the permissions, may be null
+    * @param targets A set of permission targets, may be null
+    * @param recipient If not null, only the user permissions of this recipient are 
+    * returned, along with all role permissions
+    * @param action The action, may be null for all actions
+    * @return List The permissions, which may be empty
+    */
+   protected List<Permission> listPermissions(Object target, Set<Object> targets, Principal recipient, 
+         String action)
    {
       if (target != null && targets != null)
       {
@@ -619,11 +670,27 @@ public class JpaPermissionStore implements PermissionStore, Serializable
       if (targets != null && targets.isEmpty()) return permissions;
       
       // First query for user permissions
-      Query permissionQuery = targets != null ?
-            createPermissionQuery(null, targets, null, Discrimination.either) :
-            createPermissionQuery(target, null, null, Discrimination.either);
-            
-      List userPermissions = permissionQuery.getResultList();
+      Query permissionQuery;
+      List userPermissions;
+      
+      if (recipient == null)
+      {
+         permissionQuery = createPermissionQuery(target, targets, null, Discrimination.either);
+         userPermissions = permissionQuery.getResultList();
+      }
+      else
+      {
+         permissionQuery = createPermissionQuery(target, targets, recipient, Discrimination.user);
+         userPermissions = new ArrayList(permissionQuery.getResultList());
+         
+         // Role permissions kept alongside the user permissions can't be restricted to
+         // the recipient, so they are read with a query of their own
+         if (rolePermissionClass == null)
+         {
+            userPermissions.addAll(createPermissionQuery(target, targets, null, 
+                  Discrimination.role).getResultList());
+         }
+      }
       
       Map<String,Principal> principalCache = new HashMap<String,Principal>();
       
@@ -690,9 +757,7 @@ public class JpaPermissionStore implements PermissionStore, Serializable
       // If we have a separate class for role permissions, then query them now
       if (rolePermissionClass != null)
       {
-         permissionQuery = targets != null ?
-               createPermissionQuery(null, targets, null, Discrimination.role) :
-               createPermissionQuery(target, null, null, Discrimination.role);        
+         permissionQuery = createPermissionQuery(target, targets, null, Discrimination.role);        
          List rolePermissions = permissionQuery.getResultList();
          
          for (Object permission : rolePermissions)
@@ -0,0 +1,178 @@
+package org.jboss.seam.security.permission;
+
+import static org.jboss.seam.ScopeType.EVENT;
+import static org.jboss.seam.annotations.Install.BUILT_IN;
+
+import java.io.Serializable;
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.seam.Component;
+import org.jboss.seam.annotations.Install;
+import org.jboss.seam.annotations.Name;
+import org.jboss.seam.annotations.Scope;
+import org.jboss.seam.annotations.intercept.BypassInterceptors;
+import org.jboss.seam.contexts.Contexts;
+
+/**
+ * Remembers the permission decisions made during a request, so
+ * that checking the same permission for the same target again,
+ * for example once for each row of a data table, does not walk
+ * the resolver chain again.
+ *
+ * Decisions are forgotten when permissions are granted or revoked,
+ * when roles are added or removed, and when the user logs in or
+ * out. Since a rule may depend upon the state of its target, the
+ * cache is not installed by default. Install it only if permission
+ * decisions do not change when their targets are modified during
+ * the request.
+ */
+@Scope(EVENT)
+@Name("org.jboss.seam.security.permissionDecisionCache")
+@Install(value = false, precedence = BUILT_IN)
+@BypassInterceptors
+public class PermissionDecisionCache implements Serializable
+{
+   private static final long serialVersionUID = -2470283717271405380L;
+
+   private final Map<Decision, Boolean> decisions = new HashMap<Decision, Boolean>();
+
+   private long hits;
+   private long misses;
+
+   /**
+    * Get a remembered decision
+    *
+    * @return null if the permission has not been resolved yet
+    */
+   public Boolean get(Principal principal, Object target, String action)
+   {
+      Boolean result = decisions.get( new Decision(principal, target, action) );
+      if (result == null)
+      {
+         misses++;
+      }
+      else
+      {
+         hits++;
+      }
+      return result;
+   }
+
+   public void put(Principal principal, Object target, String action, boolean granted)
+   {
+      decisions.put( new Decision(principal, target, action), granted );
+   }
+
+   public void clear()
+   {
+      decisions.clear();
+   }
+
+   public int getSize()
+   {
+      return decisions.size();
+   }
+
+   /**
+    * The number of permission checks, during this request, 
+    * that were answered by a remembered decision
+    */
+   public long getHits()
+   {
+      return hits;
+   }
+
+   /**
+    * The number of permission checks, during this request, 
+    * that had to be resolved
+    */
+   public long getMisses()
+   {
+      return misses;
+   }
+
+   public void resetStatistics()
+   {
+      hits = 0;
+      misses = 0;
+   }
+
+   /**
+    * Forget the decisions of the current request, if any
+    * were made
+    */
+   public static void invalidate()
+   {
+      if ( Contexts.isEventContextActive() )
+      {
+         PermissionDecisionCache cache = (PermissionDecisionCache) Contexts.getEventContext().get(PermissionDecisionCache.class);
+         if (cache != null)
+         {
+            cache.clear();
+         }
+      }
+   }
+
+   /**
+    * @return the cache of the current request, or null if the
+    *         cache is not installed
+    */
+   public static PermissionDecisionCache instance()
+   {
+      if ( !Contexts.isEventContextActive() || !Contexts.isApplicationContextActive() )
+      {
+         return null;
+      }
+      return (PermissionDecisionCache) Component.getInstance(PermissionDecisionCache.class, EVENT);
+   }
+
+   /**
+    * Strings, classes and numbers are compared by value, since
+    * permission names are often built anew for each check. Other
+    * targets are compared by identity, since an entity may not
+    * implement equals(), or its hashCode() may change as it is
+    * modified.
+    */
+   static final class Decision
+   {
+      private final Principal principal;
+      private final Object target;
+      private final String action;
+      private final int hashCode;
+
+      Decision(Principal principal, Object target, String action)
+      {
+         this.principal = principal;
+         this.target = target;
+         this.action = action;
+         int result = isValue(target) ? target.hashCode() : System.identityHashCode(target);
+         result = result * 31 + (action == null ? 0 : action.hashCode());
+         result = result * 31 + (principal == null ? 0 : principal.hashCode());
+         this.hashCode = result;
+      }
+
+      private static boolean isValue(Object target)
+      {
+         return target instanceof String || target instanceof Class || target instanceof Number;
+      }
+
+      @Override
+      public boolean equals(Object other)
+      {
+         if ( !(other instanceof Decision) ) return false;
+         Decision that = (Decision) other;
+         return hashCode == that.hashCode &&
+               ( target == that.target || ( isValue(target) && target.equals(that.target) ) ) &&
+               ( action == null ? that.action == null : action.equals(that.action) ) &&
+               ( principal == null ? that.principal == null : principal.equals(that.principal) );
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return hashCode;
+      }
+   }
+}
@@ -100,6 +100,7 @@ public class PermissionManager implements Serializable
    public boolean grantPermission(Permission permission)
    {
       Identity.instance().checkPermission(permission.getTarget(), PERMISSION_GRANT);
+      PermissionDecisionCache.invalidate();
       return permissionStore.grantPermission(permission);
    }
    
@@ -109,12 +110,14 @@ public class PermissionManager implements Serializable
       {
          Identity.instance().checkPermission(permission.getTarget(), PERMISSION_GRANT);
       }
+      PermissionDecisionCache.invalidate();
       return permissionStore.grantPermissions(permissions);
    }
    
    public boolean revokePermission(Permission permission)
    {
       Identity.instance().checkPermission(permission.getTarget(), PERMISSION_REVOKE);
+      PermissionDecisionCache.invalidate();
       return permissionStore.revokePermission(permission);
    }
    
@@ -124,6 +127,7 @@ public class PermissionManager implements Serializable
       {
          Identity.instance().checkPermission(permission.getTarget(), PERMISSION_REVOKE);
       }
+      PermissionDecisionCache.invalidate();
       return permissionStore.revokePermissions(permissions);
    }
    
@@ -137,6 +141,7 @@ public class PermissionManager implements Serializable
       if (permissionStore != null)
       {
          permissionStore.clearPermissions(target);
+         PermissionDecisionCache.invalidate();
       }
    }
 }
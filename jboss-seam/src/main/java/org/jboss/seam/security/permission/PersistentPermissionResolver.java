@@ -4,8 +4,11 @@ import static org.jboss.seam.ScopeType.APPLICATION;
 import static org.jboss.seam.annotations.Install.BUILT_IN;
 
 import java.io.Serializable;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.jboss.seam.Component;
@@ -110,52 +113,93 @@ public class PersistentPermissionResolver implements PermissionResolver, Seriali
    
    public void filterSetByAction(Set<Object> targets, String action)
    {
-      if (permissionStore == null) return;
+      targets.removeAll(getGrantedTargets(targets, action));
+   }
+   
+   /**
+    * Returns the targets for which the current user is granted the specified action, 
+    * either directly or through one of their roles. The permissions of all the targets 
+    * are read with a single query per batch of targets, rather than one query per target.
+    * 
+    * @param targets The targets to check
+    * @param action The action to check
+    * @return Set The granted targets, which may be empty
+    */
+   public Set<Object> getGrantedTargets(Set<Object> targets, String action)
+   {
+      Set<Object> granted = new HashSet<Object>();
+      
+      if (permissionStore == null || targets.isEmpty()) return granted;
       
       Identity identity = Identity.instance();
-      if (!identity.isLoggedIn()) return;
+      if (!identity.isLoggedIn()) return granted;
       
       List<Permission> permissions = permissionStore.listPermissions(targets, action);
       
       String username = identity.getPrincipal().getName();
       
-      Iterator iter = targets.iterator();
-      while (iter.hasNext())
+      // Group the permissions by target, so each target only looks at its own permissions
+      Map<Object,List<Permission>> permissionsByTarget = new HashMap<Object,List<Permission>>();
+      for (Permission permission : permissions)
+      {
+         List<Permission> targetPermissions = permissionsByTarget.get(permission.getTarget());
+         if (targetPermissions == null)
+         {
+            targetPermissions = new ArrayList<Permission>();
+            permissionsByTarget.put(permission.getTarget(), targetPermissions);
+         }
+         targetPermissions.add(permission);
+      }
+      
+      // Role membership doesn't depend on the target, so only check each role once
+      Map<String,Boolean> roles = new HashMap<String,Boolean>();
+      
+      for (Object target : targets)
       {
-         Object target = iter.next();
+         List<Permission> targetPermissions = permissionsByTarget.get(target);
+         if (targetPermissions == null) continue;
          
-         for (Permission permission : permissions)
+         for (Permission permission : targetPermissions)
          {
-            if (permission.getTarget().equals(target))
+            if (permission.getRecipient() instanceof SimplePrincipal &&
+                  username.equals(permission.getRecipient().getName()))
             {
-               if (permission.getRecipient() instanceof SimplePrincipal &&
-                     username.equals(permission.getRecipient().getName()))
+               granted.add(target);
+               break;
+            }
+            
+            if (permission.getRecipient() instanceof Role)
+            {
+               Role role = (Role) permission.getRecipient();
+               
+               if (role.isConditional())
                {
-                  iter.remove();
-                  break;
+                  RuleBasedPermissionResolver resolver = RuleBasedPermissionResolver.instance();
+                  if (resolver.checkConditionalRole(role.getName(), target, action))
+                  {
+                     granted.add(target);
+                     break;
+                  }
                }
-               
-               if (permission.getRecipient() instanceof Role)
+               else
                {
-                  Role role = (Role) permission.getRecipient();
-                  
-                  if (role.isConditional())
+                  Boolean member = roles.get(role.getName());
+                  if (member == null)
                   {
-                     RuleBasedPermissionResolver resolver = RuleBasedPermissionResolver.instance();
-                     if (resolver.checkConditionalRole(role.getName(), target, action))
-                     {
-                        iter.remove();
-                        break;
-                     }
+                     member = identity.hasRole(role.getName());
+                     roles.put(role.getName(), member);
                   }
-                  else if (identity.hasRole(role.getName()))
+                  
+                  if (member)
                   {
-                     iter.remove();
+                     granted.add(target);
                      break;
                   }
-               }               
+               }
             }
          }
       }
+      
+      return granted;
    }
 }
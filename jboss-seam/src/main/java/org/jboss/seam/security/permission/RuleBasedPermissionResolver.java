@@ -3,6 +3,8 @@ package org.jboss.seam.security.permission;
 import static org.jboss.seam.ScopeType.SESSION;
 import static org.jboss.seam.annotations.Install.BUILT_IN;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.security.Principal;
 import java.security.acl.Group;
@@ -11,6 +13,8 @@ import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.drools.FactHandle;
 import org.drools.RuleBase;
@@ -35,7 +39,16 @@ import org.jboss.seam.security.Role;
 import org.jboss.seam.security.management.JpaIdentityStore;
 
 /**
- * A permission resolver that uses a Drools rule base to perform permission checks
+ * A permission resolver that uses a Drools rule base to perform permission checks.
+ * 
+ * By default, all the permission checks of a user session are performed one at a time
+ * against a single working memory. In concurrent mode, each check borrows a working 
+ * memory from a pool instead, so that concurrent requests of the same user may check
+ * permissions in parallel. A pooled working memory contains only the user's principal, 
+ * roles and authenticated user account, not facts inserted directly into the security
+ * context. The pool is emptied whenever the user logs in or out, and a working memory
+ * borrowed before then is disposed of when it is returned. At most poolSize idle working 
+ * memories are kept, the rest being disposed of when they are returned.
  *  
  * @author Shane Bryzak
  */
@@ -54,13 +67,38 @@ public class RuleBasedPermissionResolver implements PermissionResolver, Serializ
    
    private RuleBase securityRules;  
    
+   private boolean concurrent;
+   
+   private int poolSize = 4;
+   
+   private transient ConcurrentLinkedQueue<PooledWorkingMemory> pool;
+   
+   private transient AtomicInteger idleWorkingMemories;
+   
+   private final AtomicInteger poolGeneration = new AtomicInteger();
+   
+   private volatile Object authenticatedUser;
+   
    @Create
    public boolean create()
    {
+      initPool();
       initSecurityContext();
       return getSecurityContext() != null;
    }
    
+   private void initPool()
+   {
+      pool = new ConcurrentLinkedQueue<PooledWorkingMemory>();
+      idleWorkingMemories = new AtomicInteger();
+   }
+   
+   private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+   {
+      in.defaultReadObject();
+      initPool();
+   }
+   
    protected void initSecurityContext()
    {
       if (getSecurityRules() == null)
@@ -94,38 +132,54 @@ public class RuleBasedPermissionResolver implements PermissionResolver, Serializ
       
       if (securityContext == null) return false;      
       
-      List<FactHandle> handles = new ArrayList<FactHandle>();  
-
-      PermissionCheck check;
-      
-      synchronized( securityContext )
+      if (concurrent)
       {
-         if (!(target instanceof String) && !(target instanceof Class))
+         PooledWorkingMemory workingMemory = borrowWorkingMemory();
+         try
          {
-            handles.add( securityContext.insert(target) );
+            return hasPermission(workingMemory.session, target, action);
          }
-         else if (target instanceof Class)
+         finally
          {
-            String componentName = Seam.getComponentName((Class) target);
-            target = componentName != null ? componentName : ((Class) target).getName();
+            returnWorkingMemory(workingMemory);
          }
-         
-         check = new PermissionCheck(target, action);         
-         
-         try
-         {
-            synchronizeContext();
-            
-            handles.add( securityContext.insert(check) );
+      }
+      
+      synchronized( securityContext )
+      {
+         return hasPermission(securityContext, target, action);
+      }
+   }
    
-            securityContext.fireAllRules();
-         }
-         finally
+   private boolean hasPermission(StatefulSession securityContext, Object target, String action)
+   {
+      List<FactHandle> handles = new ArrayList<FactHandle>();  
+
+      if (!(target instanceof String) && !(target instanceof Class))
+      {
+         handles.add( securityContext.insert(target) );
+      }
+      else if (target instanceof Class)
+      {
+         String componentName = Seam.getComponentName((Class) target);
+         target = componentName != null ? componentName : ((Class) target).getName();
+      }
+      
+      PermissionCheck check = new PermissionCheck(target, action);         
+      
+      try
+      {
+         synchronizeContext(securityContext);
+         
+         handles.add( securityContext.insert(check) );
+
+         securityContext.fireAllRules();
+      }
+      finally
+      {
+         for (FactHandle handle : handles)
          {
-            for (FactHandle handle : handles)
-            {
-               securityContext.retract(handle);
-            }
+            securityContext.retract(handle);
          }
       }
       
@@ -147,60 +201,150 @@ public class RuleBasedPermissionResolver implements PermissionResolver, Serializ
       StatefulSession securityContext = getSecurityContext();
       if (securityContext == null) return false;
       
+      if (concurrent)
+      {
+         PooledWorkingMemory workingMemory = borrowWorkingMemory();
+         try
+         {
+            return checkConditionalRole(workingMemory.session, roleName, target, action);
+         }
+         finally
+         {
+            returnWorkingMemory(workingMemory);
+         }
+      }
+      
+      synchronized( securityContext )
+      {
+         return checkConditionalRole(securityContext, roleName, target, action);
+      }
+   }
+   
+   private boolean checkConditionalRole(StatefulSession securityContext, String roleName, Object target, String action)
+   {
       RoleCheck roleCheck = new RoleCheck(roleName);
       
       List<FactHandle> handles = new ArrayList<FactHandle>();
       PermissionCheck check = new PermissionCheck(target, action);
       
-      synchronized( securityContext )
+      if (!(target instanceof String) && !(target instanceof Class))
       {
-         if (!(target instanceof String) && !(target instanceof Class))
-         {
-            handles.add( securityContext.insert(target) );
-         }
-         else if (target instanceof Class)
-         {
-            String componentName = Seam.getComponentName((Class) target);
-            target = componentName != null ? componentName : ((Class) target).getName();
-         }
+         handles.add( securityContext.insert(target) );
+      }
+      else if (target instanceof Class)
+      {
+         String componentName = Seam.getComponentName((Class) target);
+         target = componentName != null ? componentName : ((Class) target).getName();
+      }
+      
+      try
+      {
+         handles.add( securityContext.insert(check));
          
-         try
+         // Check if there are any additional requirements
+         securityContext.fireAllRules();
+         if (check.hasRequirements())
          {
-            handles.add( securityContext.insert(check));
-            
-            // Check if there are any additional requirements
-            securityContext.fireAllRules();
-            if (check.hasRequirements())
+            for (String requirement : check.getRequirements())
             {
-               for (String requirement : check.getRequirements())
+               Object value = Contexts.lookupInStatefulContexts(requirement);
+               if (value != null)
                {
-                  Object value = Contexts.lookupInStatefulContexts(requirement);
-                  if (value != null)
-                  {
-                     handles.add (securityContext.insert(value));
-                  }
-               }               
-            }
-            
-            synchronizeContext();
-
-            handles.add( securityContext.insert(roleCheck));
-            handles.add( securityContext.insert(check));
-            
-            securityContext.fireAllRules();
+                  handles.add (securityContext.insert(value));
+               }
+            }               
          }
-         finally
+         
+         synchronizeContext(securityContext);
+
+         handles.add( securityContext.insert(roleCheck));
+         handles.add( securityContext.insert(check));
+         
+         securityContext.fireAllRules();
+      }
+      finally
+      {
+         for (FactHandle handle : handles)
          {
-            for (FactHandle handle : handles)
-            {
-               securityContext.retract(handle);
-            }
+            securityContext.retract(handle);
          }
       }
       
       return roleCheck.isGranted();
    }
    
+   /**
+    * Takes a working memory from the pool, or creates a new one containing 
+    * the authenticated user account, if the pool is empty
+    */
+   private PooledWorkingMemory borrowWorkingMemory()
+   {
+      //read before the account, which is assigned before the pool is disposed
+      int generation = poolGeneration.get();
+      PooledWorkingMemory workingMemory;
+      while ( (workingMemory = pool.poll()) != null )
+      {
+         idleWorkingMemories.decrementAndGet();
+         if (workingMemory.generation == generation)
+         {
+            return workingMemory;
+         }
+         //returned while the pool was being disposed
+         workingMemory.session.dispose();
+      }
+      
+      StatefulSession session = getSecurityRules().newStatefulSession(false);
+      session.setGlobalResolver(new SeamGlobalResolver(session.getGlobalResolver()));
+      Object authenticatedUser = this.authenticatedUser;
+      if (authenticatedUser != null)
+      {
+         session.insert(authenticatedUser);
+      }
+      return new PooledWorkingMemory(session, generation);
+   }
+   
+   private void returnWorkingMemory(PooledWorkingMemory workingMemory)
+   {
+      //borrowed before the user logged in or out
+      if (workingMemory.generation != poolGeneration.get())
+      {
+         workingMemory.session.dispose();
+      }
+      //more working memories than the pool keeps are idle
+      else if (idleWorkingMemories.incrementAndGet() > poolSize)
+      {
+         idleWorkingMemories.decrementAndGet();
+         workingMemory.session.dispose();
+      }
+      else
+      {
+         pool.offer(workingMemory);
+      }
+   }
+   
+   private void disposePool()
+   {
+      poolGeneration.incrementAndGet();
+      PooledWorkingMemory workingMemory;
+      while ( (workingMemory = pool.poll()) != null )
+      {
+         idleWorkingMemories.decrementAndGet();
+         workingMemory.session.dispose();
+      }
+   }
+   
+   private static final class PooledWorkingMemory
+   {
+      final StatefulSession session;
+      final int generation;
+      
+      PooledWorkingMemory(StatefulSession session, int generation)
+      {
+         this.session = session;
+         this.generation = generation;
+      }
+   }
+   
    @SuppressWarnings("unchecked")  
    @Observer(Identity.EVENT_LOGGED_OUT)
    public void unAuthenticate()
@@ -210,19 +354,21 @@ public class RuleBasedPermissionResolver implements PermissionResolver, Serializ
          getSecurityContext().dispose();      
          setSecurityContext(null);
       }
+      authenticatedUser = null;
+      disposePool();
       initSecurityContext();
    }
    
    /**
     *  Synchronises the state of the security context with that of the subject
     */
-   private void synchronizeContext()
+   private void synchronizeContext(StatefulSession securityContext)
    {
       Identity identity = Identity.instance();
       
-      if (getSecurityContext() != null)
+      if (securityContext != null)
       {
-         getSecurityContext().insert(identity.getPrincipal());
+         securityContext.insert(identity.getPrincipal());
          
          for ( Group sg : identity.getSubject().getPrincipals(Group.class) )      
          {
@@ -234,7 +380,7 @@ public class RuleBasedPermissionResolver implements PermissionResolver, Serializ
                   Principal role = (Principal) e.nextElement();
    
                   boolean found = false;
-                  Iterator<Role> iter = (Iterator<Role>) getSecurityContext().iterateObjects(new ClassObjectFilter(Role.class)); 
+                  Iterator<Role> iter = (Iterator<Role>) securityContext.iterateObjects(new ClassObjectFilter(Role.class)); 
                   while (iter.hasNext()) 
                   {
                      Role r = iter.next();
@@ -247,21 +393,21 @@ public class RuleBasedPermissionResolver implements PermissionResolver, Serializ
                   
                   if (!found)
                   {
-                     getSecurityContext().insert(new Role(role.getName()));
+                     securityContext.insert(new Role(role.getName()));
                   }
                   
                }
             }
          }    
          
-         Iterator<Role> iter = (Iterator<Role>) getSecurityContext().iterateObjects(new ClassObjectFilter(Role.class)); 
+         Iterator<Role> iter = (Iterator<Role>) securityContext.iterateObjects(new ClassObjectFilter(Role.class)); 
          while (iter.hasNext()) 
          {
             Role r = iter.next();
             if (!identity.hasRole(r.getName()))
             {
-               FactHandle fh = getSecurityContext().getFactHandle(r);
-               getSecurityContext().retract(fh);
+               FactHandle fh = securityContext.getFactHandle(r);
+               securityContext.retract(fh);
             }
          }
       }
@@ -279,6 +425,42 @@ public class RuleBasedPermissionResolver implements PermissionResolver, Serializ
    }
    
 
+   /**
+    * Whether concurrent permission checks of the same user session are performed 
+    * in parallel, each against its own pooled working memory
+    */
+   public boolean isConcurrent()
+   {
+      return concurrent;
+   }
+   
+   public void setConcurrent(boolean concurrent)
+   {
+      this.concurrent = concurrent;
+   }
+   
+   /**
+    * The maximum number of idle working memories kept in the pool 
+    * in concurrent mode, 4 by default
+    */
+   public int getPoolSize()
+   {
+      return poolSize;
+   }
+   
+   public void setPoolSize(int poolSize)
+   {
+      this.poolSize = poolSize;
+   }
+   
+   /**
+    * The number of working memories currently idle in the pool
+    */
+   public int getIdleWorkingMemories()
+   {
+      return idleWorkingMemories.get();
+   }
+
    public RuleBase getSecurityRules()
    {
       return securityRules;
@@ -322,8 +504,12 @@ public class RuleBasedPermissionResolver implements PermissionResolver, Serializ
          if (Contexts.isEventContextActive() && Contexts.isSessionContextActive() &&
                Contexts.getEventContext().isSet(JpaIdentityStore.AUTHENTICATED_USER))
          {
-            getSecurityContext().insert(Contexts.getEventContext().get(JpaIdentityStore.AUTHENTICATED_USER));
+            authenticatedUser = Contexts.getEventContext().get(JpaIdentityStore.AUTHENTICATED_USER);
+            getSecurityContext().insert(authenticatedUser);
          }
+         
+         // Working memories pooled before login hold neither the account nor the principal
+         disposePool();
       }
    }
 }
@@ -2,10 +2,7 @@ package org.jboss.seam.transaction;
 
 import static org.jboss.seam.ComponentType.JAVA_BEAN;
 
-import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.jboss.seam.annotations.TransactionPropagationType;
 import org.jboss.seam.annotations.Transactional;
@@ -31,60 +28,6 @@ public class TransactionInterceptor extends AbstractInterceptor
 {
    private static final long serialVersionUID = -4364203056333738988L;
    
-   transient
-   private Map<AnnotatedElement,TransactionMetadata> transactionMetadata = new HashMap<AnnotatedElement, TransactionMetadata>();
-
-   private class TransactionMetadata
-   {
-      private boolean annotationPresent;
-      TransactionPropagationType propType;
-      
-      public TransactionMetadata(AnnotatedElement element)
-      {
-         annotationPresent = element.isAnnotationPresent(Transactional.class);
-         
-         if (annotationPresent)
-         {
-            propType = element.getAnnotation(Transactional.class).value();
-         }
-      }
-      
-      public boolean isAnnotationPresent()
-      {
-         return annotationPresent;
-      }
-      
-      public boolean isNewTransactionRequired(boolean transactionActive)
-      {
-         return propType != null && propType.isNewTransactionRequired(transactionActive);
-      }
-   }
-   
-   private TransactionMetadata lookupTransactionMetadata(AnnotatedElement element) {
-        if (transactionMetadata == null) {
-            transactionMetadata = new HashMap<AnnotatedElement, TransactionMetadata>();
-        }
-        
-        TransactionMetadata metadata = transactionMetadata.get(element);
-
-        if (metadata == null) {
-            metadata = loadMetadata(element);
-        }
-
-        return metadata;
-    }
-   
-   private synchronized TransactionMetadata loadMetadata(AnnotatedElement element) {
-        if (!transactionMetadata.containsKey(element)) {
-            TransactionMetadata metadata = new TransactionMetadata(element);
-            transactionMetadata.put(element, metadata);
-            return metadata;
-        }
-
-        return transactionMetadata.get(element);
-    }
-   
-   
    @AroundInvoke
    public Object aroundInvoke(final InvocationContext invocation) throws Exception
    {
@@ -100,21 +43,8 @@ public class TransactionInterceptor extends AbstractInterceptor
          @Override
          protected boolean isNewTransactionRequired(boolean transactionActive)
          {
-            return isNewTransactionRequired( invocation.getMethod(), getComponent().getBeanClass(), transactionActive );
-         }
-         
-         private boolean isNewTransactionRequired(Method method, Class beanClass, boolean transactionActive)
-         {
-            TransactionMetadata metadata = lookupTransactionMetadata(method);
-            if (metadata.isAnnotationPresent())
-            {
-               return metadata.isNewTransactionRequired(transactionActive);
-            }
-            else
-            {
-               metadata = lookupTransactionMetadata(beanClass);
-               return metadata.isNewTransactionRequired(transactionActive);
-            }
+            TransactionPropagationType propagation = getComponent().getMethodMetadata( invocation.getMethod() ).getTransactionPropagation();
+            return propagation!=null && propagation.isNewTransactionRequired(transactionActive);
          }
          
       }.workInTransaction();      
@@ -125,4 +55,11 @@ public class TransactionInterceptor extends AbstractInterceptor
       return getComponent().getType()==JAVA_BEAN && getComponent().beanClassHasAnnotation(Transactional.class);
    }
    
+   @Override
+   public boolean isInterceptorEnabled(Method method)
+   {
+      //without @Transactional, a new transaction is never required
+      return getComponent().getMethodMetadata(method).getTransactionPropagation()!=null;
+   }
+   
 }
@@ -0,0 +1,123 @@
+package org.jboss.seam.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of at most a fixed number of entries, which forgets the
+ * least recently used entries to make room for new ones, so that
+ * entries in constant use are kept however many others pass through.
+ *
+ * Large caches are split by hash code into stripes, each with its own
+ * lock and its own share of the entries, so that concurrent lookups
+ * seldom wait for one another. Small caches have a single stripe.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public final class LruCache<K, V>
+{
+   private static final int MAX_STRIPES = 16;
+   private static final int MIN_STRIPE_SIZE = 64;
+
+   private final Stripe<K, V>[] stripes;
+   private final int maxSize;
+
+   @SuppressWarnings("unchecked")
+   public LruCache(int maxSize)
+   {
+      if (maxSize<1)
+      {
+         throw new IllegalArgumentException("cache size must be at least 1: " + maxSize);
+      }
+      this.maxSize = maxSize;
+      int count = Math.max( 1, Math.min(MAX_STRIPES, maxSize / MIN_STRIPE_SIZE) );
+      stripes = new Stripe[count];
+      for (int i=0; i<count; i++)
+      {
+         //the sizes of the stripes add up to exactly maxSize
+         stripes[i] = new Stripe<K, V>( maxSize / count + (i < maxSize % count ? 1 : 0) );
+      }
+   }
+
+   private Stripe<K, V> stripe(Object key)
+   {
+      int hash = key.hashCode();
+      hash ^= hash >>> 16;
+      return stripes[ (hash & 0x7fffffff) % stripes.length ];
+   }
+
+   /**
+    * @return the cached value, or null, marking it as the
+    *         most recently used
+    */
+   public V get(K key)
+   {
+      Stripe<K, V> stripe = stripe(key);
+      synchronized (stripe)
+      {
+         return stripe.get(key);
+      }
+   }
+
+   /**
+    * Cache a value, forgetting the least recently used
+    * value of its stripe if the stripe is full
+    */
+   public void put(K key, V value)
+   {
+      Stripe<K, V> stripe = stripe(key);
+      synchronized (stripe)
+      {
+         stripe.put(key, value);
+      }
+   }
+
+   public void clear()
+   {
+      for (Stripe<K, V> stripe: stripes)
+      {
+         synchronized (stripe)
+         {
+            stripe.clear();
+         }
+      }
+   }
+
+   public int size()
+   {
+      int size = 0;
+      for (Stripe<K, V> stripe: stripes)
+      {
+         synchronized (stripe)
+         {
+            size += stripe.size();
+         }
+      }
+      return size;
+   }
+
+   public int getMaxSize()
+   {
+      return maxSize;
+   }
+
+   private static final class Stripe<K, V> extends LinkedHashMap<K, V>
+   {
+      private static final long serialVersionUID = 1L;
+
+      private final int maxSize;
+
+      Stripe(int maxSize)
+      {
+         super(16, 0.75f, true);
+         this.maxSize = maxSize;
+      }
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+      {
+         return size()>maxSize;
+      }
+   }
+}
@@ -0,0 +1,189 @@
+package org.jboss.seam.web;
+
+import static org.jboss.seam.annotations.Install.BUILT_IN;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpSession;
+
+import org.jboss.seam.ScopeType;
+import org.jboss.seam.Seam;
+import org.jboss.seam.annotations.Create;
+import org.jboss.seam.annotations.Destroy;
+import org.jboss.seam.annotations.Install;
+import org.jboss.seam.annotations.Name;
+import org.jboss.seam.annotations.Scope;
+import org.jboss.seam.annotations.Startup;
+import org.jboss.seam.annotations.intercept.BypassInterceptors;
+import org.jboss.seam.contexts.Contexts;
+import org.jboss.seam.contexts.Lifecycle;
+import org.jboss.seam.contexts.ServletLifecycle;
+import org.jboss.seam.log.LogProvider;
+import org.jboss.seam.log.Logging;
+import org.jboss.seam.servlet.ServletApplicationMap;
+import org.jboss.seam.servlet.ServletSessionMap;
+
+/**
+ * Times out inactive conversations from a background
+ * thread, instead of sweeping the conversations of the
+ * session at the end of every request.
+ *
+ * When this component is installed, requests only touch
+ * their own conversation. Conversations which are locked
+ * by a request in progress are left for the next sweep.
+ *
+ * Sessions are only weakly referenced, so that a session
+ * which the container passivates and drops from memory is
+ * not kept alive by the reaper.
+ */
+@Scope(ScopeType.APPLICATION)
+@Name("org.jboss.seam.web.conversationTimeoutReaper")
+@Install(value=false, precedence=BUILT_IN)
+@BypassInterceptors
+@Startup
+public class ConversationTimeoutReaper
+{
+   private static final LogProvider log = Logging.getLogProvider(ConversationTimeoutReaper.class);
+
+   private int interval = 60000; //1 min
+
+   private final ConcurrentMap<String, WeakReference<HttpSession>> sessions = new ConcurrentHashMap<String, WeakReference<HttpSession>>();
+
+   private ScheduledExecutorService executor;
+
+   private ServletContext servletContext;
+
+   @Create
+   public void startup()
+   {
+      servletContext = ServletLifecycle.getServletContext();
+      executor = Executors.newSingleThreadScheduledExecutor( new ThreadFactory()
+      {
+         public Thread newThread(Runnable runnable)
+         {
+            Thread thread = new Thread(runnable, "Seam conversation timeout reaper");
+            thread.setDaemon(true);
+            return thread;
+         }
+      } );
+      executor.scheduleWithFixedDelay( new Runnable()
+      {
+         public void run()
+         {
+            reap();
+         }
+      }, interval, interval, TimeUnit.MILLISECONDS );
+   }
+
+   @Destroy
+   public void destroy()
+   {
+      executor.shutdown();
+      try
+      {
+         executor.awaitTermination(5, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException ie)
+      {
+         Thread.currentThread().interrupt();
+      }
+      sessions.clear();
+   }
+
+   /**
+    * Start sweeping the conversations of a session
+    */
+   public void register(HttpSession session)
+   {
+      sessions.put( session.getId(), new WeakReference<HttpSession>(session) );
+   }
+
+   /**
+    * Stop sweeping the conversations of a session
+    */
+   public void unregister(HttpSession session)
+   {
+      sessions.remove( session.getId() );
+   }
+
+   /**
+    * Time out the inactive conversations of every
+    * registered session.
+    */
+   public void reap()
+   {
+      for ( Map.Entry<String, WeakReference<HttpSession>> entry: sessions.entrySet() )
+      {
+         HttpSession session = entry.getValue().get();
+         if (session==null)
+         {
+            //the session was dropped from memory without being destroyed
+            sessions.remove( entry.getKey(), entry.getValue() );
+            continue;
+         }
+         try
+         {
+            Lifecycle.timeoutConversations(
+                  new ServletSessionMap(session),
+                  new ServletApplicationMap( getServletContext(session) )
+               );
+         }
+         catch (IllegalStateException ise)
+         {
+            //the session was invalidated underneath us
+            log.debug("session invalidated before conversation timeout: " + entry.getKey());
+            sessions.remove( entry.getKey(), entry.getValue() );
+         }
+         catch (Exception e)
+         {
+            log.warn("exception timing out conversations of session: " + entry.getKey(), e);
+         }
+      }
+   }
+
+   private ServletContext getServletContext(HttpSession session)
+   {
+      return servletContext==null ? session.getServletContext() : servletContext;
+   }
+
+   public int getSessionCount()
+   {
+      return sessions.size();
+   }
+
+   /**
+    * The delay between sweeps, in milliseconds
+    */
+   public int getInterval()
+   {
+      return interval;
+   }
+
+   public void setInterval(int interval)
+   {
+      this.interval = interval;
+   }
+
+   public static ConversationTimeoutReaper getInstance()
+   {
+      if ( !Contexts.isApplicationContextActive() )
+      {
+         return null;
+      }
+      return (ConversationTimeoutReaper) Contexts.getApplicationContext().get( Seam.getComponentName(ConversationTimeoutReaper.class) );
+   }
+
+   public static ConversationTimeoutReaper getInstance(ServletContext ctx)
+   {
+      return (ConversationTimeoutReaper) ctx.getAttribute( Seam.getComponentName(ConversationTimeoutReaper.class) );
+   }
+
+}
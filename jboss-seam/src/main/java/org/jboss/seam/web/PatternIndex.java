@@ -0,0 +1,157 @@
+package org.jboss.seam.web;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The rewrite patterns of an application, indexed so that a path
+ * is only matched against the few patterns that could match it.
+ *
+ * An incoming pattern only matches paths that begin with its
+ * literal text, so patterns are indexed by the first segment of
+ * the path they match, and patterns with an argument in their
+ * first segment are tried for every path. An outgoing pattern only
+ * matches URLs that the view mapping maps to its view, so patterns
+ * are indexed by the value that ServletMapping compares.
+ *
+ * Patterns are always tried in the order they were given, so the
+ * first pattern that matches wins, as before.
+ */
+public class PatternIndex
+{
+    private final List<Pattern> patterns;
+    private final ServletMapping viewMapping;
+
+    private final Map<String, List<Pattern>> incomingBySegment = new HashMap<String, List<Pattern>>();
+    private final List<Pattern> incomingFallback = new ArrayList<Pattern>();
+    private final Map<String, List<Pattern>> outgoingByKey = new HashMap<String, List<Pattern>>();
+
+    public PatternIndex(Collection<Pattern> patterns, ServletMapping viewMapping)
+    {
+        this.patterns = Collections.unmodifiableList(new ArrayList<Pattern>(patterns));
+        this.viewMapping = viewMapping;
+
+        for (Pattern pattern: this.patterns) {
+            pattern.setViewMapping(viewMapping);
+
+            String segment = patternSegment(pattern.pattern);
+            if (segment == null) {
+                incomingFallback.add(pattern);
+                //the fallback patterns go in every bucket, in order
+                for (List<Pattern> bucket: incomingBySegment.values()) {
+                    bucket.add(pattern);
+                }
+            } else {
+                List<Pattern> bucket = incomingBySegment.get(segment);
+                if (bucket == null) {
+                    bucket = new ArrayList<Pattern>(incomingFallback);
+                    incomingBySegment.put(segment, bucket);
+                }
+                bucket.add(pattern);
+            }
+
+            String key = viewMapping.getViewKey(pattern.view);
+            if (key != null) {
+                List<Pattern> bucket = outgoingByKey.get(key);
+                if (bucket == null) {
+                    bucket = new ArrayList<Pattern>(1);
+                    outgoingByKey.put(key, bucket);
+                }
+                bucket.add(pattern);
+            }
+        }
+    }
+
+    public List<Pattern> getPatterns()
+    {
+        return patterns;
+    }
+
+    public ServletMapping getViewMapping()
+    {
+        return viewMapping;
+    }
+
+    /**
+     * Find the first pattern that matches an incoming path
+     *
+     * @return the rewrite, or null if no pattern matches
+     */
+    public Rewrite matchIncoming(String path)
+    {
+        List<Pattern> candidates = incomingBySegment.get(pathSegment(path));
+        if (candidates == null) {
+            candidates = incomingFallback;
+        }
+        for (Pattern pattern: candidates) {
+            Rewrite rewrite = pattern.matchIncoming(path);
+            if (rewrite != null) {
+                return rewrite;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find the first pattern that matches an outgoing path
+     *
+     * @return the rewrite, or null if no pattern matches
+     */
+    public Rewrite matchOutgoing(String path)
+    {
+        int queryPos = path.indexOf('?');
+        String base = queryPos == -1 ? path : path.substring(0, queryPos);
+
+        String key = viewMapping.getURLKey(base);
+        List<Pattern> candidates = key == null ? null : outgoingByKey.get(key);
+        if (candidates != null) {
+            for (Pattern pattern: candidates) {
+                Rewrite rewrite = pattern.matchOutgoing(path);
+                if (rewrite != null) {
+                    return rewrite;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The path up to, but not including, its second '/', or the
+     * whole path if there is none, ignoring any query string
+     */
+    static String pathSegment(String path)
+    {
+        int queryPos = path.indexOf('?');
+        if (queryPos != -1) {
+            path = path.substring(0, queryPos);
+        }
+        int slashPos = path.indexOf('/', 1);
+        return slashPos == -1 ? path : path.substring(0, slashPos);
+    }
+
+    /**
+     * The segment of every path a pattern can match, or null if
+     * the first segment of the pattern holds an argument
+     */
+    static String patternSegment(String pattern)
+    {
+        int argPos = pattern.indexOf('{');
+        int slashPos = pattern.indexOf('/', 1);
+        if (slashPos != -1 && (argPos == -1 || slashPos < argPos)) {
+            return pattern.substring(0, slashPos);
+        } else if (argPos == -1) {
+            return pattern;
+        }
+        return null;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PatternIndex(" + patterns + ")";
+    }
+}
@@ -5,6 +5,7 @@ import static org.jboss.seam.ScopeType.APPLICATION;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import javax.servlet.FilterChain;
@@ -38,6 +39,9 @@ public class RewriteFilter
 
     private String viewMapping;
     
+    //built from the known pages, and built again when they change
+    private volatile CachedIndex cachedIndex;
+    
     
     public void doFilter(ServletRequest request, 
                          ServletResponse response, 
@@ -45,18 +49,18 @@ public class RewriteFilter
         throws IOException, 
                ServletException 
     {
-        List<Pattern> allPatterns = getAllPatterns();
-        
         boolean done = false;
         
         if (request instanceof HttpServletRequest && response instanceof HttpServletResponse) {
+            PatternIndex index = getPatternIndex();
+            
             response = new RewritingResponse((HttpServletRequest) request,
                     (HttpServletResponse)response,
-                    allPatterns);
+                    index);
             
             done = process((HttpServletRequest) request, 
                            (HttpServletResponse) response,
-                            allPatterns);
+                            index);
         }
                 
        if (!done) {
@@ -65,19 +69,27 @@ public class RewriteFilter
     }
     
     
-    @SuppressWarnings("unchecked")
     public boolean process(HttpServletRequest request, 
                         HttpServletResponse response, List<Pattern> patterns)
         throws IOException, 
                ServletException 
+    {
+        return process(request, response, 
+                       new PatternIndex(patterns, new ServletMapping(getViewMapping())));
+    }
+    
+    public boolean process(HttpServletRequest request, 
+                        HttpServletResponse response, PatternIndex index)
+        throws IOException, 
+               ServletException 
     {
         String fullPath = request.getRequestURI();
         //log.debug("incoming URL is " + fullPath);
-        //log.debug("known patterns are " + patterns);
+        //log.debug("known patterns are " + index);
 
         String localPath = strip(fullPath, request.getContextPath());
        
-        Rewrite rewrite = matchPatterns(localPath, patterns);
+        Rewrite rewrite = index.matchIncoming(localPath);
         if (rewrite!=null) {
             String newPath = rewrite.rewrite();
             
@@ -104,16 +116,6 @@ public class RewriteFilter
     }
 
 
-    private Rewrite matchPatterns(String localPath, List<Pattern> patterns) {
-        for (Pattern pattern: patterns) {
-            Rewrite rewrite = pattern.matchIncoming(localPath);
-            if (rewrite!=null && rewrite.isMatch()) {
-                return rewrite;
-            }
-        }
-        return null;
-    }
-
     private String strip(String fullPath, String contextPath) {
         if (fullPath.startsWith(contextPath)) {
             return fullPath.substring(contextPath.length());
@@ -123,28 +125,56 @@ public class RewriteFilter
     }
     
     
-    private List<Pattern> getAllPatterns() {
-        List<Pattern> allPatterns = new ArrayList<Pattern>();
-        
+    private PatternIndex getPatternIndex() {
         Pages pages = (Pages) getServletContext().getAttribute(Seam.getComponentName(Pages.class));
-        if (pages != null) {
-            Collection<String> ids = pages.getKnownViewIds();
-
-            for (String id: ids) {
-                 Page page = pages.getPage(id);
-                 allPatterns.addAll(page.getRewritePatterns());
-            }
-        } else {
+        if (pages == null) {
             log.warn("Pages is null for incoming request!");
+            return new PatternIndex(Collections.<Pattern>emptyList(), new ServletMapping(getViewMapping()));
         }
         
-        ServletMapping mapping = new ServletMapping(getViewMapping());
-        for (Pattern pattern: allPatterns) {
-            pattern.setViewMapping(mapping);
+        CachedIndex cached = cachedIndex;
+        if (cached == null || !cached.isCurrent(pages, getViewMapping())) {
+            //read the generation first, so that an index built while 
+            //pages.xml is being redeployed is built again afterwards
+            int generation = pages.getGeneration();
+            cached = new CachedIndex(pages, generation, getViewMapping(), getAllPatterns(pages));
+            cachedIndex = cached;
+            log.debug("indexed rewrite patterns: " + cached.index);
+        }
+        return cached.index;
+    }
+    
+    private List<Pattern> getAllPatterns(Pages pages) {
+        List<Pattern> allPatterns = new ArrayList<Pattern>();
+        
+        Collection<String> ids = pages.getKnownViewIds();
+        for (String id: ids) {
+             Page page = pages.getPage(id);
+             allPatterns.addAll(page.getRewritePatterns());
         }
         
         return allPatterns;
     }
+    
+    private static class CachedIndex {
+        final Pages pages;
+        final int generation;
+        final String viewMapping;
+        final PatternIndex index;
+        
+        CachedIndex(Pages pages, int generation, String viewMapping, List<Pattern> patterns) {
+            this.pages = pages;
+            this.generation = generation;
+            this.viewMapping = viewMapping;
+            this.index = new PatternIndex(patterns, new ServletMapping(viewMapping));
+        }
+        
+        boolean isCurrent(Pages pages, String viewMapping) {
+            return this.pages == pages && 
+                   generation == pages.getGeneration() && 
+                   this.viewMapping.equals(viewMapping);
+        }
+    }
 
 
    public String getViewMapping()
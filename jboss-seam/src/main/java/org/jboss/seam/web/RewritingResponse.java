@@ -19,6 +19,7 @@ public class RewritingResponse
 
     private HttpServletRequest request;
     private Collection<Pattern> patterns;
+    private PatternIndex index;
 
     public RewritingResponse(HttpServletRequest request, 
             HttpServletResponse response, 
@@ -30,6 +31,17 @@ public class RewritingResponse
         this.patterns = patterns;   
     }   
 
+    public RewritingResponse(HttpServletRequest request, 
+            HttpServletResponse response, 
+            PatternIndex index) 
+    {
+        super(response);
+
+        this.request  = request;
+        this.patterns = index.getPatterns();
+        this.index    = index;
+    }   
+
     @Override
     public String encodeRedirectUrl(String url) {
         return encodeRedirectURL(url);
@@ -81,14 +93,22 @@ public class RewritingResponse
         String path = originalPath.startsWith(contextPath) ? 
                       originalPath.substring(contextPath.length()) : originalPath;
                       
+        Rewrite rewrite = index == null ? matchPatterns(path) : index.matchOutgoing(path);
+        if (rewrite != null) {
+            return request.getContextPath() + rewrite.rewrite();
+        }
+
+        return originalPath;
+    }
+
+    private Rewrite matchPatterns(String path) {
         for (Pattern pattern: patterns) {
             Rewrite rewrite = pattern.matchOutgoing(path);
             if (rewrite != null) {
-                return request.getContextPath() + rewrite.rewrite();
+                return rewrite;
             }
         }
-
-        return originalPath;
+        return null;
     }
 
     public String rewriteURL(String originalUrl) {        
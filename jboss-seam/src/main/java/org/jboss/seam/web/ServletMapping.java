@@ -47,5 +47,25 @@ public class ServletMapping {
         
         return false;        
     }
+    
+    // isMapped(baseURL, viewId) is true exactly when getURLKey(baseURL) and 
+    // getViewKey(viewId) are equal and not null, so views can be looked up by URL
+    String getViewKey(String viewId) {
+        if (mapping.startsWith("*.")) {
+            return stripExtension(viewId);
+        } else if (mapping.endsWith("/*")) {
+            return mapping.substring(0,mapping.length()-2) + viewId;
+        }
+        return null;
+    }
+    
+    String getURLKey(String baseURL) {
+        if (mapping.startsWith("*.")) {
+            return stripExtension(baseURL);
+        } else if (mapping.endsWith("/*")) {
+            return baseURL;
+        }
+        return null;
+    }
 
 }
@@ -0,0 +1,188 @@
+package org.jboss.seam.contexts;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.seam.Seam;
+import org.jboss.seam.annotations.ConversationLockType;
+import org.jboss.seam.core.ConversationEntries;
+import org.jboss.seam.core.ConversationEntry;
+import org.jboss.seam.core.Manager;
+import org.jboss.seam.persistence.PersistenceContexts;
+import org.jboss.seam.persistence.PersistenceProvider;
+import org.jboss.seam.test.unit.MockContainerTest;
+import org.jboss.seam.test.unit.entity.VersionedEntity;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that READ requests sharing a conversation activate its
+ * entities one at a time, and never share a Seam-managed
+ * persistence context
+ */
+public class ConversationReadLockTest extends MockContainerTest
+{
+   private static final String PERSISTENCE_CONTEXT = "entityManager";
+
+   private final Map<String, Object> session = Collections.synchronizedMap( new HashMap<String, Object>() );
+   private ExecutorService requests;
+   private MockEntityManager entityManager;
+   private ConversationEntries entries;
+   private ConversationEntry entry;
+
+   @Override
+   protected Class[] getComponentsToInstall()
+   {
+      return new Class[] { ConversationEntries.class, PersistenceContexts.class, PersistenceProvider.class };
+   }
+
+   @BeforeMethod
+   public void storeConversation()
+   {
+      requests = Executors.newFixedThreadPool(2);
+      session.clear();
+      entries = ConversationEntries.instance();
+      entry = entries.createConversationEntry( "1", stack("1") );
+
+      //an entity in the conversation, passivated by an earlier request
+      entityManager = new MockEntityManager();
+      Contexts.getConversationContext().set( PERSISTENCE_CONTEXT, entityManager.getProxy() );
+      PersistenceContexts.instance().touch(PERSISTENCE_CONTEXT);
+      ServerConversationContext conversation = new ServerConversationContext(session, "1");
+      conversation.set( "entity", entityManager.load( new VersionedEntity(1L) ) );
+      conversation.flush();
+   }
+
+   @AfterMethod
+   public void stopRequests()
+   {
+      requests.shutdownNow();
+   }
+
+   private static List<String> stack(String... ids)
+   {
+      List<String> stack = new ArrayList<String>();
+      for (String id: ids) stack.add(id);
+      return stack;
+   }
+
+   /**
+    * Restore the conversation in another thread, run the work
+    * and flush the conversation context
+    *
+    * @return false if the conversation could not be locked
+    */
+   private Future<Boolean> request(final ConversationLockType lockType, final CyclicBarrier start, final Runnable work)
+   {
+      return requests.submit( new Callable<Boolean>()
+      {
+         public Boolean call() throws Exception
+         {
+            Lifecycle.beginCall();
+            Context temporaryConversation = Contexts.getConversationContext();
+            Manager manager = Manager.instance();
+            boolean locked = false;
+            try
+            {
+               //the entity manager of this request, used to activate the entity
+               Contexts.getEventContext().set( PERSISTENCE_CONTEXT, entityManager.getProxy() );
+               Contexts.getSessionContext().set( Seam.getComponentName(ConversationEntries.class), entries );
+               manager.setConcurrentRequestTimeout(100);
+               manager.setCurrentConversationId("1");
+               manager.setCurrentConversationIdStack( entry.getConversationIdStack() );
+               manager.setLongRunningConversation(true);
+               locked = entry.lock(lockType);
+               if (start!=null)
+               {
+                  start.await(10, TimeUnit.SECONDS);
+               }
+               if (!locked)
+               {
+                  return false;
+               }
+               ServerConversationContext conversation = new ServerConversationContext(session);
+               Contexts.conversationContext.set(conversation);
+               conversation.unflush();
+               if (work!=null)
+               {
+                  work.run();
+               }
+               conversation.flush();
+               return true;
+            }
+            finally
+            {
+               if (locked)
+               {
+                  entry.unlock();
+               }
+               manager.setLongRunningConversation(false);
+               Contexts.conversationContext.set(temporaryConversation);
+               Lifecycle.endCall();
+            }
+         }
+      } );
+   }
+
+   @Test
+   public void testReadRequestsActivateEntitiesOneAtATime() throws Exception
+   {
+      entityManager.setReferenceDelay(50);
+      CyclicBarrier start = new CyclicBarrier(2);
+      Future<Boolean> first = request(ConversationLockType.READ, start, null);
+      Future<Boolean> second = request(ConversationLockType.READ, start, null);
+      assert first.get(10, TimeUnit.SECONDS);
+      assert second.get(10, TimeUnit.SECONDS);
+      assert !entityManager.isUsedConcurrently() : "entity activated by two requests at once";
+      assert !entry.isPersistenceContextHeld();
+   }
+
+   @Test
+   public void testManagedPersistenceContextIsNotShared() throws Exception
+   {
+      //a READ request creates a Seam-managed persistence context
+      assert request( ConversationLockType.READ, null, new Runnable()
+      {
+         public void run()
+         {
+            PersistenceContexts.instance().touch(PERSISTENCE_CONTEXT);
+         }
+      } ).get(10, TimeUnit.SECONDS);
+      assert entry.isPersistenceContextHeld();
+
+      ConversationEntry nested = entries.createConversationEntry( "2", stack("2", "1") );
+      assert entry.lock(ConversationLockType.READ);
+      try
+      {
+         assert !entry.isReadLockedByCurrentThread() : "READ lock shared with a persistence context";
+         assert !request(ConversationLockType.READ, null, null).get(10, TimeUnit.SECONDS);
+      }
+      finally
+      {
+         entry.unlock();
+      }
+
+      assert nested.lock(ConversationLockType.READ);
+      try
+      {
+         assert !nested.isReadLockedByCurrentThread() : "READ lock of nested conversation shared";
+         assert !request(ConversationLockType.READ, null, null).get(10, TimeUnit.SECONDS);
+      }
+      finally
+      {
+         nested.unlock();
+      }
+
+      assert request(ConversationLockType.READ, null, null).get(10, TimeUnit.SECONDS);
+   }
+}
@@ -0,0 +1,200 @@
+package org.jboss.seam.contexts;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.FlushModeType;
+
+import org.jboss.seam.persistence.PersistenceContexts;
+import org.jboss.seam.persistence.PersistenceProvider;
+import org.jboss.seam.test.unit.MockContainerTest;
+import org.jboss.seam.test.unit.entity.VersionedEntity;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that the entity wrappers ask to be put into the session
+ * again exactly when the entities they refer to have changed
+ */
+public class EntityBeanTest extends MockContainerTest
+{
+   private static final String PERSISTENCE_CONTEXT = "entityManager";
+
+   private MockEntityManager entityManager;
+
+   @Override
+   protected Class[] getComponentsToInstall()
+   {
+      return new Class[] { PersistenceContexts.class, PersistenceProvider.class };
+   }
+
+   @BeforeMethod
+   public void touchPersistenceContext()
+   {
+      entityManager = new MockEntityManager();
+      Contexts.getConversationContext().set( PERSISTENCE_CONTEXT, entityManager.getProxy() );
+      PersistenceContexts.instance().touch(PERSISTENCE_CONTEXT);
+   }
+
+   private VersionedEntity load(long id)
+   {
+      return entityManager.load( new VersionedEntity(id) );
+   }
+
+   @Test
+   public void testEntityBean()
+   {
+      VersionedEntity entity = load(1);
+      EntityBean bean = new EntityBean(entity);
+      assert bean.passivate();
+
+      bean.activate();
+      assert bean.getInstance()==entity;
+      assert !bean.passivate() : "unchanged entity replicated again";
+
+      bean.activate();
+      entity.setVersion(2);
+      assert bean.passivate() : "new version not replicated";
+
+      bean.activate();
+      assert !bean.passivate();
+   }
+
+   @Test
+   @SuppressWarnings("unchecked")
+   public void testEntityBeanList()
+   {
+      List<VersionedEntity> list = new ArrayList<VersionedEntity>();
+      list.add( load(1) );
+      list.add( load(2) );
+      EntityBeanList bean = new EntityBeanList(list);
+      assert bean.passivate();
+
+      bean.activate();
+      assert !bean.passivate() : "unchanged list replicated again";
+
+      bean.activate();
+      ( (List) bean.getInstance() ).add( load(3) );
+      assert bean.passivate() : "added element not replicated";
+
+      bean.activate();
+      ( (List<VersionedEntity>) bean.getInstance() ).get(1).setVersion(2);
+      assert bean.passivate() : "new version not replicated";
+
+      bean.activate();
+      ( (List) bean.getInstance() ).add( new VersionedEntity(4L) );
+      assert bean.passivate() : "unmanaged element not replicated";
+      assert bean.passivate() : "unmanaged element not replicated";
+   }
+
+   @Test
+   @SuppressWarnings("unchecked")
+   public void testEntityBeanSet()
+   {
+      Set<VersionedEntity> set = new HashSet<VersionedEntity>();
+      VersionedEntity first = load(1);
+      set.add(first);
+      set.add( load(2) );
+      EntityBeanSet bean = new EntityBeanSet(set);
+      assert bean.passivate();
+
+      bean.activate();
+      assert !bean.passivate() : "unchanged set replicated again";
+
+      bean.activate();
+      ( (Set) bean.getInstance() ).remove(first);
+      assert bean.passivate() : "removed element not replicated";
+
+      bean.activate();
+      assert !bean.passivate();
+   }
+
+   @Test
+   @SuppressWarnings("unchecked")
+   public void testEntityBeanMap()
+   {
+      Map<String, VersionedEntity> map = new HashMap<String, VersionedEntity>();
+      map.put( "first", load(1) );
+      map.put( "second", load(2) );
+      EntityBeanMap bean = new EntityBeanMap(map);
+      assert bean.passivate();
+
+      bean.activate();
+      assert !bean.passivate() : "unchanged map replicated again";
+
+      bean.activate();
+      ( (Map) bean.getInstance() ).put( "second", load(3) );
+      assert bean.passivate() : "replaced value not replicated";
+
+      bean.activate();
+      ( (Map<String, VersionedEntity>) bean.getInstance() ).get("first").setVersion(2);
+      assert bean.passivate() : "new version not replicated";
+   }
+
+   @Test
+   public void testLoadAllSkipsLoadedEntities()
+   {
+      List<PassivatedEntity> passivatedEntities = new ArrayList<PassivatedEntity>();
+      passivatedEntities.add( PassivatedEntity.passivateEntity( load(1) ) );
+      passivatedEntities.add( PassivatedEntity.passivateEntity( load(2) ) );
+
+      PassivatedEntity.loadAll(passivatedEntities);
+      assert entityManager.getQueryCount()==0 : "loaded entities queried again";
+
+      entityManager.clear();
+      PassivatedEntity.loadAll(passivatedEntities);
+      assert entityManager.getQueryCount()==1;
+      assert entityManager.isLoaded( passivatedEntities.get(0).toEntityReference(false) );
+      assert entityManager.isLoaded( passivatedEntities.get(1).toEntityReference(false) );
+
+      PassivatedEntity.loadAll(passivatedEntities);
+      assert entityManager.getQueryCount()==1 : "loaded entities queried again";
+   }
+
+   @Test
+   public void testLoadAllQueriesOnlyMissingEntities()
+   {
+      VersionedEntity first = load(1);
+      List<PassivatedEntity> passivatedEntities = new ArrayList<PassivatedEntity>();
+      passivatedEntities.add( PassivatedEntity.passivateEntity(first) );
+      passivatedEntities.add( PassivatedEntity.passivateEntity( load(2) ) );
+      passivatedEntities.add( PassivatedEntity.passivateEntity( load(3) ) );
+
+      entityManager.clear();
+      entityManager.load(first);
+      PassivatedEntity.loadAll(passivatedEntities);
+      assert entityManager.getQueryCount()==1;
+      assert entityManager.getLastQueryIds().size()==2 : "loaded entity queried again";
+      assert !entityManager.getLastQueryIds().contains( first.getId() );
+   }
+
+   @Test
+   public void testLoadAllDoesNotFlush()
+   {
+      List<PassivatedEntity> passivatedEntities = new ArrayList<PassivatedEntity>();
+      passivatedEntities.add( PassivatedEntity.passivateEntity( load(1) ) );
+      passivatedEntities.add( PassivatedEntity.passivateEntity( load(2) ) );
+
+      entityManager.clear();
+      PassivatedEntity.loadAll(passivatedEntities);
+      assert entityManager.getQueryCount()==1;
+      assert entityManager.getLastQueryFlushMode()==FlushModeType.COMMIT : "changes flushed before activating entities";
+   }
+
+   @Test
+   public void testPassivatedEntityEquality()
+   {
+      VersionedEntity entity = load(1);
+      PassivatedEntity passivated = PassivatedEntity.passivateEntity(entity);
+      assert passivated.equals( PassivatedEntity.passivateEntity(entity) );
+      assert passivated.hashCode()==PassivatedEntity.passivateEntity(entity).hashCode();
+
+      entity.setVersion(2);
+      assert !passivated.equals( PassivatedEntity.passivateEntity(entity) );
+      assert !passivated.equals( PassivatedEntity.passivateEntity( load(2) ) );
+   }
+}
@@ -0,0 +1,239 @@
+package org.jboss.seam.contexts;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.FlushModeType;
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.Query;
+
+import org.jboss.seam.test.unit.entity.VersionedEntity;
+
+/**
+ * Just enough of an EntityManager to passivate and activate
+ * entities: a "database" of VersionedEntity by id, and the
+ * set of entities loaded into the persistence context.
+ */
+class MockEntityManager implements InvocationHandler
+{
+   private final Map<Object, VersionedEntity> database = new HashMap<Object, VersionedEntity>();
+   private final Set<Object> loaded = Collections.newSetFromMap( new IdentityHashMap<Object, Boolean>() );
+   private int queryCount;
+   private Collection<?> lastQueryIds = Collections.emptyList();
+   private FlushModeType lastQueryFlushMode;
+   private final AtomicInteger users = new AtomicInteger();
+   private volatile boolean usedConcurrently;
+   private volatile long referenceDelay;
+
+   private final EntityManager proxy = (EntityManager) newProxy(EntityManager.class, this);
+
+   EntityManager getProxy()
+   {
+      return proxy;
+   }
+
+   /**
+    * Store an entity, and load it into the persistence context
+    */
+   VersionedEntity load(VersionedEntity entity)
+   {
+      database.put( entity.getId(), entity );
+      loaded.add(entity);
+      return entity;
+   }
+
+   /**
+    * Empty the persistence context, as at the end of a
+    * request without a conversation scoped persistence
+    * context
+    */
+   void clear()
+   {
+      loaded.clear();
+   }
+
+   boolean isLoaded(Object entity)
+   {
+      return loaded.contains(entity);
+   }
+
+   /**
+    * The number of queries executed
+    */
+   int getQueryCount()
+   {
+      return queryCount;
+   }
+
+   /**
+    * The ids the last query was executed for
+    */
+   Collection<?> getLastQueryIds()
+   {
+      return lastQueryIds;
+   }
+
+   /**
+    * The flush mode the last query was executed with, or
+    * null if it was executed with the default flush mode
+    */
+   FlushModeType getLastQueryFlushMode()
+   {
+      return lastQueryFlushMode;
+   }
+
+   /**
+    * Make getReference() take a while, so that requests
+    * sharing the EntityManager would overlap
+    */
+   void setReferenceDelay(long referenceDelay)
+   {
+      this.referenceDelay = referenceDelay;
+   }
+
+   /**
+    * Was the EntityManager ever called by two threads at once?
+    */
+   boolean isUsedConcurrently()
+   {
+      return usedConcurrently;
+   }
+
+   public Object invoke(Object proxy, Method method, Object[] args) throws InterruptedException
+   {
+      if ( users.incrementAndGet()>1 )
+      {
+         usedConcurrently = true;
+      }
+      try
+      {
+         return invokeEntityManager(proxy, method, args);
+      }
+      finally
+      {
+         users.decrementAndGet();
+      }
+   }
+
+   private Object invokeEntityManager(Object proxy, Method method, Object[] args) throws InterruptedException
+   {
+      String name = method.getName();
+      if ( name.equals("isOpen") )
+      {
+         return true;
+      }
+      else if ( name.equals("contains") )
+      {
+         return loaded.contains( args[0] );
+      }
+      else if ( name.equals("getReference") )
+      {
+         //like an uninitialized proxy, the reference is not loaded
+         if (referenceDelay>0)
+         {
+            Thread.sleep(referenceDelay);
+         }
+         return database.get( args[1] );
+      }
+      else if ( name.equals("createQuery") )
+      {
+         return newProxy( Query.class, new QueryHandler() );
+      }
+      else if ( name.equals("getEntityManagerFactory") )
+      {
+         return newProxy( EntityManagerFactory.class, new PersistenceUnitHandler() );
+      }
+      return objectMethod(proxy, method, args);
+   }
+
+   private class PersistenceUnitHandler implements InvocationHandler
+   {
+      public Object invoke(Object proxy, Method method, Object[] args)
+      {
+         String name = method.getName();
+         if ( name.equals("getPersistenceUnitUtil") )
+         {
+            return newProxy( PersistenceUnitUtil.class, this );
+         }
+         else if ( name.equals("isLoaded") && args.length==1 )
+         {
+            return loaded.contains( args[0] );
+         }
+         return objectMethod(proxy, method, args);
+      }
+   }
+
+   private class QueryHandler implements InvocationHandler
+   {
+      private Collection<?> ids = Collections.emptyList();
+      private FlushModeType flushMode;
+
+      public Object invoke(Object proxy, Method method, Object[] args)
+      {
+         String name = method.getName();
+         if ( name.equals("setParameter") )
+         {
+            ids = (Collection<?>) args[1];
+            return proxy;
+         }
+         else if ( name.equals("setFlushMode") )
+         {
+            flushMode = (FlushModeType) args[0];
+            return proxy;
+         }
+         else if ( name.equals("getResultList") )
+         {
+            queryCount++;
+            lastQueryIds = ids;
+            lastQueryFlushMode = flushMode;
+            List<Object> result = new ArrayList<Object>();
+            for (Object id: ids)
+            {
+               VersionedEntity entity = database.get(id);
+               if (entity!=null)
+               {
+                  loaded.add(entity);
+                  result.add(entity);
+               }
+            }
+            return result;
+         }
+         return objectMethod(proxy, method, args);
+      }
+   }
+
+   private static Object objectMethod(Object proxy, Method method, Object[] args)
+   {
+      String name = method.getName();
+      if ( name.equals("equals") )
+      {
+         return proxy==args[0];
+      }
+      else if ( name.equals("hashCode") )
+      {
+         return System.identityHashCode(proxy);
+      }
+      else if ( name.equals("toString") )
+      {
+         return "MockEntityManager";
+      }
+      throw new UnsupportedOperationException( method.getName() );
+   }
+
+   private static Object newProxy(Class<?> type, InvocationHandler handler)
+   {
+      return Proxy.newProxyInstance( MockEntityManager.class.getClassLoader(), new Class[] { type }, handler );
+   }
+}
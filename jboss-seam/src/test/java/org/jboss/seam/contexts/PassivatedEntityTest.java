@@ -0,0 +1,89 @@
+package org.jboss.seam.contexts;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests the serialized form of PassivatedEntity
+ */
+public class PassivatedEntityTest
+{
+   /**
+    * new PassivatedEntity(7L, 3, String.class, "entityManager"), 
+    * serialized in the default form written by earlier versions
+    */
+   private static final String DEFAULT_FORM = 
+         "aced0005737200286f72672e6a626f73732e7365616d2e636f6e74657874732e50617373697661746564456e746974795b1d2129" +
+         "8656e1cc0200044c000b656e74697479436c6173737400114c6a6176612f6c616e672f436c6173733b4c000269647400124c6a61" +
+         "76612f6c616e672f4f626a6563743b4c001270657273697374656e6365436f6e746578747400124c6a6176612f6c616e672f5374" +
+         "72696e673b4c000776657273696f6e71007e00027870767200106a6176612e6c616e672e537472696e67a0f0a4387a3bb3420200" +
+         "0078707372000e6a6176612e6c616e672e4c6f6e673b8be490cc8f23df0200014a000576616c7565787200106a6176612e6c616e" +
+         "672e4e756d62657286ac951d0b94e08b0200007870000000000000000774000d656e746974794d616e61676572737200116a6176" +
+         "612e6c616e672e496e746567657212e2a0a4f781873802000149000576616c75657871007e000800000003";
+
+   private static Object roundTrip(Object object) throws Exception
+   {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream out = new ObjectOutputStream(bytes);
+      out.writeObject(object);
+      out.close();
+      return new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+   }
+
+   private static void assertRoundTrip(Object id, Object version) throws Exception
+   {
+      PassivatedEntity passivatedEntity = new PassivatedEntity(id, version, String.class, "entityManager");
+      PassivatedEntity copy = (PassivatedEntity) roundTrip(passivatedEntity);
+      assert passivatedEntity.equals(copy) : passivatedEntity + " " + version;
+      assert copy.isVersioned()==(version!=null);
+      assert copy.toString().equals( "java.lang.String#" + id );
+   }
+
+   @Test
+   public void testRoundTrip() throws Exception
+   {
+      char[] longString = new char[30000];
+      Arrays.fill(longString, 'x');
+
+      Object[] values = { 1, 2L, (short) 3, "id", new String(longString), new BigDecimal("4.5"), new Date(6) };
+      for (Object id: values)
+      {
+         for (Object version: values)
+         {
+            assertRoundTrip(id, version);
+         }
+         assertRoundTrip(id, null);
+      }
+   }
+
+   @Test
+   public void testValueTypesArePreserved() throws Exception
+   {
+      PassivatedEntity copy = (PassivatedEntity) roundTrip( new PassivatedEntity(1, (short) 2, String.class, "entityManager") );
+      assert !copy.equals( new PassivatedEntity(1L, (short) 2, String.class, "entityManager") );
+      assert !copy.equals( new PassivatedEntity(1, 2, String.class, "entityManager") );
+      assert copy.equals( new PassivatedEntity(1, (short) 2, String.class, "entityManager") );
+   }
+
+   @Test
+   public void testReadDefaultForm() throws Exception
+   {
+      byte[] bytes = new byte[DEFAULT_FORM.length() / 2];
+      for (int i=0; i<bytes.length; i++)
+      {
+         bytes[i] = (byte) Integer.parseInt( DEFAULT_FORM.substring(2*i, 2*i+2), 16 );
+      }
+      PassivatedEntity passivatedEntity = (PassivatedEntity) new ObjectInputStream( new ByteArrayInputStream(bytes) ).readObject();
+      assert passivatedEntity.equals( new PassivatedEntity(7L, 3, String.class, "entityManager") );
+
+      //and it is written in the current form again
+      assert passivatedEntity.equals( roundTrip(passivatedEntity) );
+   }
+}
@@ -0,0 +1,197 @@
+package org.jboss.seam.test.unit;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.faces.event.PhaseId;
+
+import org.jboss.seam.Component;
+import org.jboss.seam.Seam;
+import org.jboss.seam.contexts.ApplicationContext;
+import org.jboss.seam.contexts.Context;
+import org.jboss.seam.contexts.Contexts;
+import org.jboss.seam.contexts.FacesLifecycle;
+import org.jboss.seam.contexts.ServletLifecycle;
+import org.jboss.seam.core.BijectionInterceptor;
+import org.jboss.seam.core.ConversationEntries;
+import org.jboss.seam.core.Init;
+import org.jboss.seam.core.Manager;
+import org.jboss.seam.intercept.InvocationContext;
+import org.jboss.seam.mock.MockExternalContext;
+import org.jboss.seam.mock.MockServletContext;
+
+/**
+ * Measures the calls per millisecond through the BijectionInterceptor
+ * of a single application scoped component, as more threads call it,
+ * next to the lock the interceptor used to take on every call. It is
+ * not part of the test suite, since timings depend on the machine:
+ * run the main method with the test classpath.
+ */
+public class BijectionInterceptorBenchmark
+{
+   private static final int CALLS = 200000;
+   private static final int[] THREADS = { 1, 4, 16, 32 };
+
+   public static void main(String[] args) throws Exception
+   {
+      MockServletContext servletContext = new MockServletContext();
+      ServletLifecycle.beginApplication(servletContext);
+      final MockExternalContext externalContext = new MockExternalContext(servletContext);
+      Context appContext = new ApplicationContext( externalContext.getApplicationMap() );
+      appContext.set( Seam.getComponentName(Init.class), new Init() );
+      appContext.set( Seam.getComponentName(ConversationEntries.class) + ".component",
+            new Component(ConversationEntries.class, appContext) );
+      appContext.set( Seam.getComponentName(Manager.class) + ".component",
+            new Component(Manager.class, appContext) );
+      appContext.set( Seam.getComponentName(Foo.class) + ".component",
+            new Component(Foo.class, appContext) );
+      appContext.set( Seam.getComponentName(FooBar.class) + ".component",
+            new Component(FooBar.class, appContext) );
+      Component component = new Component(FooBar.class, appContext);
+
+      for (int threads: THREADS)
+      {
+         BijectionInterceptor interceptor = new BijectionInterceptor();
+         interceptor.setComponent(component);
+         double current = run( externalContext, new InterceptorCall(interceptor), threads );
+         double locking = run( externalContext, new LockingCall(component), threads );
+         System.out.println( threads + " threads: " + Math.round(current) +
+               " calls/ms, with a lock on every call: " + Math.round(locking) + " calls/ms" );
+      }
+
+      ServletLifecycle.endApplication();
+   }
+
+   /**
+    * Run the call on each thread, once to warm up and then timed
+    *
+    * @return the calls per millisecond
+    */
+   private static double run(MockExternalContext externalContext, Call call, int threads) throws Exception
+   {
+      time(externalContext, call, threads);
+      long nanos = time(externalContext, call, threads);
+      return (double) CALLS * threads * 1000000 / nanos;
+   }
+
+   private static long time(final MockExternalContext externalContext, final Call call, int threads) throws Exception
+   {
+      final FooBar fooBar = new FooBar();
+      final Foo foo = new Foo();
+      final InvocationContext invocation = new MockInvocationContext() {
+         @Override public Object getTarget() { return fooBar; }
+         @Override public Object proceed() throws Exception { return fooBar.foo; }
+      };
+      final CountDownLatch ready = new CountDownLatch(threads);
+      final CountDownLatch start = new CountDownLatch(1);
+      final CountDownLatch done = new CountDownLatch(threads);
+
+      for (int i=0; i<threads; i++)
+      {
+         new Thread(new Runnable() {
+            public void run() {
+               try
+               {
+                  FacesLifecycle.beginRequest(externalContext);
+                  Manager.instance().setCurrentConversationId("1");
+                  FacesLifecycle.resumeConversation(externalContext);
+                  FacesLifecycle.setPhaseId(PhaseId.RENDER_RESPONSE);
+                  Contexts.getSessionContext().set("foo", foo);
+
+                  ready.countDown();
+                  start.await();
+                  for (int j=0; j<CALLS; j++)
+                  {
+                     if ( call.invoke(invocation)!=foo ) throw new IllegalStateException("not injected");
+                  }
+               }
+               catch (Exception ex)
+               {
+                  ex.printStackTrace();
+               }
+               finally
+               {
+                  done.countDown();
+               }
+            }
+         }).start();
+      }
+
+      ready.await();
+      long begin = System.nanoTime();
+      start.countDown();
+      done.await();
+      return System.nanoTime() - begin;
+   }
+
+   private interface Call
+   {
+      Object invoke(InvocationContext invocation) throws Exception;
+   }
+
+   private static class InterceptorCall implements Call
+   {
+      private final BijectionInterceptor interceptor;
+
+      InterceptorCall(BijectionInterceptor interceptor)
+      {
+         this.interceptor = interceptor;
+      }
+
+      public Object invoke(InvocationContext invocation) throws Exception
+      {
+         return interceptor.aroundInvoke(invocation);
+      }
+   }
+
+   /**
+    * Clients counted under a lock before and after every call, 
+    * as the interceptor used to count them
+    */
+   private static class LockingCall implements Call
+   {
+      private final Component component;
+      private final ReentrantLock lock = new ReentrantLock();
+      private int clients;
+
+      LockingCall(Component component)
+      {
+         this.component = component;
+      }
+
+      public Object invoke(InvocationContext invocation) throws Exception
+      {
+         lock.lock();
+         try
+         {
+            if (clients==0)
+            {
+               component.inject( invocation.getTarget(), true );
+            }
+            clients++;
+         }
+         finally
+         {
+            lock.unlock();
+         }
+
+         Object result = invocation.proceed();
+
+         lock.lock();
+         try
+         {
+            if (clients==1)
+            {
+               component.outject( invocation.getTarget(), true );
+               component.disinject( invocation.getTarget() );
+            }
+            clients--;
+         }
+         finally
+         {
+            lock.unlock();
+         }
+         return result;
+      }
+   }
+}
@@ -1,12 +1,20 @@
 //$Id: ComponentTest.java 6435 2007-10-08 18:15:49Z pmuir $
 package org.jboss.seam.test.unit;
 
+import java.util.List;
+
 import org.jboss.seam.Component;
 import org.jboss.seam.ComponentType;
+import org.jboss.seam.MethodMetadata;
 import org.jboss.seam.ScopeType;
 import org.jboss.seam.Seam;
+import org.jboss.seam.annotations.Begin;
+import org.jboss.seam.annotations.RaiseEvent;
+import org.jboss.seam.annotations.intercept.InterceptorType;
+import org.jboss.seam.core.EventInterceptor;
 import org.jboss.seam.core.Init;
 import org.jboss.seam.core.Manager;
+import org.jboss.seam.intercept.Interceptor;
 import org.jboss.seam.persistence.ManagedHibernateSession;
 import org.jboss.seam.persistence.ManagedPersistenceContext;
 import org.testng.annotations.Test;
@@ -139,4 +147,47 @@ public class ComponentTest
       assert c.getOutAttributes().size()==0;
       assert c.getRemoveMethods().size()==0;
    }
+   
+   @Test
+   public void testInterceptorChain() throws Exception
+   {
+      Component c = new Component(EventRaiser.class);
+      List<Interceptor> interceptors = c.getInterceptors(InterceptorType.ANY);
+      assert interceptors==c.getInterceptors(InterceptorType.ANY);
+      assert c.getInterceptorChain(InterceptorType.ANY, null).length==interceptors.size();
+      
+      int[] raise = c.getInterceptorChain( InterceptorType.ANY, EventRaiser.class.getMethod("raise") );
+      int[] quiet = c.getInterceptorChain( InterceptorType.ANY, EventRaiser.class.getMethod("quiet") );
+      assert raise==c.getInterceptorChain( InterceptorType.ANY, EventRaiser.class.getMethod("raise") );
+      assert raise.length==interceptors.size();
+      assert quiet.length==raise.length-1;
+      for (int position: quiet)
+      {
+         assert interceptors.get(position).getUserInterceptorClass()!=EventInterceptor.class;
+      }
+      
+      assert c.getInterceptorChain( InterceptorType.ANY, EventRaiser.class.getMethod("bypassed") ).length==0;
+   }
+   
+   @Test
+   public void testMethodMetadata() throws Exception
+   {
+      Component c = new Component(Foo.class);
+      MethodMetadata begin = c.getMethodMetadata( Foo.class.getMethod("beginNested") );
+      assert begin==c.getMethodMetadata( Foo.class.getMethod("beginNested") );
+      assert begin.isConversationManagement();
+      assert begin.getAnnotation(Begin.class).nested();
+      assert !begin.isVoid();
+      assert !begin.isReadOnly();
+      assert begin.getTransactionPropagation()==null;
+      
+      MethodMetadata foo = c.getMethodMetadata( Foo.class.getMethod("foo") );
+      assert !foo.isConversationManagement();
+      assert foo.getAnnotation(Begin.class)==null;
+      
+      c = new Component(EventRaiser.class);
+      MethodMetadata raise = c.getMethodMetadata( EventRaiser.class.getMethod("raise") );
+      assert raise.isVoid();
+      assert raise.getAnnotation(RaiseEvent.class).value()[0].equals("raised");
+   }
 }
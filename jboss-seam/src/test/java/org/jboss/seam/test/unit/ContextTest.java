@@ -1,7 +1,11 @@
 //$Id: ContextTest.java 11208 2009-06-25 14:55:53Z manaRH $
 package org.jboss.seam.test.unit;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.el.ELContext;
 import javax.faces.context.ExternalContext;
@@ -9,6 +13,7 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.jboss.seam.Component;
 import org.jboss.seam.Namespace;
+import org.jboss.seam.ScopeType;
 import org.jboss.seam.Seam;
 import org.jboss.seam.contexts.ApplicationContext;
 import org.jboss.seam.contexts.Context;
@@ -239,6 +244,141 @@ public class ContextTest {
         ServletLifecycle.endApplication();
     }
     
+    @Test
+    public void testConversationContextSwitch() {
+        MockServletContext servletContext = new MockServletContext();
+        ServletLifecycle.beginApplication(servletContext);
+        MockHttpSession session = new MockHttpSession(servletContext);
+        MockHttpServletRequest request = new MockHttpServletRequest(session);
+        final ExternalContext externalContext = new MockExternalContext(
+                servletContext, request);
+        final Map sessionAdaptor = new ServletRequestSessionMap(request);
+        Context appContext = new ApplicationContext(externalContext
+                .getApplicationMap());
+        installComponent(appContext, ConversationEntries.class);
+        installComponent(appContext, Manager.class);
+        appContext.set(Seam.getComponentName(Init.class), new Init());
+        FacesLifecycle.beginRequest(externalContext);
+        Manager.instance().setLongRunningConversation(true);
+
+        Context other = new ServerConversationContext(sessionAdaptor, "2");
+        other.set("foo", "bar");
+        other.flush();
+
+        List<String> stack = new ArrayList<String>();
+        stack.add("1");
+        Manager.instance().setCurrentConversationIdStack(stack);
+        Context ctx = new ServerConversationContext(sessionAdaptor);
+        assert !ctx.isSet("foo");
+        assert !ctx.isSet("foo");
+
+        // a name that was not found must be found after switching conversation
+        stack = new ArrayList<String>();
+        stack.add("2");
+        Manager.instance().setCurrentConversationIdStack(stack);
+        assert "bar".equals(ctx.get("foo"));
+
+        // and after it is set in the current conversation
+        assert !ctx.isSet("baz");
+        ctx.set("baz", "qux");
+        ctx.flush();
+        assert "qux".equals(ctx.get("baz"));
+
+        ServletLifecycle.endApplication();
+    }
+
+    /**
+     * Flushing a conversation should only touch the attributes of that
+     * conversation, however many other attributes the session holds.
+     */
+    @Test
+    public void testConversationFlushAgainstSessionSize() {
+        MockServletContext servletContext = new MockServletContext();
+        ServletLifecycle.beginApplication(servletContext);
+        MockHttpSession session = new MockHttpSession(servletContext);
+        MockHttpServletRequest request = new MockHttpServletRequest(session);
+        final ExternalContext externalContext = new MockExternalContext(
+                servletContext, request);
+        final int[] puts = new int[1];
+        final int[] scans = new int[1];
+        final Map sessionAdaptor = new ServletRequestSessionMap(request) {
+            @Override
+            public Object put(String key, Object value) {
+                puts[0]++;
+                return super.put(key, value);
+            }
+            @Override
+            public Set<String> keySet() {
+                scans[0]++;
+                return super.keySet();
+            }
+        };
+        Context appContext = new ApplicationContext(externalContext
+                .getApplicationMap());
+        installComponent(appContext, ConversationEntries.class);
+        installComponent(appContext, Manager.class);
+        appContext.set(Seam.getComponentName(Init.class), new Init());
+        FacesLifecycle.beginRequest(externalContext);
+        Manager.instance().setLongRunningConversation(true);
+
+        int conversations = 0;
+        for (int size: new int[] { 100, 1000, 10000 }) {
+            for (; conversations < size / 10; conversations++) {
+                Context other = new ServerConversationContext(sessionAdaptor, "other" + conversations);
+                for (int i = 0; i < 10; i++) {
+                    other.set("var" + i, "value" + i);
+                }
+                other.flush();
+            }
+
+            puts[0] = 0;
+            scans[0] = 0;
+            for (int j = 0; j < 100; j++) {
+                Context ctx = new ServerConversationContext(sessionAdaptor, "1");
+                ctx.set("foo" + j, "bar");
+                ctx.remove("foo" + (j - 1));
+                ctx.flush();
+            }
+            // each flush puts the new attribute and the index of names,
+            // and never scans the session, whatever its size
+            Assert.assertEquals(puts[0], 200, "session puts for " + size + " attributes");
+            Assert.assertEquals(scans[0], 0, "session scans for " + size + " attributes");
+
+            Context ctx = new ServerConversationContext(sessionAdaptor, "1");
+            Assert.assertEquals(ctx.getNames(), new String[] { "foo99" });
+            Assert.assertEquals(new ServerConversationContext(sessionAdaptor, "other0").getNames().length, 10);
+        }
+
+        ServletLifecycle.endApplication();
+    }
+
+    @Test
+    public void testApplicationComponentIndex() {
+        Map<String, Object> application = new HashMap<String, Object>();
+        String name = Seam.getComponentName(Foo.class) + ".component";
+
+        // a miss is not remembered
+        assert new ApplicationContext(application).get(name) == null;
+        Map<?, ?> index = (Map<?, ?>) application.get(ScopeType.APPLICATION.getPrefix() + "$components");
+        assert index.isEmpty();
+        Object other = new Object();
+        application.put(name, other);
+        assert new ApplicationContext(application).get(name) == other;
+
+        Object component = new Object();
+        new ApplicationContext(application).set(name, component);
+        assert new ApplicationContext(application).get(name) == component;
+        assert application.get(name) == component;
+
+        new ApplicationContext(application).remove(name);
+        assert new ApplicationContext(application).get(name) == null;
+        assert !application.containsKey(name);
+
+        // the index is not a context variable
+        assert application.containsKey(ScopeType.APPLICATION.getPrefix() + "$components");
+        assert new ApplicationContext(application).getNames().length == 0;
+    }
+
     private interface ContextCreator {
         Context createContext();
     }
@@ -0,0 +1,87 @@
+package org.jboss.seam.test.unit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.seam.core.ConversationEntries;
+import org.jboss.seam.core.ConversationEntry;
+import org.testng.annotations.Test;
+
+public class ConversationEntriesTest
+{
+   private static List<String> stack(String... ids)
+   {
+      List<String> stack = new ArrayList<String>();
+      for (String id: ids) stack.add(id);
+      return stack;
+   }
+   
+   @Test
+   public void testExpiredConversationEntries()
+   {
+      ConversationEntries entries = new ConversationEntries();
+      ConversationEntry first = entries.createConversationEntry("1", stack("1"));
+      ConversationEntry second = entries.createConversationEntry("2", stack("2"));
+      
+      long now = System.currentTimeMillis();
+      assert entries.getExpiredConversationEntries(now, 60000).isEmpty();
+      
+      List<ConversationEntry> expired = entries.getExpiredConversationEntries(now + 120000, 60000);
+      assert expired.size() == 2;
+      assert expired.contains(first);
+      assert expired.contains(second);
+      
+      entries.removeConversationEntry("1");
+      expired = entries.getExpiredConversationEntries(now + 120000, 60000);
+      assert expired.size() == 1;
+      assert expired.get(0) == second;
+   }
+   
+   @Test
+   public void testUpdateConversationId()
+   {
+      ConversationEntries entries = new ConversationEntries();
+      entries.createConversationEntry("1", stack("1"));
+      ConversationEntry entry = entries.updateConversationId("1", "foo");
+      
+      assert entry.getId().equals("foo");
+      assert entries.getConversationEntry("1") == null;
+      assert entries.getConversationEntry("foo") == entry;
+      
+      List<ConversationEntry> expired = entries.getExpiredConversationEntries(System.currentTimeMillis() + 120000, 60000);
+      assert expired.size() == 1;
+      assert expired.get(0) == entry;
+      
+      entries.removeConversationEntry("foo");
+      assert entries.getExpiredConversationEntries(System.currentTimeMillis() + 120000, 60000).isEmpty();
+   }
+   
+   @Test
+   public void testSerialization() throws Exception
+   {
+      ConversationEntries entries = new ConversationEntries();
+      entries.createConversationEntry("1", stack("1"));
+      
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream out = new ObjectOutputStream(bytes);
+      out.writeObject(entries);
+      out.close();
+      ConversationEntries copy = (ConversationEntries) new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+      
+      assert copy.size() == 1;
+      ConversationEntry entry = copy.getConversationEntry("1");
+      assert entry != null;
+      
+      //the timeout index is rebuilt
+      List<ConversationEntry> expired = copy.getExpiredConversationEntries(System.currentTimeMillis() + 120000, 60000);
+      assert expired.size() == 1;
+      assert expired.get(0) == entry;
+      
+      copy.createConversationEntry("2", stack("2"));
+      assert copy.size() == 2;
+   }
+}
@@ -0,0 +1,161 @@
+package org.jboss.seam.test.unit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jboss.seam.annotations.ConversationLockType;
+import org.jboss.seam.contexts.Lifecycle;
+import org.jboss.seam.core.ConversationEntries;
+import org.jboss.seam.core.ConversationEntry;
+import org.jboss.seam.core.Manager;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests sharing the lock of a conversation between
+ * READ and WRITE requests
+ */
+public class ConversationLockTest extends MockContainerTest
+{
+   private ExecutorService otherRequest;
+
+   @Override
+   protected Class[] getComponentsToInstall()
+   {
+      return new Class[] { ConversationEntries.class };
+   }
+
+   @BeforeMethod
+   public void startOtherRequest()
+   {
+      otherRequest = Executors.newSingleThreadExecutor();
+   }
+
+   @AfterMethod
+   public void stopOtherRequest()
+   {
+      otherRequest.shutdownNow();
+   }
+
+   private static List<String> stack(String... ids)
+   {
+      List<String> stack = new ArrayList<String>();
+      for (String id: ids) stack.add(id);
+      return stack;
+   }
+
+   /**
+    * Try to lock the conversation from another thread,
+    * releasing the lock again if it was acquired
+    */
+   private boolean lockInOtherRequest(final ConversationEntry entry, final ConversationLockType lockType) throws Exception
+   {
+      return otherRequest.submit( new Callable<Boolean>()
+      {
+         public Boolean call()
+         {
+            Lifecycle.beginCall();
+            try
+            {
+               Manager.instance().setConcurrentRequestTimeout(100);
+               boolean locked = entry.lock(lockType);
+               if (locked) entry.unlock();
+               return locked;
+            }
+            finally
+            {
+               Lifecycle.endCall();
+            }
+         }
+      } ).get();
+   }
+
+   @Test
+   public void testReadLockIsShared() throws Exception
+   {
+      ConversationEntry entry = ConversationEntries.instance().createConversationEntry("1", stack("1"));
+      assert entry.lock(ConversationLockType.READ);
+      try
+      {
+         assert entry.isReadLockedByCurrentThread();
+         assert lockInOtherRequest(entry, ConversationLockType.READ);
+         assert !lockInOtherRequest(entry, ConversationLockType.WRITE);
+      }
+      finally
+      {
+         entry.unlock();
+      }
+      assert !entry.isLockedByCurrentThread();
+      assert lockInOtherRequest(entry, ConversationLockType.WRITE);
+   }
+
+   @Test
+   public void testWriteLockIsExclusive() throws Exception
+   {
+      ConversationEntry entry = ConversationEntries.instance().createConversationEntry("1", stack("1"));
+      assert entry.lock();
+      try
+      {
+         assert !entry.isReadLockedByCurrentThread();
+         assert !lockInOtherRequest(entry, ConversationLockType.READ);
+         assert !lockInOtherRequest(entry, ConversationLockType.WRITE);
+      }
+      finally
+      {
+         entry.unlock();
+      }
+      assert lockInOtherRequest(entry, ConversationLockType.READ);
+   }
+
+   @Test
+   public void testReadLockIsNotUpgraded() throws Exception
+   {
+      ConversationEntry entry = ConversationEntries.instance().createConversationEntry("1", stack("1"));
+      assert entry.lock(ConversationLockType.READ);
+      try
+      {
+         long start = System.currentTimeMillis();
+         try
+         {
+            entry.lock(ConversationLockType.WRITE);
+            assert false : "a read lock must not be upgraded";
+         }
+         catch (IllegalStateException ise)
+         {
+            //expected, without waiting for the concurrent request timeout
+            assert System.currentTimeMillis() - start < Manager.instance().getConcurrentRequestTimeout();
+         }
+         assert entry.isReadLockedByCurrentThread();
+      }
+      finally
+      {
+         entry.unlock();
+      }
+   }
+
+   @Test
+   public void testSwitchConversationKeepsReadLock() throws Exception
+   {
+      ConversationEntries entries = ConversationEntries.instance();
+      ConversationEntry root = entries.createConversationEntry("1", stack("1"));
+      ConversationEntry nested = entries.createConversationEntry("2", stack("2", "1"));
+
+      assert root.lock(ConversationLockType.READ);
+      Manager manager = Manager.instance();
+      manager.setCurrentConversationId("1");
+      manager.setCurrentConversationIdStack( root.getConversationIdStack() );
+
+      assert manager.switchConversation("2");
+      assert manager.getCurrentConversationId().equals("2");
+      assert nested.isReadLockedByCurrentThread();
+      assert lockInOtherRequest(root, ConversationLockType.READ);
+
+      manager.unlockConversation();
+      assert !nested.isLockedByCurrentThread();
+      manager.setLongRunningConversation(false);
+   }
+}
@@ -0,0 +1,17 @@
+package org.jboss.seam.test.unit;
+
+import org.jboss.seam.annotations.Name;
+import org.jboss.seam.annotations.RaiseEvent;
+import org.jboss.seam.annotations.intercept.BypassInterceptors;
+
+@Name("eventRaiser")
+public class EventRaiser
+{
+   @RaiseEvent("raised")
+   public void raise() {}
+   
+   public void quiet() {}
+   
+   @BypassInterceptors
+   public void bypassed() {}
+}
@@ -18,6 +18,7 @@ import javax.faces.event.PhaseId;
 
 import org.jboss.seam.contexts.FacesLifecycle;
 import org.jboss.seam.core.Expressions;
+import org.jboss.seam.el.ExpressionCache;
 import org.jboss.seam.faces.FacesExpressions;
 import org.jboss.seam.mock.MockApplication;
 import org.jboss.seam.mock.MockExternalContext;
@@ -52,6 +53,57 @@ public class ExpressionsTest
       assertEquals(expressions.createValueExpression(expr).getValue(), "bar");
    }
    
+   @Test
+   public void testParsedExpressionsAreShared()
+   {
+      Expressions expressions = new Expressions();
+      ExpressionCache cache = expressions.getExpressionCache();
+      
+      javax.el.ValueExpression first = expressions.createValueExpression("#{1 + 2}", Integer.class).toUnifiedValueExpression();
+      long hits = cache.getHits();
+      javax.el.ValueExpression second = expressions.createValueExpression("#{1 + 2}", Integer.class).toUnifiedValueExpression();
+      assert first==second;
+      assert cache.getHits()==hits+1;
+      assert expressions.createValueExpression("#{1 + 2}", Object.class).toUnifiedValueExpression()!=first;
+      
+      expressions.clearExpressionCache();
+      assert expressions.createValueExpression("#{1 + 2}", Integer.class).toUnifiedValueExpression()!=first;
+      assert expressions.createValueExpression("#{1 + 2}", Integer.class).getValue()==3;
+   }
+   
+   @Test
+   public void testRecentlyUsedExpressionsAreKept()
+   {
+      Expressions expressions = new Expressions();
+      expressions.setCacheSize(2);
+      ExpressionCache cache = expressions.getExpressionCache();
+      assert cache.getMaxSize()==2;
+      
+      javax.el.ValueExpression first = expressions.createValueExpression("#{1}", Integer.class).toUnifiedValueExpression();
+      expressions.createValueExpression("#{2}", Integer.class).toUnifiedValueExpression();
+      assert expressions.createValueExpression("#{1}", Integer.class).toUnifiedValueExpression()==first;
+      expressions.createValueExpression("#{3}", Integer.class).toUnifiedValueExpression();
+      assert cache.getSize()==2;
+      
+      long misses = cache.getMisses();
+      assert expressions.createValueExpression("#{1}", Integer.class).toUnifiedValueExpression()==first : "expression in use evicted";
+      expressions.createValueExpression("#{2}", Integer.class).toUnifiedValueExpression();
+      assert cache.getMisses()==misses+1;
+      assert cache.getSize()==2;
+   }
+   
+   @Test
+   public void testCachesArePerApplication()
+   {
+      Expressions expressions = new Expressions();
+      Expressions other = new Expressions();
+      assert expressions.getExpressionCache()!=other.getExpressionCache();
+      
+      javax.el.ValueExpression first = expressions.createValueExpression("#{1 + 2}", Integer.class).toUnifiedValueExpression();
+      other.clearExpressionCache();
+      assert expressions.createValueExpression("#{1 + 2}", Integer.class).toUnifiedValueExpression()==first;
+   }
+   
    protected FacesContext setupFacesContextToAccessRequestParams(Map<String, String> params)
    {
       MockHttpServletRequest request = new MockHttpServletRequest(new MockHttpSession());
@@ -4,6 +4,8 @@ package org.jboss.seam.test.unit;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.faces.context.ExternalContext;
 import javax.faces.event.PhaseId;
@@ -12,7 +14,10 @@ import org.jboss.seam.Component;
 import org.jboss.seam.CyclicDependencyException;
 import org.jboss.seam.NoConversationException;
 import org.jboss.seam.RequiredException;
+import org.jboss.seam.ScopeType;
 import org.jboss.seam.Seam;
+import org.jboss.seam.annotations.In;
+import org.jboss.seam.annotations.Name;
 import org.jboss.seam.contexts.ApplicationContext;
 import org.jboss.seam.contexts.Context;
 import org.jboss.seam.contexts.Contexts;
@@ -240,6 +245,141 @@ public class InterceptorTest
       ServletLifecycle.endApplication();
    }
    
+   /**
+    * The injection and outjection plans of a component are built once,
+    * but the values are looked up and written again on every call
+    */
+   @Test
+   public void testBijectionPlan() throws Exception
+   {
+      MockServletContext servletContext = new MockServletContext();
+      ServletLifecycle.beginApplication(servletContext);
+      MockExternalContext externalContext = new MockExternalContext(servletContext);
+      Context appContext = new ApplicationContext( externalContext.getApplicationMap() );
+      appContext.set( Seam.getComponentName(Init.class), new Init() );
+      appContext.set( 
+            Seam.getComponentName(ConversationEntries.class) + ".component", 
+            new Component(ConversationEntries.class, appContext) 
+         );
+      appContext.set( 
+            Seam.getComponentName(Manager.class) + ".component", 
+            new Component(Manager.class, appContext) 
+         );
+      appContext.set( 
+            Seam.getComponentName(Foo.class) + ".component", 
+            new Component(Foo.class, appContext) 
+         );
+
+      FacesLifecycle.beginRequest(externalContext);
+      Manager.instance().setCurrentConversationId("1");
+      FacesLifecycle.resumeConversation(externalContext);
+      
+      Component component = new Component(Bar.class, appContext);
+      Bar bar = new Bar();
+      Foo foo = new Foo();
+      Contexts.getSessionContext().set("otherFoo", foo);
+      
+      component.inject(bar, true);
+      assert bar.otherFoo==foo;
+      assert bar.foo!=null;
+      
+      Foo otherFoo = new Foo();
+      Contexts.getSessionContext().set("otherFoo", otherFoo);
+      component.inject(bar, true);
+      assert bar.otherFoo==otherFoo : "injected value remembered";
+      
+      component.disinject(bar);
+      assert bar.otherFoo==null;
+      assert bar.foo==null;
+      
+      bar.foo();
+      component.outject(bar, true);
+      assert Contexts.getConversationContext().get("string").equals("out");
+      assert Contexts.getEventContext().get("otherString").equals("outAgain");
+      
+      bar.string = null;
+      component.outject(bar, true);
+      assert !Contexts.getConversationContext().isSet("string") : "outjected value remembered";
+      
+      //an autocreate variable is only created when it is not found
+      Init.instance().addAutocreateVariable("foo");
+      Object created = Contexts.getSessionContext().get("foo");
+      assert Component.getInstance("foo", false)==created;
+      Contexts.getSessionContext().remove("foo");
+      assert Component.getInstance("foo", false, false)==null;
+      created = Component.getInstance("foo", false);
+      assert created instanceof Foo;
+      assert Contexts.getSessionContext().get("foo")==created;
+
+      ServletLifecycle.endApplication();
+   }
+   
+   /**
+    * A misconfigured @In is still only reported when it is
+    * injected, as it was before injections were planned
+    */
+   @Test
+   public void testMisconfiguredInjection() throws Exception
+   {
+      MockServletContext servletContext = new MockServletContext();
+      ServletLifecycle.beginApplication(servletContext);
+      MockExternalContext externalContext = new MockExternalContext(servletContext);
+      Context appContext = new ApplicationContext( externalContext.getApplicationMap() );
+      appContext.set( Seam.getComponentName(Init.class), new Init() );
+      appContext.set( 
+            Seam.getComponentName(ConversationEntries.class) + ".component", 
+            new Component(ConversationEntries.class, appContext) 
+         );
+      appContext.set( 
+            Seam.getComponentName(Manager.class) + ".component", 
+            new Component(Manager.class, appContext) 
+         );
+
+      FacesLifecycle.beginRequest(externalContext);
+      Manager.instance().setCurrentConversationId("1");
+      FacesLifecycle.resumeConversation(externalContext);
+      
+      Component createInScope = new Component(CreateInScope.class, appContext);
+      Component statelessScope = new Component(StatelessScope.class, appContext);
+      for (int i=0; i<2; i++)
+      {
+         try
+         {
+            createInScope.inject( new CreateInScope(), true );
+            assert false : "create=true with explicit scope injected";
+         }
+         catch (IllegalArgumentException iae)
+         {
+            assert iae.getMessage().startsWith("cannot combine create=true with explicit scope on @In");
+         }
+         try
+         {
+            statelessScope.inject( new StatelessScope(), true );
+            assert false : "explicit scope=STATELESS injected";
+         }
+         catch (IllegalArgumentException iae)
+         {
+            assert iae.getMessage().startsWith("cannot specify explicit scope=STATELESS on @In");
+         }
+      }
+
+      ServletLifecycle.endApplication();
+   }
+   
+   @Name("createInScope")
+   public static class CreateInScope
+   {
+      @In(create=true, scope=ScopeType.SESSION)
+      Foo foo;
+   }
+   
+   @Name("statelessScope")
+   public static class StatelessScope
+   {
+      @In(scope=ScopeType.STATELESS)
+      Foo foo;
+   }
+   
    /**
     * A hack for returning an exception from a thread
     *
@@ -402,6 +542,90 @@ public class InterceptorTest
       Assert.assertEquals(invocationResults.get("C"), foo, "Injected value not accurate at end of method invocation C.");
    }
    
+   /**
+    * This test has many threads hammer the same method on the same component, and checks that
+    * every invocation sees the injected value, and that the component is disinjected once all 
+    * the invocations are done. BijectionInterceptorBenchmark measures the throughput.
+    * 
+    * @throws Exception
+    */
+   @Test
+   public void testConcurrentBijection() throws Exception
+   {
+      MockServletContext servletContext = new MockServletContext();
+      ServletLifecycle.beginApplication(servletContext);
+      final MockExternalContext externalContext = new MockExternalContext(servletContext);
+      Context appContext = new ApplicationContext( externalContext.getApplicationMap() );
+      appContext.set( Seam.getComponentName(Init.class), new Init() );
+      appContext.set( Seam.getComponentName(ConversationEntries.class) + ".component", 
+            new Component(ConversationEntries.class, appContext) );
+      appContext.set( Seam.getComponentName(Manager.class) + ".component", 
+            new Component(Manager.class, appContext) );
+      appContext.set( Seam.getComponentName(Foo.class) + ".component", 
+            new Component(Foo.class, appContext) );
+      appContext.set( Seam.getComponentName(FooBar.class) + ".component", 
+            new Component(FooBar.class, appContext) );
+      
+      final Foo foo = new Foo();
+      final FooBar fooBar = new FooBar();
+      
+      final BijectionInterceptor bi = new BijectionInterceptor();
+      bi.setComponent( new Component(FooBar.class, appContext) );
+      
+      final int threads = 16;
+      final int invocations = 10000;
+      final CountDownLatch ready = new CountDownLatch(threads);
+      final CountDownLatch start = new CountDownLatch(1);
+      final CountDownLatch done = new CountDownLatch(threads);
+      final AtomicInteger failures = new AtomicInteger();
+      final WrappedException threadException = new WrappedException();
+      
+      final InvocationContext invocation = new MockInvocationContext() {
+         @Override public Object getTarget() { return fooBar; }
+         @Override public Object proceed() throws Exception { return fooBar.foo; }
+      };
+      
+      for (int i=0; i<threads; i++)
+      {
+         new Thread(new Runnable() {
+            public void run() {
+               try
+               {
+                  FacesLifecycle.beginRequest(externalContext);
+                  Manager.instance().setCurrentConversationId("1");
+                  FacesLifecycle.resumeConversation(externalContext);
+                  FacesLifecycle.setPhaseId(PhaseId.RENDER_RESPONSE);
+                  Contexts.getSessionContext().set("foo", foo);
+                  
+                  ready.countDown();
+                  start.await();
+                  for (int j=0; j<invocations; j++)
+                  {
+                     if ( bi.aroundInvoke(invocation)!=foo ) failures.incrementAndGet();
+                  }
+               }
+               catch (Exception ex)
+               {
+                  threadException.exception = ex;
+               }
+               finally
+               {
+                  done.countDown();
+               }
+            }
+         }).start();
+      }
+      
+      ready.await();
+      start.countDown();
+      done.await();
+      
+      if (threadException.exception != null) throw threadException.exception;
+      
+      Assert.assertEquals(failures.get(), 0, "Injected value not accurate during concurrent invocations.");
+      Assert.assertNull(fooBar.foo, "Component not disinjected after concurrent invocations.");
+   }
+   
    @Test
    public void testCyclicDependencyThowsException() throws Exception
    {
@@ -47,6 +47,12 @@ public class InterpolatorTest extends MockContainerTest
         Assert.assertEquals(interpolator.interpolate("#0 #{contextVariable} #1", "a", "z"), "a value z");
         Assert.assertEquals(interpolator.interpolate("#0 ##{contextVariable} #1", "a", "z"), "a #value z");
         
+        // test that a compiled template is rendered again with new parameters and values
+        Contexts.getEventContext().set("contextVariable", "other");
+        Assert.assertEquals(interpolator.interpolate("#0 #{contextVariable} #1", "b", "y"), "b other y");
+        Assert.assertEquals(interpolator.interpolate("#0 #{contextVariable} #1", "b"), "b other #1");
+        Assert.assertEquals(interpolator.interpolate("{0} {1} {2}"), "{0} {1} {2}");
+        
         Date date = new Date(0);
                 
         Assert.assertEquals(interpolator.interpolate("{0,date,short}", date), DateFormat.getDateInstance(DateFormat.SHORT).format(date)); 
@@ -0,0 +1,190 @@
+package org.jboss.seam.test.unit;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.seam.annotations.security.management.UserPassword;
+import org.jboss.seam.annotations.security.management.UserPrincipal;
+import org.jboss.seam.annotations.security.management.UserRoles;
+import org.jboss.seam.security.management.JpaIdentityStore;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests limiting login attempts, and remembering verified
+ * passwords, with the user accounts held in a map
+ */
+public class JpaIdentityStoreTest
+{
+   private MapIdentityStore identityStore;
+
+   @BeforeMethod
+   public void createIdentityStore()
+   {
+      identityStore = new MapIdentityStore();
+      identityStore.setUserClass(Account.class);
+      identityStore.init();
+      identityStore.addAccount("alice", "secret");
+   }
+
+   @Test
+   public void testLoginAttemptLimit()
+   {
+      identityStore.setLoginAttemptLimit(3);
+      assert identityStore.allowLoginAttempt("alice");
+      assert identityStore.allowLoginAttempt("alice");
+      assert identityStore.allowLoginAttempt("alice");
+      assert !identityStore.allowLoginAttempt("alice");
+      assert !identityStore.allowLoginAttempt("alice");
+      assert identityStore.allowLoginAttempt("bob");
+   }
+
+   @Test
+   public void testLoginAttemptLimitDisabled()
+   {
+      for (int i = 0; i < 100; i++)
+      {
+         assert identityStore.allowLoginAttempt("alice");
+      }
+   }
+
+   @Test
+   public void testLoginAttemptPeriod() throws Exception
+   {
+      identityStore.setLoginAttemptLimit(1);
+      identityStore.setLoginAttemptPeriod(50);
+      assert identityStore.allowLoginAttempt("alice");
+      assert !identityStore.allowLoginAttempt("alice");
+
+      Thread.sleep(100);
+      assert identityStore.allowLoginAttempt("alice");
+      assert !identityStore.allowLoginAttempt("alice");
+   }
+
+   @Test
+   public void testUsernameSprayLocksOutNoOne()
+   {
+      identityStore.setLoginAttemptLimit(1);
+      identityStore.setLoginAttemptPeriod(60000);
+      assert identityStore.allowLoginAttempt("user0");
+      assert !identityStore.allowLoginAttempt("user0");
+
+      for (int i = 1; i < 30000; i++)
+      {
+         assert identityStore.allowLoginAttempt("user" + i) : "new username refused";
+         if (i == 15000)
+         {
+            assert identityStore.authenticate("alice", "secret") : "real user locked out by spray";
+         }
+      }
+
+      // the usernames tried last are still limited, the first are forgotten
+      assert !identityStore.allowLoginAttempt("user29999");
+      assert identityStore.allowLoginAttempt("user0");
+   }
+
+   @Test
+   public void testAuthenticateCountsAttempts()
+   {
+      identityStore.setLoginAttemptLimit(1);
+      assert !identityStore.authenticate("alice", "wrong");
+      assert !identityStore.authenticate("alice", "secret") : "limit ignored by authenticate()";
+      assert identityStore.hashes == 1;
+   }
+
+   @Test
+   public void testVerifiedPassword()
+   {
+      identityStore.setVerifiedPasswordExpiry(60000);
+      assert identityStore.authenticate("alice", "secret");
+      assert identityStore.authenticate("alice", "secret");
+      assert identityStore.hashes == 1;
+
+      assert !identityStore.authenticate("alice", "wrong");
+      assert !identityStore.authenticate("alice", "wrong");
+      assert identityStore.hashes == 3 : "wrong password remembered";
+
+      assert !identityStore.authenticate("bob", "secret");
+   }
+
+   @Test
+   public void testVerifiedPasswordDisabled()
+   {
+      assert identityStore.authenticate("alice", "secret");
+      assert identityStore.authenticate("alice", "secret");
+      assert identityStore.hashes == 2;
+   }
+
+   @Test
+   public void testVerifiedPasswordExpiry() throws Exception
+   {
+      identityStore.setVerifiedPasswordExpiry(50);
+      assert identityStore.authenticate("alice", "secret");
+      Thread.sleep(100);
+      assert identityStore.authenticate("alice", "secret");
+      assert identityStore.hashes == 2;
+   }
+
+   @Test
+   public void testVerifiedPasswordForgottenOnPasswordChange()
+   {
+      identityStore.setVerifiedPasswordExpiry(60000);
+      assert identityStore.authenticate("alice", "secret");
+
+      identityStore.addAccount("alice", "changed");
+      assert !identityStore.authenticate("alice", "secret") : "old password remembered";
+      assert identityStore.authenticate("alice", "changed");
+      assert identityStore.authenticate("alice", "changed");
+      assert identityStore.hashes == 3;
+   }
+
+   public static class Account
+   {
+      @UserPrincipal
+      private String username;
+
+      @UserPassword(hash = "none")
+      private String password;
+
+      @UserRoles
+      private List<String> roles;
+   }
+
+   /**
+    * Looks up accounts in a map, and counts the passwords hashed
+    */
+   private static class MapIdentityStore extends JpaIdentityStore
+   {
+      private final Map<String, Account> accounts = new HashMap<String, Account>();
+      private int hashes;
+
+      void addAccount(String username, String password)
+      {
+         Account account = new Account();
+         account.username = username;
+         account.password = password;
+         accounts.put(username, account);
+      }
+
+      @Override
+      public Object lookupUser(String username)
+      {
+         return accounts.get(username);
+      }
+
+      @Override
+      public boolean allowLoginAttempt(String username)
+      {
+         return super.allowLoginAttempt(username);
+      }
+
+      @Override
+      @SuppressWarnings("deprecation")
+      protected String generatePasswordHash(String password, String salt)
+      {
+         hashes++;
+         return password;
+      }
+   }
+}
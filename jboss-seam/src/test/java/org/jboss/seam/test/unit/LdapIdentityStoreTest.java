@@ -0,0 +1,141 @@
+package org.jboss.seam.test.unit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.seam.security.management.LdapIdentityStore;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the cache of the roles granted to users, with the
+ * directory replaced by a map
+ */
+public class LdapIdentityStoreTest
+{
+   private DirectoryIdentityStore identityStore;
+
+   @BeforeMethod
+   public void createIdentityStore()
+   {
+      identityStore = new DirectoryIdentityStore();
+      identityStore.setRoleCacheExpiry(60000);
+      identityStore.grant("alice", "admin");
+      identityStore.grant("bob", "user");
+   }
+
+   @Test
+   public void testRolesAreCached()
+   {
+      assert identityStore.getGrantedRoles("alice").contains("admin");
+      assert identityStore.getGrantedRoles("alice").contains("admin");
+      assert identityStore.queries == 1;
+
+      identityStore.getGrantedRoles("alice").clear();
+      assert identityStore.getGrantedRoles("alice").contains("admin") : "cached roles modified by caller";
+   }
+
+   @Test
+   public void testCacheDisabled()
+   {
+      identityStore.setRoleCacheExpiry(0);
+      identityStore.getGrantedRoles("alice");
+      identityStore.getGrantedRoles("alice");
+      assert identityStore.queries == 2;
+   }
+
+   @Test
+   public void testCacheSize()
+   {
+      identityStore.setRoleCacheSize(1);
+      identityStore.getGrantedRoles("alice");
+      identityStore.getGrantedRoles("bob");
+      identityStore.getGrantedRoles("bob");
+      assert identityStore.queries == 3;
+      identityStore.getGrantedRoles("alice");
+      assert identityStore.queries == 3;
+   }
+
+   @Test
+   public void testInvalidateRoles()
+   {
+      identityStore.getGrantedRoles("alice");
+      identityStore.grant("alice", "user");
+      identityStore.invalidateRoles("alice");
+      assert identityStore.getGrantedRoles("alice").contains("user");
+      assert identityStore.queries == 2;
+   }
+
+   @Test
+   public void testInvalidationDuringQuery()
+   {
+      // the roles change, and are invalidated, after the directory was read
+      identityStore.duringQuery = new Runnable()
+      {
+         public void run()
+         {
+            identityStore.duringQuery = null;
+            identityStore.grant("alice", "user");
+            identityStore.invalidateRoles("alice");
+         }
+      };
+      assert !identityStore.getGrantedRoles("alice").contains("user");
+      assert identityStore.getGrantedRoles("alice").contains("user") : "roles read before invalidation cached";
+      assert identityStore.queries == 2;
+   }
+
+   @Test
+   public void testInvalidationDuringQueryOfExpiredRoles() throws Exception
+   {
+      identityStore.setRoleCacheExpiry(1);
+      identityStore.getGrantedRoles("alice");
+      Thread.sleep(10);
+      identityStore.setRoleCacheExpiry(60000);
+
+      identityStore.duringQuery = new Runnable()
+      {
+         public void run()
+         {
+            identityStore.duringQuery = null;
+            identityStore.grant("alice", "user");
+            identityStore.invalidateRoles("alice");
+         }
+      };
+      assert !identityStore.getGrantedRoles("alice").contains("user");
+      assert identityStore.getGrantedRoles("alice").contains("user") : "roles read before invalidation cached";
+   }
+
+   private static class DirectoryIdentityStore extends LdapIdentityStore
+   {
+      private final Map<String, List<String>> directory = new HashMap<String, List<String>>();
+      private volatile Runnable duringQuery;
+      private int queries;
+
+      void grant(String name, String role)
+      {
+         List<String> roles = directory.get(name);
+         if (roles == null)
+         {
+            roles = new ArrayList<String>();
+            directory.put(name, roles);
+         }
+         roles.add(role);
+      }
+
+      @Override
+      protected List<String> queryGrantedRoles(String name)
+      {
+         queries++;
+         List<String> roles = directory.containsKey(name) ?
+               new ArrayList<String>( directory.get(name) ) : new ArrayList<String>();
+         Runnable hook = duringQuery;
+         if (hook != null)
+         {
+            hook.run();
+         }
+         return roles;
+      }
+   }
+}
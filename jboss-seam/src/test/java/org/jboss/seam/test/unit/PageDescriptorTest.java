@@ -1,5 +1,6 @@
 package org.jboss.seam.test.unit;
 
+import org.jboss.seam.annotations.ConversationLockType;
 import org.jboss.seam.contexts.Contexts;
 import org.jboss.seam.navigation.Pages;
 import org.testng.annotations.Test;
@@ -55,4 +56,18 @@ public class PageDescriptorTest extends AbstractPageTest
       assert fineDescription.equals(pages.renderDescription("/action-test01b.xhtml")) :
          "Expecting the description for the view-id to be returned";
    }
+   
+   /**
+    * Verify that the conversation lock type is inherited from wild-card view-ids, may be
+    * overridden by a specific view-id, and is WRITE when no page specifies it.
+    */
+   @Test(enabled = true)
+   public void testConversationLockType()
+   {
+      Pages pages = Pages.instance();
+      
+      assert pages.getConversationLockType("/dashboard.xhtml") == ConversationLockType.READ;
+      assert pages.getConversationLockType("/dashboard-edit.xhtml") == ConversationLockType.WRITE;
+      assert pages.getConversationLockType("/action-test01a.xhtml") == ConversationLockType.WRITE;
+   }
 }
@@ -0,0 +1,139 @@
+package org.jboss.seam.test.unit;
+
+import java.security.GeneralSecurityException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.seam.security.management.IdentityManagementException;
+import org.jboss.seam.security.management.PasswordHash;
+import org.jboss.seam.security.management.PasswordHashExecutor;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that passwords are hashed on a bounded number of threads,
+ * and that hashes beyond the queue are rejected at once
+ */
+public class PasswordHashExecutorTest
+{
+   private PasswordHashExecutor executor;
+   private ExecutorService requests;
+   private BlockingPasswordHash passwordHash;
+
+   @BeforeMethod
+   public void startup()
+   {
+      executor = new PasswordHashExecutor();
+      executor.setThreads(1);
+      executor.setQueueSize(1);
+      executor.startup();
+      requests = Executors.newCachedThreadPool();
+      passwordHash = new BlockingPasswordHash();
+   }
+
+   @AfterMethod
+   public void shutdown()
+   {
+      passwordHash.release.countDown();
+      requests.shutdownNow();
+      executor.destroy();
+   }
+
+   private Future<String> hashInRequest(final String password)
+   {
+      return requests.submit( new Callable<String>()
+      {
+         public String call() throws Exception
+         {
+            return executor.createPasswordKey( passwordHash, password.toCharArray(), new byte[8], 1 );
+         }
+      } );
+   }
+
+   private String hash(String password) throws GeneralSecurityException
+   {
+      return executor.createPasswordKey( passwordHash, password.toCharArray(), new byte[8], 1 );
+   }
+
+   @Test
+   public void testHash() throws Exception
+   {
+      passwordHash.release.countDown();
+      assert hash("secret").equals("secret");
+      assert executor.getHashCount() == 1;
+      assert executor.getRejectedCount() == 0;
+   }
+
+   @Test
+   public void testRejectedWhenQueueIsFull() throws Exception
+   {
+      Future<String> running = hashInRequest("first");
+      assert passwordHash.started.await(10, TimeUnit.SECONDS);
+      Future<String> queued = hashInRequest("second");
+      while ( executor.getQueueDepth() == 0 )
+      {
+         Thread.sleep(1);
+      }
+
+      try
+      {
+         hash("third");
+         assert false : "hash beyond the queue accepted";
+      }
+      catch (IdentityManagementException ime)
+      {
+         // expected
+      }
+      assert executor.getRejectedCount() == 1;
+
+      passwordHash.release.countDown();
+      assert running.get(10, TimeUnit.SECONDS).equals("first");
+      assert queued.get(10, TimeUnit.SECONDS).equals("second");
+      assert executor.getHashCount() == 2;
+      assert hash("fourth").equals("fourth");
+   }
+
+   @Test
+   public void testTimeout() throws Exception
+   {
+      executor.setTimeout(50);
+      try
+      {
+         hash("secret");
+         assert false : "hash did not time out";
+      }
+      catch (IdentityManagementException ime)
+      {
+         // expected
+      }
+   }
+
+   /**
+    * Returns the password as its key, once released
+    */
+   private static class BlockingPasswordHash extends PasswordHash
+   {
+      private final CountDownLatch started = new CountDownLatch(1);
+      private final CountDownLatch release = new CountDownLatch(1);
+
+      @Override
+      public String createPasswordKey(char[] password, byte[] salt, int iterations)
+      {
+         started.countDown();
+         try
+         {
+            release.await();
+         }
+         catch (InterruptedException ie)
+         {
+            Thread.currentThread().interrupt();
+         }
+         return new String(password);
+      }
+   }
+}
@@ -0,0 +1,209 @@
+package org.jboss.seam.test.unit;
+
+import static org.jboss.seam.ScopeType.APPLICATION;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.jboss.seam.annotations.Name;
+import org.jboss.seam.annotations.Scope;
+import org.jboss.seam.annotations.intercept.BypassInterceptors;
+import org.jboss.seam.security.Identity;
+import org.jboss.seam.security.SimplePrincipal;
+import org.jboss.seam.security.permission.Permission;
+import org.jboss.seam.security.permission.PermissionDecisionCache;
+import org.jboss.seam.security.permission.PermissionManager;
+import org.jboss.seam.security.permission.PermissionMapper;
+import org.jboss.seam.security.permission.PermissionStore;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that remembered permission decisions are forgotten
+ * whenever the permissions or roles they depend upon change
+ */
+public class PermissionDecisionCacheTest extends MockContainerTest
+{
+   private static final String ADMIN = "admin";
+   private static final String TARGET = "document";
+   private static final String ACTION = "read";
+
+   private Identity identity;
+   private CountingPermissionMapper permissionMapper;
+   private PermissionManager permissionManager;
+
+   @Override
+   protected Class[] getComponentsToInstall()
+   {
+      return new Class[] { Identity.class, CountingPermissionMapper.class,
+               PermissionManager.class, PermissionDecisionCache.class };
+   }
+
+   @BeforeMethod
+   public void login()
+   {
+      identity = Identity.instance();
+      identity.acceptExternallyAuthenticatedPrincipal( new SimplePrincipal("user") );
+      permissionMapper = (CountingPermissionMapper) PermissionMapper.instance();
+      permissionManager = PermissionManager.instance();
+      permissionManager.setPermissionStore( new ListPermissionStore() );
+   }
+
+   @Test
+   public void testDecisionIsRemembered()
+   {
+      assert !identity.hasPermission(TARGET, ACTION);
+      assert !identity.hasPermission(TARGET, ACTION);
+      assert !identity.hasPermission( new String(TARGET), ACTION );
+      assert permissionMapper.resolved==1;
+
+      PermissionDecisionCache cache = PermissionDecisionCache.instance();
+      assert cache.getMisses()==1;
+      assert cache.getHits()==2;
+   }
+
+   @Test
+   public void testStatisticsArePerRequest()
+   {
+      assert !identity.hasPermission(TARGET, ACTION);
+      PermissionDecisionCache other = new PermissionDecisionCache();
+      assert other.get( identity.getPrincipal(), TARGET, ACTION )==null;
+      assert other.getMisses()==1;
+
+      other.resetStatistics();
+      assert PermissionDecisionCache.instance().getMisses()==1;
+   }
+
+   @Test
+   public void testGrantAndRevokeForgetDecisions()
+   {
+      Permission permission = new Permission( TARGET, ACTION, identity.getPrincipal() );
+      assert !identity.hasPermission(TARGET, ACTION);
+
+      permissionManager.grantPermission(permission);
+      assert identity.hasPermission(TARGET, ACTION) : "decision remembered after grant";
+
+      permissionManager.revokePermission(permission);
+      assert !identity.hasPermission(TARGET, ACTION) : "decision remembered after revoke";
+
+      List<Permission> permissions = new ArrayList<Permission>();
+      permissions.add(permission);
+      permissionManager.grantPermissions(permissions);
+      assert identity.hasPermission(TARGET, ACTION) : "decision remembered after grant";
+
+      permissionManager.clearPermissions(TARGET);
+      assert !identity.hasPermission(TARGET, ACTION) : "decision remembered after clear";
+   }
+
+   @Test
+   public void testRoleChangesForgetDecisions()
+   {
+      assert !identity.hasPermission(TARGET, ACTION);
+
+      identity.addRole(ADMIN);
+      assert identity.hasPermission(TARGET, ACTION) : "decision remembered after role added";
+
+      identity.removeRole(ADMIN);
+      assert !identity.hasPermission(TARGET, ACTION) : "decision remembered after role removed";
+   }
+
+   @Test
+   public void testLogoutForgetsDecisions()
+   {
+      identity.addRole(ADMIN);
+      assert identity.hasPermission(TARGET, ACTION);
+
+      identity.unAuthenticate();
+      identity.acceptExternallyAuthenticatedPrincipal( new SimplePrincipal("user") );
+      assert !identity.hasPermission(TARGET, ACTION) : "decision remembered after logout";
+   }
+
+   /**
+    * Grants the permissions in the store, and every permission
+    * to admins and to manage permissions, counting each decision
+    */
+   @Name("org.jboss.seam.security.permissionMapper")
+   @Scope(APPLICATION)
+   @BypassInterceptors
+   public static class CountingPermissionMapper extends PermissionMapper
+   {
+      int resolved;
+
+      @Override
+      public boolean resolvePermission(Object target, String action)
+      {
+         resolved++;
+         if ( action.startsWith("seam.") || Identity.instance().hasRole(ADMIN) )
+         {
+            return true;
+         }
+         return !PermissionManager.instance().getPermissionStore().listPermissions(target, action).isEmpty();
+      }
+   }
+
+   private static class ListPermissionStore implements PermissionStore
+   {
+      private final List<Permission> permissions = new ArrayList<Permission>();
+
+      public List<Permission> listPermissions(Object target)
+      {
+         List<Permission> result = new ArrayList<Permission>();
+         for (Permission permission: permissions)
+         {
+            if ( permission.getTarget().equals(target) ) result.add(permission);
+         }
+         return result;
+      }
+
+      public List<Permission> listPermissions(Object target, String action)
+      {
+         List<Permission> result = new ArrayList<Permission>();
+         for ( Permission permission: listPermissions(target) )
+         {
+            if ( permission.getAction().equals(action) ) result.add(permission);
+         }
+         return result;
+      }
+
+      public List<Permission> listPermissions(Set<Object> targets, String action)
+      {
+         List<Permission> result = new ArrayList<Permission>();
+         for (Object target: targets)
+         {
+            result.addAll( listPermissions(target, action) );
+         }
+         return result;
+      }
+
+      public boolean grantPermission(Permission permission)
+      {
+         return permissions.add(permission);
+      }
+
+      public boolean grantPermissions(List<Permission> permissions)
+      {
+         return this.permissions.addAll(permissions);
+      }
+
+      public boolean revokePermission(Permission permission)
+      {
+         return permissions.remove(permission);
+      }
+
+      public boolean revokePermissions(List<Permission> permissions)
+      {
+         return this.permissions.removeAll(permissions);
+      }
+
+      public List<String> listAvailableActions(Object target)
+      {
+         return new ArrayList<String>();
+      }
+
+      public void clearPermissions(Object target)
+      {
+         permissions.removeAll( listPermissions(target) );
+      }
+   }
+}
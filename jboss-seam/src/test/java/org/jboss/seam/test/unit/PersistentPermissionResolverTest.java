@@ -0,0 +1,186 @@
+package org.jboss.seam.test.unit;
+
+import static org.jboss.seam.ScopeType.SESSION;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.seam.annotations.Name;
+import org.jboss.seam.annotations.Scope;
+import org.jboss.seam.annotations.intercept.BypassInterceptors;
+import org.jboss.seam.security.Identity;
+import org.jboss.seam.security.Role;
+import org.jboss.seam.security.SimplePrincipal;
+import org.jboss.seam.security.permission.JpaPermissionStore;
+import org.jboss.seam.security.permission.Permission;
+import org.jboss.seam.security.permission.PersistentPermissionResolver;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests checking the permissions of many targets at once, with the
+ * permissions of the store held in a list
+ */
+public class PersistentPermissionResolverTest extends MockContainerTest
+{
+   private static final String ACTION = "read";
+
+   private CountingIdentity identity;
+   private ListPermissionStore permissionStore;
+   private PersistentPermissionResolver resolver;
+
+   @Override
+   protected Class[] getComponentsToInstall()
+   {
+      return new Class[] { CountingIdentity.class };
+   }
+
+   @BeforeMethod
+   public void login()
+   {
+      identity = (CountingIdentity) Identity.instance();
+      identity.acceptExternallyAuthenticatedPrincipal( new SimplePrincipal("user") );
+      identity.addRole("admin");
+      permissionStore = new ListPermissionStore();
+      resolver = new PersistentPermissionResolver();
+      resolver.setPermissionStore(permissionStore);
+   }
+
+   private static Set<Object> targets(int count)
+   {
+      Set<Object> targets = new HashSet<Object>();
+      for (int i = 0; i < count; i++)
+      {
+         targets.add("document" + i);
+      }
+      return targets;
+   }
+
+   @Test
+   public void testGrantedTargets()
+   {
+      permissionStore.grant( "document0", new SimplePrincipal("user") );
+      permissionStore.grant( "document1", new SimplePrincipal("bob") );
+      permissionStore.grant( "document2", new Role("admin", false) );
+      permissionStore.grant( "document3", new Role("guest", false) );
+
+      Set<Object> granted = resolver.getGrantedTargets( targets(5), ACTION );
+      assert granted.size() == 2;
+      assert granted.contains("document0");
+      assert granted.contains("document2");
+
+      Set<Object> targets = targets(5);
+      resolver.filterSetByAction(targets, ACTION);
+      assert targets.size() == 3;
+      assert !targets.contains("document0");
+   }
+
+   @Test
+   public void testOnlyCurrentUserPermissionsAreRead()
+   {
+      resolver.getGrantedTargets( targets(1), ACTION );
+      assert permissionStore.recipients.size() == 1;
+      assert permissionStore.recipients.get(0).equals( identity.getPrincipal() ) : "permissions of every user read";
+   }
+
+   @Test
+   public void testNoPermissionsReadWhenNotLoggedIn()
+   {
+      identity.unAuthenticate();
+      assert permissionStore.listPermissions( targets(1), ACTION ).isEmpty();
+      assert permissionStore.batches.isEmpty();
+   }
+
+   @Test
+   public void testTargetBatches()
+   {
+      permissionStore.listPermissions( targets(500), ACTION );
+      assert permissionStore.batches.size() == 1;
+      assert permissionStore.batches.get(0) == 500;
+
+      permissionStore.batches.clear();
+      permissionStore.listPermissions( targets(501), ACTION );
+      assert permissionStore.batches.size() == 2;
+      assert permissionStore.batches.get(0) + permissionStore.batches.get(1) == 501;
+      assert permissionStore.batches.contains(500);
+
+      permissionStore.batches.clear();
+      permissionStore.listPermissions( targets(1000), ACTION );
+      assert permissionStore.batches.size() == 2;
+      assert permissionStore.batches.get(0) == 500;
+      assert permissionStore.batches.get(1) == 500;
+   }
+
+   @Test
+   public void testRoleMembershipIsCheckedOnce()
+   {
+      Set<Object> targets = targets(100);
+      for (Object target: targets)
+      {
+         permissionStore.grant( target, new Role("guest", false) );
+         permissionStore.grant( target, new Role("admin", false) );
+      }
+
+      assert resolver.getGrantedTargets(targets, ACTION).size() == 100;
+      assert identity.roleChecks.get("admin") == 1;
+      assert identity.roleChecks.get("guest") == 1;
+   }
+
+   /**
+    * Counts the role checks of each role
+    */
+   @Name("org.jboss.seam.security.identity")
+   @Scope(SESSION)
+   @BypassInterceptors
+   public static class CountingIdentity extends Identity
+   {
+      final Map<String, Integer> roleChecks = new HashMap<String, Integer>();
+
+      @Override
+      public boolean hasRole(String role)
+      {
+         Integer checks = roleChecks.get(role);
+         roleChecks.put( role, checks == null ? 1 : checks + 1 );
+         return super.hasRole(role);
+      }
+   }
+
+   /**
+    * Reads the permissions from a list rather than the database,
+    * recording each batch of targets and its recipient
+    */
+   private static class ListPermissionStore extends JpaPermissionStore
+   {
+      private final List<Permission> permissions = new ArrayList<Permission>();
+      final List<Integer> batches = new ArrayList<Integer>();
+      final List<Principal> recipients = new ArrayList<Principal>();
+
+      void grant(Object target, Principal recipient)
+      {
+         permissions.add( new Permission(target, ACTION, recipient) );
+      }
+
+      @Override
+      protected List<Permission> listPermissions(Object target, Set<Object> targets, Principal recipient,
+               String action)
+      {
+         batches.add( targets.size() );
+         recipients.add(recipient);
+         List<Permission> result = new ArrayList<Permission>();
+         for (Permission permission: permissions)
+         {
+            if ( targets.contains( permission.getTarget() ) && permission.getAction().equals(action) &&
+                  ( permission.getRecipient() instanceof Role || permission.getRecipient().equals(recipient) ) )
+            {
+               result.add(permission);
+            }
+         }
+         return result;
+      }
+   }
+}
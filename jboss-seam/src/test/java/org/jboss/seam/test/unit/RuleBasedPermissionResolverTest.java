@@ -0,0 +1,180 @@
+package org.jboss.seam.test.unit;
+
+import java.io.StringReader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.RuleBase;
+import org.drools.RuleBaseFactory;
+import org.drools.compiler.PackageBuilder;
+import org.jboss.seam.Seam;
+import org.jboss.seam.contexts.Contexts;
+import org.jboss.seam.contexts.Lifecycle;
+import org.jboss.seam.security.Identity;
+import org.jboss.seam.security.SimplePrincipal;
+import org.jboss.seam.security.management.JpaIdentityStore;
+import org.jboss.seam.security.permission.RuleBasedPermissionResolver;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that permission checks in concurrent mode see the
+ * user account of the current login, and never that of a
+ * previous one
+ */
+public class RuleBasedPermissionResolverTest extends MockContainerTest
+{
+   private static final String RULES =
+      "package org.jboss.seam.test.unit;\n" +
+      "import org.jboss.seam.security.permission.PermissionCheck;\n" +
+      "global java.lang.Runnable relogin;\n" +
+      "global java.util.concurrent.CyclicBarrier together;\n" +
+      "rule ViewAccount\n" +
+      "when\n" +
+      "   $check: PermissionCheck(target == \"account\", action == \"view\", granted == false)\n" +
+      "   String(this == \"alice\")\n" +
+      "then\n" +
+      "   $check.grant();\n" +
+      "end\n" +
+      "rule Relogin\n" +
+      "when\n" +
+      "   PermissionCheck(target == \"session\", action == \"relogin\")\n" +
+      "then\n" +
+      "   relogin.run();\n" +
+      "end\n" +
+      "rule Together\n" +
+      "when\n" +
+      "   $check: PermissionCheck(target == \"together\", action == \"check\", granted == false)\n" +
+      "then\n" +
+      "   together.await(10, java.util.concurrent.TimeUnit.SECONDS);\n" +
+      "   $check.grant();\n" +
+      "end\n";
+
+   private Identity identity;
+   private RuleBasedPermissionResolver resolver;
+
+   @Override
+   protected Class[] getComponentsToInstall()
+   {
+      return new Class[] { Identity.class };
+   }
+
+   @BeforeMethod
+   public void createResolver() throws Exception
+   {
+      PackageBuilder builder = new PackageBuilder();
+      builder.addPackageFromDrl( new StringReader(RULES) );
+      assert !builder.hasErrors() : builder.getErrors().toString();
+      RuleBase ruleBase = RuleBaseFactory.newRuleBase();
+      ruleBase.addPackage( builder.getPackage() );
+
+      identity = Identity.instance();
+      resolver = new RuleBasedPermissionResolver();
+      resolver.setSecurityRules(ruleBase);
+      resolver.setConcurrent(true);
+      assert resolver.create();
+   }
+
+   private void login(String username)
+   {
+      identity.acceptExternallyAuthenticatedPrincipal( new SimplePrincipal(username) );
+      Contexts.getEventContext().set(JpaIdentityStore.AUTHENTICATED_USER, username);
+      resolver.setUserAccountInSecurityContext();
+   }
+
+   @Test
+   public void testAccountAfterLogin()
+   {
+      identity.acceptExternallyAuthenticatedPrincipal( new SimplePrincipal("alice") );
+      assert !resolver.hasPermission("account", "view");
+
+      login("alice");
+      assert resolver.hasPermission("account", "view") : "account missing from pooled working memory";
+      assert resolver.hasPermission("account", "view");
+   }
+
+   @Test
+   public void testAccountAfterLogout()
+   {
+      login("alice");
+      assert resolver.hasPermission("account", "view");
+
+      identity.unAuthenticate();
+      resolver.unAuthenticate();
+      login("bob");
+      assert !resolver.hasPermission("account", "view");
+   }
+
+   @Test
+   public void testWorkingMemoryBorrowedBeforeLogout()
+   {
+      login("alice");
+      assert resolver.hasPermission("account", "view");
+
+      //log in again while the working memory of alice is borrowed
+      Contexts.getEventContext().set("relogin", new Runnable()
+      {
+         public void run()
+         {
+            identity.unAuthenticate();
+            resolver.unAuthenticate();
+            login("bob");
+         }
+      } );
+      resolver.hasPermission("session", "relogin");
+      assert identity.getPrincipal().getName().equals("bob");
+
+      assert !resolver.hasPermission("account", "view") : "working memory of previous login reused";
+   }
+
+   @Test
+   public void testConcurrentChecks() throws Exception
+   {
+      login("alice");
+      resolver.setPoolSize(1);
+      ExecutorService requests = Executors.newFixedThreadPool(2);
+      try
+      {
+         //each check waits for the other, so they must run at the same time
+         CyclicBarrier together = new CyclicBarrier(2);
+         Future<Boolean> first = requests.submit( check(together) );
+         Future<Boolean> second = requests.submit( check(together) );
+         assert first.get(20, TimeUnit.SECONDS);
+         assert second.get(20, TimeUnit.SECONDS);
+      }
+      finally
+      {
+         requests.shutdownNow();
+      }
+      assert resolver.getIdleWorkingMemories() == 1 : "pool larger than its size";
+      assert resolver.hasPermission("account", "view");
+   }
+
+   /**
+    * A permission check in a request of the same session
+    */
+   private Callable<Boolean> check(final CyclicBarrier together)
+   {
+      return new Callable<Boolean>()
+      {
+         public Boolean call()
+         {
+            Lifecycle.beginCall();
+            try
+            {
+               Contexts.getSessionContext().set( Seam.getComponentName(Identity.class), identity );
+               Contexts.getEventContext().set("together", together);
+               return resolver.hasPermission("together", "check");
+            }
+            finally
+            {
+               Lifecycle.endCall();
+            }
+         }
+      };
+   }
+}
@@ -0,0 +1,48 @@
+package org.jboss.seam.test.unit.entity;
+
+import java.io.Serializable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Version;
+
+/**
+ * A versioned entity class that can be used in tests.
+ */
+@Entity
+public class VersionedEntity implements Serializable
+{
+   private Long id;
+
+   private Integer version;
+
+   public VersionedEntity() {}
+
+   public VersionedEntity(Long id)
+   {
+      this.id = id;
+      this.version = 1;
+   }
+
+   @Id
+   public Long getId()
+   {
+      return id;
+   }
+
+   public void setId(Long id)
+   {
+      this.id = id;
+   }
+
+   @Version
+   public Integer getVersion()
+   {
+      return version;
+   }
+
+   public void setVersion(Integer version)
+   {
+      this.version = version;
+   }
+}
@@ -2,7 +2,10 @@ package org.jboss.seam.test.unit.web;
 
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+
 import org.jboss.seam.web.Pattern;
+import org.jboss.seam.web.PatternIndex;
 import org.jboss.seam.web.Rewrite;
 import org.jboss.seam.web.ServletMapping;
 
@@ -111,6 +114,48 @@ public class RewriteTest
     }
     
     
+    @Test
+    public void testPatternIndex()
+        throws Exception
+    {
+        PatternIndex index = new PatternIndex(Arrays.asList(
+                new Pattern("/blog.xhtml", "/blog/{id}"),
+                new Pattern("/page.xhtml", "/{name}"),
+                new Pattern("/news.xhtml", "/blog/news"),
+                new Pattern("/home.xhtml", "/home"),
+                new Pattern("/user.xhtml", "/user{id}/profile")), 
+                new ServletMapping("*.seam"));
+        
+        // the first matching pattern wins, even across buckets
+        assertEquals(index.matchIncoming("/blog/news").rewrite(), "/blog.seam?id=news");
+        assertEquals(index.matchIncoming("/blog/1?x=y").rewrite(), "/blog.seam?x=y&id=1");
+        assertEquals(index.matchIncoming("/home").rewrite(), "/page.seam?name=home");
+        assertEquals(index.matchIncoming("/about").rewrite(), "/page.seam?name=about");
+        assertEquals(index.matchIncoming("/user7/profile").rewrite(), "/user.seam?id=7");
+        assertNull(index.matchIncoming("/blog/1/2"));
+        assertNull(index.matchIncoming("/other/path"));
+
+        assertEquals(index.matchOutgoing("/blog.seam?id=1").rewrite(), "/blog/1");
+        assertEquals(index.matchOutgoing("/home.seam").rewrite(), "/home");
+        assertEquals(index.matchOutgoing("/news.seam?x=y").rewrite(), "/blog/news?x=y");
+        assertNull(index.matchOutgoing("/blog.seam"));
+        assertNull(index.matchOutgoing("/other.seam"));
+        assertNull(index.matchOutgoing("/home"));
+    }
+    
+    @Test
+    public void testPrefixMappedPatternIndex()
+        throws Exception
+    {
+        PatternIndex index = new PatternIndex(Arrays.asList(
+                new Pattern("/blog.xhtml", "/blog/{id}")), 
+                new ServletMapping("/seam/*"));
+        
+        assertEquals(index.matchIncoming("/blog/1").rewrite(), "/seam/blog.xhtml?id=1");
+        assertEquals(index.matchOutgoing("/seam/blog.xhtml?id=1").rewrite(), "/blog/1");
+        assertNull(index.matchOutgoing("/blog.xhtml?id=1"));
+    }
+    
     public void testNoMatchIn(Pattern pattern, String incoming) {
         assertNull(pattern.matchIncoming(incoming), incoming);
     }